@@ -6,6 +6,7 @@ export default function VentaList() {
   const [ventas, setVentas] = useState([]);
   const [loading, setLoading] = useState(true);
   const [showForm, setShowForm] = useState(false);
+  const [cursor, setCursor] = useState(null);
 
   useEffect(() => {
     loadVentas();
@@ -15,6 +16,7 @@ export default function VentaList() {
     try {
       const res = await getVentas();
       setVentas(res.data);
+      setCursor(res.headers['x-next-cursor'] || null);
     } catch (error) {
       console.error('Error cargando ventas:', error);
       alert('Error al cargar ventas');
@@ -23,6 +25,17 @@ export default function VentaList() {
     }
   };
 
+  const loadMas = async () => {
+    try {
+      const res = await getVentas(cursor);
+      setVentas(prev => [...prev, ...res.data]);
+      setCursor(res.headers['x-next-cursor'] || null);
+    } catch (error) {
+      console.error('Error cargando ventas:', error);
+      alert('Error al cargar ventas');
+    }
+  };
+
   const handleFormClose = () => {
     setShowForm(false);
     loadVentas();
@@ -133,6 +146,12 @@ export default function VentaList() {
         </tbody>
       </table>
 
+      {cursor && (
+        <div style={{ textAlign: 'center', marginTop: '20px' }}>
+          <button onClick={loadMas}>Cargar más</button>
+        </div>
+      )}
+
       {ventas.length === 0 && (
         <p style={{ textAlign: 'center', marginTop: '20px' }}>
           No hay ventas registradas
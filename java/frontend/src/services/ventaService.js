@@ -1,6 +1,7 @@
 import api from "../api/client";
 
-export const getVentas = () => api.get("/ventas");
+export const getVentas = (cursor) =>
+  api.get("/ventas", { params: cursor ? { cursor } : {} });
 export const createVenta = (data) => api.post("/ventas", data);
 export const getVenta = (id) => api.get(`/ventas/${id}`);
 export const updateVenta = (id, data) => api.put(`/ventas/${id}`, data);
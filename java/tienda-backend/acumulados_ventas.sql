@@ -0,0 +1,34 @@
+-- Acumulados de ventas por punto de venta y por hora, día y mes, para
+-- GET /api/reportes/ventas. La aplicación suma cada venta en la misma transacción
+-- que la inserta. Cada intervalo puede tener varias filas (VA_CELDA) para repartir los
+-- bloqueos; el total es la suma.
+-- Este script crea la tabla y la llena desde VENTA y VENTA_DETALLE. Se puede ejecutar
+-- más de una vez (equivale a POST /api/util/reportes/reconstruir).
+CREATE TABLE IF NOT EXISTS venta_acumulado (
+    va_granularidad VARCHAR(4) NOT NULL,
+    pv_id INTEGER NOT NULL REFERENCES punto_de_venta (pv_id) ON DELETE CASCADE,
+    va_inicio TIMESTAMP NOT NULL,
+    va_celda SMALLINT NOT NULL DEFAULT 0,
+    va_ventas INTEGER NOT NULL DEFAULT 0,
+    va_unidades BIGINT NOT NULL DEFAULT 0,
+    va_ingresos NUMERIC(16,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (va_granularidad, pv_id, va_inicio, va_celda)
+);
+
+-- Reportes de toda la tienda o de una ubicación (sin filtrar por punto de venta)
+CREATE INDEX IF NOT EXISTS idx_venta_acumulado_inicio ON venta_acumulado (va_granularidad, va_inicio);
+
+BEGIN;
+LOCK TABLE venta_acumulado IN EXCLUSIVE MODE;
+DELETE FROM venta_acumulado;
+INSERT INTO venta_acumulado (va_granularidad, pv_id, va_inicio, va_celda, va_ventas, va_unidades, va_ingresos)
+SELECT g.granularidad, v.pv_id, DATE_TRUNC(g.truncar, v.v_fecha), 0, COUNT(*), SUM(l.unidades), SUM(l.ingresos)
+FROM venta v
+JOIN (
+    SELECT v_id, SUM(vd_cantidad) AS unidades, SUM(vd_cantidad * vd_precio_unitario) AS ingresos
+    FROM venta_detalle
+    GROUP BY v_id
+) l ON l.v_id = v.v_id
+CROSS JOIN (VALUES ('hora', 'hour'), ('dia', 'day'), ('mes', 'month')) AS g (granularidad, truncar)
+GROUP BY g.granularidad, v.pv_id, DATE_TRUNC(g.truncar, v.v_fecha);
+COMMIT;
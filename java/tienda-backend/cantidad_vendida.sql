@@ -0,0 +1,21 @@
+-- Unidades e ingresos vendidos por producto, para GET /api/productos/cantidad-vendida.
+-- La aplicación suma cada venta en la misma transacción que la inserta. Cada producto
+-- puede tener varias filas (CV_CELDA) para repartir los bloqueos; el total es la suma.
+-- Este script crea la tabla y la llena desde VENTA_DETALLE. Se puede ejecutar más de
+-- una vez (equivale a POST /api/util/cantidad-vendida/reconstruir).
+CREATE TABLE IF NOT EXISTS cantidad_vendida (
+    p_id INTEGER NOT NULL REFERENCES producto (p_id) ON DELETE CASCADE,
+    cv_celda SMALLINT NOT NULL DEFAULT 0,
+    cv_unidades BIGINT NOT NULL DEFAULT 0,
+    cv_ingresos NUMERIC(16,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (p_id, cv_celda)
+);
+
+BEGIN;
+LOCK TABLE cantidad_vendida IN EXCLUSIVE MODE;
+DELETE FROM cantidad_vendida;
+INSERT INTO cantidad_vendida (p_id, cv_celda, cv_unidades, cv_ingresos)
+SELECT p_id, 0, SUM(vd_cantidad), SUM(vd_cantidad * vd_precio_unitario)
+FROM venta_detalle
+GROUP BY p_id;
+COMMIT;
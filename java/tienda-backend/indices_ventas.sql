@@ -0,0 +1,7 @@
+-- Índices para la paginación por keyset de GET /api/ventas y /api/ventas/persona/{id}
+-- (ORDER BY V_FECHA DESC, V_ID DESC con WHERE (V_FECHA, V_ID) < cursor)
+CREATE INDEX IF NOT EXISTS idx_venta_fecha_id ON venta (v_fecha DESC, v_id DESC);
+CREATE INDEX IF NOT EXISTS idx_venta_persona_fecha_id ON venta (p_id, v_fecha DESC, v_id DESC);
+
+-- Carga de los detalles de una página (WHERE VENTA_DETALLE.V_ID IN (...))
+CREATE INDEX IF NOT EXISTS idx_venta_detalle_venta ON venta_detalle (v_id);
@@ -0,0 +1,21 @@
+-- Tablas del inventario caliente (tienda.inventario.caliente.enabled=true).
+-- INVENTARIO_CUPO: unidades que cada nodo tomó de P_STOCK y aún no vendió
+-- (menos el consumo que todavía no se plegó).
+-- INVENTARIO_CONSUMO: una fila por venta confirmada de un producto caliente; el nodo
+-- las descuenta de su cupo y las borra periódicamente.
+-- Se puede ejecutar más de una vez.
+CREATE TABLE IF NOT EXISTS inventario_cupo (
+    ic_nodo VARCHAR(100) NOT NULL,
+    p_id INTEGER NOT NULL REFERENCES producto (p_id) ON DELETE CASCADE,
+    ic_unidades INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (ic_nodo, p_id)
+);
+
+CREATE TABLE IF NOT EXISTS inventario_consumo (
+    ico_id BIGSERIAL PRIMARY KEY,
+    ico_nodo VARCHAR(100) NOT NULL,
+    p_id INTEGER NOT NULL,
+    ico_cantidad INTEGER NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_inventario_consumo_nodo ON inventario_consumo (ico_nodo, ico_id);
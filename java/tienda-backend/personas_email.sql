@@ -0,0 +1,6 @@
+-- Unicidad del email de PERSONA sin distinguir mayúsculas ni espacios alrededor, como
+-- la validan POST /api/personas y POST /api/personas/importar. El índice también es el
+-- que usa la consulta de email existente cuando el filtro de emails no la descarta.
+-- Antes de crearlo, esta consulta lista los emails que ya chocan (hay que corregirlos):
+--   SELECT LOWER(TRIM(p_email)), COUNT(*) FROM persona GROUP BY 1 HAVING COUNT(*) > 1;
+CREATE UNIQUE INDEX IF NOT EXISTS ux_persona_email_normalizado ON persona (LOWER(TRIM(p_email)));
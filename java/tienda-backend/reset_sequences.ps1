@@ -15,8 +15,10 @@ SELECT setval(pg_get_serial_sequence('persona', 'p_id'), COALESCE((SELECT MAX(p_
 SELECT setval(pg_get_serial_sequence('producto', 'p_id'), COALESCE((SELECT MAX(p_id) FROM producto), 1), true);
 SELECT setval(pg_get_serial_sequence('ubicacion', 'u_id'), COALESCE((SELECT MAX(u_id) FROM ubicacion), 1), true);
 SELECT setval(pg_get_serial_sequence('punto_de_venta', 'pv_id'), COALESCE((SELECT MAX(pv_id) FROM punto_de_venta), 1), true);
-SELECT setval(pg_get_serial_sequence('venta', 'v_id'), COALESCE((SELECT MAX(v_id) FROM venta), 1), true);
-SELECT setval(pg_get_serial_sequence('venta_detalle', 'vd_id'), COALESCE((SELECT MAX(vd_id) FROM venta_detalle), 1), true);
+ALTER SEQUENCE venta_v_id_seq INCREMENT BY 50;
+ALTER SEQUENCE venta_detalle_vd_id_seq INCREMENT BY 50;
+SELECT setval('venta_v_id_seq', GREATEST(COALESCE((SELECT MAX(v_id) FROM venta), 1), (SELECT last_value FROM venta_v_id_seq)), true);
+SELECT setval('venta_detalle_vd_id_seq', GREATEST(COALESCE((SELECT MAX(vd_id) FROM venta_detalle), 1), (SELECT last_value FROM venta_detalle_vd_id_seq)), true);
 "@
 
 Write-Host "Ejecutando comandos SQL..." -ForegroundColor Yellow
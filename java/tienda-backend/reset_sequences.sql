@@ -13,11 +13,14 @@ SELECT setval(pg_get_serial_sequence('ubicacion', 'u_id'), COALESCE(MAX(u_id), 1
 -- Resetear secuencia de PUNTO_DE_VENTA
 SELECT setval(pg_get_serial_sequence('punto_de_venta', 'pv_id'), COALESCE(MAX(pv_id), 1), true) FROM punto_de_venta;
 
--- Resetear secuencia de VENTA
-SELECT setval(pg_get_serial_sequence('venta', 'v_id'), COALESCE(MAX(v_id), 1), true) FROM venta;
-
--- Resetear secuencia de VENTA_DETALLE (este es el que está causando el problema)
-SELECT setval(pg_get_serial_sequence('venta_detalle', 'vd_id'), COALESCE(MAX(vd_id), 1), true) FROM venta_detalle;
+-- VENTA y VENTA_DETALLE usan el optimizador pooled de Hibernate (allocationSize = 50).
+-- El backend las alinea al arrancar, antes de que Hibernate compare el INCREMENT BY con el
+-- allocationSize (tienda.sequences.align-on-startup); esto es el equivalente manual.
+-- Nunca retroceder estas secuencias: otros nodos pueden tener rangos reservados.
+ALTER SEQUENCE venta_v_id_seq INCREMENT BY 50;
+ALTER SEQUENCE venta_detalle_vd_id_seq INCREMENT BY 50;
+SELECT setval('venta_v_id_seq', GREATEST(COALESCE((SELECT MAX(v_id) FROM venta), 1), (SELECT last_value FROM venta_v_id_seq)), true);
+SELECT setval('venta_detalle_vd_id_seq', GREATEST(COALESCE((SELECT MAX(vd_id) FROM venta_detalle), 1), (SELECT last_value FROM venta_detalle_vd_id_seq)), true);
 
 -- Verificar el estado de las secuencias
 SELECT 'persona' as tabla, currval(pg_get_serial_sequence('persona', 'p_id')) as valor_actual
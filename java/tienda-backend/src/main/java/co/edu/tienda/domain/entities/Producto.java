@@ -3,10 +3,17 @@ package co.edu.tienda.domain.entities;
 import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 import java.math.BigDecimal;
 
 @Entity
 @Table(name = "PRODUCTO")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "productos")
+// El UPDATE lleva solo las columnas cambiadas: editar nombre o precio no reescribe P_STOCK
+@DynamicUpdate
 public class Producto {
 
     @Id
@@ -3,9 +3,13 @@ package co.edu.tienda.domain.entities;
 import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "PUNTO_DE_VENTA")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "puntosDeVenta")
 public class PuntoDeVenta {
 
     @Id
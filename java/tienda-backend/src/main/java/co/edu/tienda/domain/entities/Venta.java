@@ -1,7 +1,9 @@
 package co.edu.tienda.domain.entities;
 
+import co.edu.tienda.domain.valores.Centavos;
 import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
@@ -9,13 +11,16 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Entity
 @Table(name = "VENTA")
 public class Venta {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "venta_seq")
+    @SequenceGenerator(name = "venta_seq", sequenceName = "VENTA_V_ID_SEQ", allocationSize = 50)
     @Column(name = "V_ID")
     @JsonProperty("id")
     @JsonAlias({"vId", "V_ID"})
@@ -35,6 +40,14 @@ public class Venta {
     @JoinColumn(name = "PV_ID", nullable = false)
     private PuntoDeVenta puntoDeVenta;
 
+    // Total y cantidad de líneas guardados al crear la venta (ver calcularTotales),
+    // así los listados y reportes no necesitan leer VENTA_DETALLE
+    @Column(name = "V_TOTAL", nullable = false, precision = 12, scale = 2)
+    private BigDecimal vTotal;
+
+    @Column(name = "V_NUM_LINEAS", nullable = false)
+    private Integer vNumLineas;
+
     @OneToMany(mappedBy = "venta", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonManagedReference
     private List<VentaDetalle> detalles = new ArrayList<>();
@@ -84,6 +97,24 @@ public class Venta {
         this.puntoDeVenta = puntoDeVenta;
     }
 
+    @JsonIgnore
+    public BigDecimal getVTotal() {
+        return vTotal;
+    }
+
+    public void setVTotal(BigDecimal vTotal) {
+        this.vTotal = vTotal;
+    }
+
+    @JsonIgnore
+    public Integer getVNumLineas() {
+        return vNumLineas;
+    }
+
+    public void setVNumLineas(Integer vNumLineas) {
+        this.vNumLineas = vNumLineas;
+    }
+
     public List<VentaDetalle> getDetalles() {
         return detalles;
     }
@@ -129,9 +160,12 @@ public class Venta {
 
     @JsonProperty("total")
     public BigDecimal getTotal() {
-        return detalles.stream()
-            .map(VentaDetalle::calcularSubtotal)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return vTotal != null ? vTotal : sumarDetalles();
+    }
+
+    @JsonProperty("numLineas")
+    public Integer getNumLineas() {
+        return vNumLineas != null ? vNumLineas : detalles.size();
     }
 
     // ==================== SETTERS VIRTUALES PARA JSON ====================
@@ -154,6 +188,72 @@ public class Venta {
         }
     }
 
+    /**
+     * Valida la estructura de la venta y devuelve la cantidad total pedida por producto
+     * (un producto puede repetirse en varias líneas), ordenada por ID.
+     */
+    public Map<Integer, Integer> cantidadesPorProducto() {
+        // Validar que tenga detalles
+        if (detalles == null || detalles.isEmpty()) {
+            throw new RuntimeException("La venta debe tener al menos un detalle");
+        }
+
+        Map<Integer, Integer> cantidades = new TreeMap<>();
+        for (VentaDetalle detalle : detalles) {
+            if (detalle.getProducto() == null || detalle.getProducto().getPId() == null) {
+                throw new RuntimeException("Cada detalle debe indicar el producto");
+            }
+            if (detalle.getVdCantidad() == null || detalle.getVdCantidad() <= 0) {
+                throw new RuntimeException("La cantidad debe ser mayor que cero para el producto: "
+                        + detalle.getProducto().getPId());
+            }
+            cantidades.merge(detalle.getProducto().getPId(), detalle.getVdCantidad(), Integer::sum);
+        }
+        return cantidades;
+    }
+
+    /**
+     * Calcula V_TOTAL y V_NUM_LINEAS a partir de los detalles; se llama una vez al crear
+     * la venta, con los precios unitarios ya resueltos.
+     */
+    public void calcularTotales() {
+        this.vTotal = sumarDetalles();
+        this.vNumLineas = detalles.size();
+    }
+
+    /**
+     * Total en centavos, para acumulados: V_TOTAL si ya está calculado, si no la suma
+     * de los detalles.
+     */
+    @JsonIgnore
+    public long getTotalCentavos() {
+        if (vTotal != null) {
+            return Centavos.de(vTotal);
+        }
+        long total = 0;
+        for (VentaDetalle detalle : detalles) {
+            total = Centavos.sumar(total, detalle.getSubtotalCentavos());
+        }
+        return total;
+    }
+
+    private BigDecimal sumarDetalles() {
+        if (detalles.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        // Sumar en centavos; un precio con otra escala (no vino de la BD) conserva la suma exacta
+        long total = 0;
+        for (VentaDetalle detalle : detalles) {
+            if (detalle.getVdPrecioUnitario().scale() != Centavos.ESCALA) {
+                return detalles.stream()
+                    .map(VentaDetalle::calcularSubtotal)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            }
+            total = Centavos.sumar(total, detalle.getSubtotalCentavos());
+        }
+        return Centavos.aDecimal(total);
+    }
+
     // Método auxiliar para agregar detalles
     public void addDetalle(VentaDetalle detalle) {
         detalles.add(detalle);
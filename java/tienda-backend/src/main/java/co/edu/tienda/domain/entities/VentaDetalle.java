@@ -1,7 +1,9 @@
 package co.edu.tienda.domain.entities;
 
+import co.edu.tienda.domain.valores.Centavos;
 import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
@@ -10,8 +12,11 @@ import java.math.BigDecimal;
 @Table(name = "VENTA_DETALLE")
 public class VentaDetalle {
 
+    private static final long SIN_CALCULAR = Long.MIN_VALUE;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "venta_detalle_seq")
+    @SequenceGenerator(name = "venta_detalle_seq", sequenceName = "VENTA_DETALLE_VD_ID_SEQ", allocationSize = 50)
     @Column(name = "VD_ID")
     @JsonProperty("id")
     @JsonAlias({"vdId", "VD_ID"})
@@ -36,6 +41,10 @@ public class VentaDetalle {
     @JsonAlias({"vdPrecioUnitario", "VD_PRECIO_UNITARIO"})
     private BigDecimal vdPrecioUnitario;
 
+    // Precio unitario en centavos, calculado la primera vez que se usa
+    @Transient
+    private long precioCentavos = SIN_CALCULAR;
+
     // Constructor vacío
     public VentaDetalle() {
     }
@@ -87,6 +96,21 @@ public class VentaDetalle {
 
     public void setVdPrecioUnitario(BigDecimal vdPrecioUnitario) {
         this.vdPrecioUnitario = vdPrecioUnitario;
+        this.precioCentavos = SIN_CALCULAR;
+    }
+
+    @JsonIgnore
+    public long getPrecioCentavos() {
+        if (precioCentavos == SIN_CALCULAR) {
+            precioCentavos = Centavos.de(vdPrecioUnitario);
+        }
+        return precioCentavos;
+    }
+
+    // Para totales y acumulados: no crea objetos
+    @JsonIgnore
+    public long getSubtotalCentavos() {
+        return Centavos.por(getPrecioCentavos(), vdCantidad);
     }
 
     // ==================== GETTERS VIRTUALES PARA JSON ====================
@@ -120,6 +144,10 @@ public class VentaDetalle {
 
     // Método para calcular subtotal
     public BigDecimal calcularSubtotal() {
+        // Con escala 2 (como sale de la BD) da lo mismo que precio × cantidad
+        if (vdPrecioUnitario.scale() == Centavos.ESCALA) {
+            return Centavos.aDecimal(getSubtotalCentavos());
+        }
         return vdPrecioUnitario.multiply(new BigDecimal(vdCantidad));
     }
 
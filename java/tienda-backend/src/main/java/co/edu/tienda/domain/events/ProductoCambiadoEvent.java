@@ -0,0 +1,29 @@
+package co.edu.tienda.domain.events;
+
+import co.edu.tienda.domain.entities.Producto;
+
+/**
+ * Se publica al crear, actualizar o eliminar un producto (producto == null si se eliminó).
+ */
+public class ProductoCambiadoEvent {
+
+    private final Integer productoId;
+    private final Producto producto;
+
+    public ProductoCambiadoEvent(Integer productoId, Producto producto) {
+        this.productoId = productoId;
+        this.producto = producto;
+    }
+
+    public Integer getProductoId() {
+        return productoId;
+    }
+
+    public Producto getProducto() {
+        return producto;
+    }
+
+    public boolean isEliminado() {
+        return producto == null;
+    }
+}
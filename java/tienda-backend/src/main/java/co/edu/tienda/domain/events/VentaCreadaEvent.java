@@ -0,0 +1,29 @@
+package co.edu.tienda.domain.events;
+
+import co.edu.tienda.domain.entities.Venta;
+
+/**
+ * Se publica dentro de la transacción que inserta la venta, por cualquiera de los
+ * caminos de creación. Los listeners que necesiten el commit deben usar
+ * {@code @TransactionalEventListener}.
+ */
+public class VentaCreadaEvent {
+
+    public enum Origen { DIRECTA, LOTE, JOURNAL }
+
+    private final Venta venta;
+    private final Origen origen;
+
+    public VentaCreadaEvent(Venta venta, Origen origen) {
+        this.venta = venta;
+        this.origen = origen;
+    }
+
+    public Venta getVenta() {
+        return venta;
+    }
+
+    public Origen getOrigen() {
+        return origen;
+    }
+}
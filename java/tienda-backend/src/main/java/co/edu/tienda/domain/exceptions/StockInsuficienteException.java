@@ -0,0 +1,22 @@
+package co.edu.tienda.domain.exceptions;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * La venta pide más unidades de las disponibles. Lleva el detalle de cada
+ * producto que no alcanzó para que el cliente sepa exactamente qué corregir.
+ */
+public class StockInsuficienteException extends RuntimeException {
+
+    private final List<Map<String, Object>> productos;
+
+    public StockInsuficienteException(String message, List<Map<String, Object>> productos) {
+        super(message);
+        this.productos = productos;
+    }
+
+    public List<Map<String, Object>> getProductos() {
+        return productos;
+    }
+}
@@ -6,6 +6,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,6 +17,14 @@ public interface PersonaRepository extends JpaRepository<Persona, Integer> {
     @Query("SELECT p FROM Persona p WHERE p.pEmail = :email")
     Optional<Persona> findByEmail(@Param("email") String email);
 
+    // Unicidad del email sin distinguir mayúsculas ni espacios; usa el índice de personas_email.sql
+    @Query("SELECT COUNT(p) > 0 FROM Persona p WHERE LOWER(TRIM(p.pEmail)) = :emailNormalizado")
+    boolean existsByEmailNormalizado(@Param("emailNormalizado") String emailNormalizado);
+
+    // IDs que existen de entre los dados (validación de ventas en lote)
+    @Query("SELECT p.pId FROM Persona p WHERE p.pId IN :ids")
+    List<Integer> findIdsExistentes(@Param("ids") Collection<Integer> ids);
+
     // Spring Data JPA ya proporciona automáticamente:
     // - findAll()
     // - findById()
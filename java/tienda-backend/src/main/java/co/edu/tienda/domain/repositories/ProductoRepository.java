@@ -1,23 +1,30 @@
 package co.edu.tienda.domain.repositories;
 
 import co.edu.tienda.domain.entities.Producto;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface ProductoRepository extends JpaRepository<Producto, Integer> {
+public interface ProductoRepository extends JpaRepository<Producto, Integer>, ProductoRepositoryCustom {
 
     // Método personalizado: buscar productos con stock bajo
     @Query("SELECT p FROM Producto p WHERE p.pStock < ?1")
     List<Producto> findByPStockLessThan(Integer stock);
 
-    // Consulta personalizada: cantidad vendida por producto
-    @Query("SELECT p.pId, p.pNombre, COALESCE(SUM(vd.vdCantidad), 0) as totalVendido " +
-            "FROM Producto p LEFT JOIN VentaDetalle vd ON p.pId = vd.producto.pId " +
-            "GROUP BY p.pId, p.pNombre " +
-            "ORDER BY totalVendido DESC")
-    List<Object[]> findCantidadVendidaPorProducto();
+    // Búsqueda por nombre mientras se carga el índice en memoria (no ignora tildes)
+    @Query("SELECT p FROM Producto p WHERE LOWER(p.pNombre) LIKE LOWER(CONCAT('%', :texto, '%')) ORDER BY p.pId")
+    List<Producto> buscarPorNombre(@Param("texto") String texto, Pageable pagina);
+
+    // Bloquea los productos (SELECT ... FOR UPDATE) en orden de ID para repartir stock en lote
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Producto p WHERE p.pId IN :ids ORDER BY p.pId")
+    List<Producto> findAllByIdParaActualizar(@Param("ids") Collection<Integer> ids);
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package co.edu.tienda.domain.repositories;
+
+import co.edu.tienda.domain.entities.Producto;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface ProductoRepositoryCustom {
+
+    /**
+     * Descuenta stock con un UPDATE condicional por producto, enviados en un solo batch
+     * y en orden de ID (evita deadlocks entre ventas concurrentes).
+     * Devuelve los IDs cuyo stock no alcanzó (o que no existen); esos no se modifican.
+     */
+    List<Integer> descontarStock(Map<Integer, Integer> cantidadesPorProducto);
+
+    /**
+     * Fija el stock con un UPDATE de solo P_STOCK, saca el producto de la caché y recarga
+     * la entidad desde la BD. Hay que hacer flush antes si la entidad tiene otros cambios.
+     */
+    Producto fijarStock(Producto producto, int stock);
+
+    /**
+     * Saca los productos de la caché de segundo nivel ahora y otra vez al terminar la
+     * transacción. Hay que llamarlo después de cambiar P_STOCK por SQL directo, que
+     * Hibernate no ve.
+     */
+    void olvidarEnCache(Collection<Integer> ids);
+
+    /**
+     * Lee el producto de la BD sin pasar por la caché de segundo nivel (stock al día).
+     */
+    Optional<Producto> buscarSinCache(Integer id);
+}
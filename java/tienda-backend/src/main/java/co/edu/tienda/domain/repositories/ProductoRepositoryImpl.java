@@ -0,0 +1,77 @@
+package co.edu.tienda.domain.repositories;
+
+import co.edu.tienda.domain.entities.Producto;
+import jakarta.persistence.Cache;
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+
+public class ProductoRepositoryImpl implements ProductoRepositoryCustom {
+
+    private static final String DESCONTAR_STOCK =
+            "UPDATE PRODUCTO SET P_STOCK = P_STOCK - ? WHERE P_ID = ? AND P_STOCK >= ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Integer> descontarStock(Map<Integer, Integer> cantidadesPorProducto) {
+        List<Integer> ids = new ArrayList<>(new TreeMap<>(cantidadesPorProducto).keySet());
+        List<Object[]> parametros = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Integer cantidad = cantidadesPorProducto.get(id);
+            parametros.add(new Object[]{cantidad, id, cantidad});
+        }
+
+        int[] filas = jdbcTemplate.batchUpdate(DESCONTAR_STOCK, parametros);
+        olvidarEnCache(ids);
+
+        List<Integer> faltantes = new ArrayList<>();
+        for (int i = 0; i < filas.length; i++) {
+            if (filas[i] == 0) {
+                faltantes.add(ids.get(i));
+            }
+        }
+        return faltantes;
+    }
+
+    @Override
+    public Producto fijarStock(Producto producto, int stock) {
+        jdbcTemplate.update("UPDATE PRODUCTO SET P_STOCK = ? WHERE P_ID = ?", stock, producto.getPId());
+        olvidarEnCache(List.of(producto.getPId()));
+        entityManager.refresh(producto);
+        return producto;
+    }
+
+    @Override
+    public void olvidarEnCache(Collection<Integer> ids) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        List<Integer> copia = List.copyOf(ids);
+        copia.forEach(id -> cache.evict(Producto.class, id));
+
+        // Lo que otra transacción haya cargado antes del commit también sale
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    copia.forEach(id -> cache.evict(Producto.class, id));
+                }
+            });
+        }
+    }
+
+    @Override
+    public Optional<Producto> buscarSinCache(Integer id) {
+        return Optional.ofNullable(entityManager.find(Producto.class, id,
+                Map.of("jakarta.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS)));
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,4 +21,7 @@ public interface PuntoDeVentaRepository extends JpaRepository<PuntoDeVenta, Inte
     
     @Query("SELECT pv FROM PuntoDeVenta pv LEFT JOIN FETCH pv.ubicacion WHERE pv.ubicacion.uId = :uId")
     List<PuntoDeVenta> findByUbicacionId(@Param("uId") Integer uId);
+
+    @Query("SELECT pv.pvId FROM PuntoDeVenta pv WHERE pv.pvId IN :ids")
+    List<Integer> findIdsExistentes(@Param("ids") Collection<Integer> ids);
 }
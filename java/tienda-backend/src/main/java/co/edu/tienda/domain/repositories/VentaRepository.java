@@ -1,15 +1,18 @@
 package co.edu.tienda.domain.repositories;
 
 import co.edu.tienda.domain.entities.Venta;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface VentaRepository extends JpaRepository<Venta, Integer> {
+public interface VentaRepository extends JpaRepository<Venta, Integer>, VentaRepositoryCustom {
 
         // Buscar ventas por persona
         @Query("SELECT v FROM Venta v WHERE v.persona.pId = ?1")
@@ -26,6 +29,26 @@ public interface VentaRepository extends JpaRepository<Venta, Integer> {
                         "ORDER BY v.vFecha DESC")
         List<Venta> findVentasConDetallesPorPersona(@Param("personaId") Integer personaId);
 
+        // Cabeceras de las ventas de una persona (total y líneas ya están en VENTA)
+        @Query("SELECT v FROM Venta v " +
+                        "LEFT JOIN FETCH v.persona " +
+                        "LEFT JOIN FETCH v.puntoDeVenta pv " +
+                        "LEFT JOIN FETCH pv.ubicacion " +
+                        "WHERE v.persona.pId = :personaId " +
+                        "ORDER BY v.vFecha DESC")
+        List<Venta> findCabecerasPorPersona(@Param("personaId") Integer personaId);
+
+        // Una venta con sus relaciones cargadas: sin open-in-view los detalles no se
+        // pueden cargar después, al serializar la respuesta
+        @Query("SELECT v FROM Venta v " +
+                        "LEFT JOIN FETCH v.detalles d " +
+                        "LEFT JOIN FETCH d.producto " +
+                        "LEFT JOIN FETCH v.persona " +
+                        "LEFT JOIN FETCH v.puntoDeVenta pv " +
+                        "LEFT JOIN FETCH pv.ubicacion " +
+                        "WHERE v.vId = :id")
+        Optional<Venta> findConDetallesById(@Param("id") Integer id);
+
         // Todas las ventas con sus relaciones cargadas (INCLUYENDO DETALLES)
         @Query("SELECT DISTINCT v FROM Venta v " +
                         "LEFT JOIN FETCH v.detalles d " +
@@ -35,4 +58,49 @@ public interface VentaRepository extends JpaRepository<Venta, Integer> {
                         "LEFT JOIN FETCH pv.ubicacion " +
                         "ORDER BY v.vFecha DESC")
         List<Venta> findAllConDetalles();
-}
\ No newline at end of file
+
+        // Paginación por keyset sobre (V_FECHA, V_ID) descendente. Solo se traen las
+        // relaciones a-uno; los detalles se cargan aparte con cargarDetalles. El cursor
+        // se compara como fila, (V_FECHA, V_ID) < (?, ?), para que PostgreSQL entre por el
+        // índice en ese punto en lugar de filtrar las filas de las páginas anteriores
+        @Query("SELECT v FROM Venta v " +
+                        "LEFT JOIN FETCH v.persona " +
+                        "LEFT JOIN FETCH v.puntoDeVenta pv " +
+                        "LEFT JOIN FETCH pv.ubicacion " +
+                        "ORDER BY v.vFecha DESC, v.vId DESC")
+        List<Venta> findPrimeraPagina(Limit limit);
+
+        @Query("SELECT v FROM Venta v " +
+                        "LEFT JOIN FETCH v.persona " +
+                        "LEFT JOIN FETCH v.puntoDeVenta pv " +
+                        "LEFT JOIN FETCH pv.ubicacion " +
+                        "WHERE (v.vFecha, v.vId) < (:fecha, :id) " +
+                        "ORDER BY v.vFecha DESC, v.vId DESC")
+        List<Venta> findPaginaDespuesDe(@Param("fecha") LocalDateTime fecha, @Param("id") Integer id, Limit limit);
+
+        @Query("SELECT v FROM Venta v " +
+                        "LEFT JOIN FETCH v.persona " +
+                        "LEFT JOIN FETCH v.puntoDeVenta pv " +
+                        "LEFT JOIN FETCH pv.ubicacion " +
+                        "WHERE v.persona.pId = :personaId " +
+                        "ORDER BY v.vFecha DESC, v.vId DESC")
+        List<Venta> findPrimeraPaginaPorPersona(@Param("personaId") Integer personaId, Limit limit);
+
+        @Query("SELECT v FROM Venta v " +
+                        "LEFT JOIN FETCH v.persona " +
+                        "LEFT JOIN FETCH v.puntoDeVenta pv " +
+                        "LEFT JOIN FETCH pv.ubicacion " +
+                        "WHERE v.persona.pId = :personaId " +
+                        "AND (v.vFecha, v.vId) < (:fecha, :id) " +
+                        "ORDER BY v.vFecha DESC, v.vId DESC")
+        List<Venta> findPaginaPorPersonaDespuesDe(@Param("personaId") Integer personaId,
+                        @Param("fecha") LocalDateTime fecha, @Param("id") Integer id, Limit limit);
+
+        // Inicializa los detalles (con su producto) de las ventas de una página en una
+        // sola consulta; devuelve las mismas instancias ya cargadas
+        @Query("SELECT DISTINCT v FROM Venta v " +
+                        "LEFT JOIN FETCH v.detalles d " +
+                        "LEFT JOIN FETCH d.producto " +
+                        "WHERE v IN :ventas")
+        List<Venta> cargarDetalles(@Param("ventas") List<Venta> ventas);
+}
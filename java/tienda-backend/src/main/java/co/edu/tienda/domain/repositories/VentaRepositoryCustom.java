@@ -0,0 +1,24 @@
+package co.edu.tienda.domain.repositories;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+public interface VentaRepositoryCustom {
+
+    /**
+     * Una fila de la exportación: cabecera de la venta + una línea de detalle
+     * (los campos de la línea vienen en null si la venta no tiene detalles).
+     */
+    record LineaExportada(Integer ventaId, LocalDateTime fecha, Integer personaId, String cliente,
+                          Integer puntoVentaId, String puntoVenta, Integer productoId, String producto,
+                          Integer cantidad, BigDecimal precioUnitario) {}
+
+    /**
+     * Recorre las líneas de venta con fecha en [desde, hasta) ordenadas por
+     * (V_FECHA, V_ID), leyendo con un cursor del servidor de a {@code fetchSize} filas.
+     * Debe llamarse dentro de una transacción: sin ella PostgreSQL ignora el fetch
+     * size y trae el resultado completo a memoria. Límites null = sin límite.
+     */
+    void recorrerLineas(LocalDateTime desde, LocalDateTime hasta, int fetchSize, Consumer<LineaExportada> consumidor);
+}
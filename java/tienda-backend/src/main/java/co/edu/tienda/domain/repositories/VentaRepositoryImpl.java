@@ -0,0 +1,65 @@
+package co.edu.tienda.domain.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class VentaRepositoryImpl implements VentaRepositoryCustom {
+
+    private static final String LINEAS =
+            "SELECT v.V_ID, v.V_FECHA, v.P_ID, pe.P_NOMBRE, pe.P_APELLIDO, v.PV_ID, pv.PV_NOMBRE, " +
+            "d.P_ID AS PRODUCTO_ID, pr.P_NOMBRE AS PRODUCTO, d.VD_CANTIDAD, d.VD_PRECIO_UNITARIO " +
+            "FROM VENTA v " +
+            "JOIN PERSONA pe ON pe.P_ID = v.P_ID " +
+            "JOIN PUNTO_DE_VENTA pv ON pv.PV_ID = v.PV_ID " +
+            "LEFT JOIN VENTA_DETALLE d ON d.V_ID = v.V_ID " +
+            "LEFT JOIN PRODUCTO pr ON pr.P_ID = d.P_ID ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void recorrerLineas(LocalDateTime desde, LocalDateTime hasta, int fetchSize,
+                               Consumer<LineaExportada> consumidor) {
+        StringBuilder sql = new StringBuilder(LINEAS);
+        List<Object> parametros = new ArrayList<>();
+        if (desde != null) {
+            sql.append(parametros.isEmpty() ? "WHERE " : "AND ").append("v.V_FECHA >= ? ");
+            parametros.add(Timestamp.valueOf(desde));
+        }
+        if (hasta != null) {
+            sql.append(parametros.isEmpty() ? "WHERE " : "AND ").append("v.V_FECHA < ? ");
+            parametros.add(Timestamp.valueOf(hasta));
+        }
+        sql.append("ORDER BY v.V_FECHA, v.V_ID, d.VD_ID");
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < parametros.size(); i++) {
+                ps.setObject(i + 1, parametros.get(i));
+            }
+            return ps;
+        }, rs -> {
+            consumidor.accept(new LineaExportada(
+                    rs.getInt("V_ID"),
+                    rs.getTimestamp("V_FECHA").toLocalDateTime(),
+                    rs.getInt("P_ID"),
+                    rs.getString("P_NOMBRE") + " " + rs.getString("P_APELLIDO"),
+                    rs.getInt("PV_ID"),
+                    rs.getString("PV_NOMBRE"),
+                    rs.getObject("PRODUCTO_ID", Integer.class),
+                    rs.getString("PRODUCTO"),
+                    rs.getObject("VD_CANTIDAD", Integer.class),
+                    rs.getBigDecimal("VD_PRECIO_UNITARIO")));
+        });
+    }
+}
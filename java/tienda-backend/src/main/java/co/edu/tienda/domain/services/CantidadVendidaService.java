@@ -0,0 +1,23 @@
+package co.edu.tienda.domain.services;
+
+import java.util.List;
+import java.util.Map;
+
+public interface CantidadVendidaService {
+
+    /**
+     * Unidades e ingresos por producto, de la tabla resumen (no recorre VENTA_DETALLE).
+     */
+    List<Map<String, Object>> listar();
+
+    /**
+     * Vuelve a calcular la tabla resumen desde VENTA_DETALLE. Para cargas hechas por
+     * fuera de la aplicación o después de corregir datos a mano.
+     */
+    Map<String, Object> reconstruir();
+
+    /**
+     * Compara la tabla resumen con VENTA_DETALLE y devuelve los productos que no cuadran.
+     */
+    Map<String, Object> verificar();
+}
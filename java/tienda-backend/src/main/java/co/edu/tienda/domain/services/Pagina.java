@@ -0,0 +1,30 @@
+package co.edu.tienda.domain.services;
+
+import java.util.List;
+
+/**
+ * Una página de resultados y el cursor opaco para pedir la siguiente
+ * (null si no hay más).
+ */
+public class Pagina<T> {
+
+    private final List<T> contenido;
+    private final String siguienteCursor;
+
+    public Pagina(List<T> contenido, String siguienteCursor) {
+        this.contenido = contenido;
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    public List<T> getContenido() {
+        return contenido;
+    }
+
+    public String getSiguienteCursor() {
+        return siguienteCursor;
+    }
+
+    public boolean haySiguiente() {
+        return siguienteCursor != null;
+    }
+}
@@ -0,0 +1,21 @@
+package co.edu.tienda.domain.services;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+
+public interface PersonaImportService {
+
+    /**
+     * Registra las personas de un CSV (nombre, apellido, email, telefono; con o sin fila
+     * de cabecera) en una sola transacción. Las filas válidas se envían a PostgreSQL con
+     * COPY a medida que se leen; las que traen un email ya registrado, o repetido dentro
+     * del mismo archivo, se omiten. Devuelve los conteos y las primeras filas inválidas.
+     */
+    Map<String, Object> importar(Reader csv) throws IOException;
+
+    /**
+     * Conteos y duración de la última importación terminada.
+     */
+    Map<String, Object> ultimaImportacion();
+}
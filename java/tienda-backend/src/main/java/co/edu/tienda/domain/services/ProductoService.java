@@ -20,5 +20,16 @@ public interface ProductoService {
 
     List<Producto> buscarConStockBajo(Integer cantidadMinima);
 
+    /**
+     * Productos con palabras que empiezan con cada palabra de {@code texto}, en el nombre
+     * o la descripción, sin distinguir tildes ni mayúsculas.
+     */
+    List<Map<String, Object>> buscar(String texto, Integer limite);
+
     List<Map<String, Object>> obtenerCantidadVendidaPorProducto();
+
+    /**
+     * Productos más vendidos en la ventana ("5m", "1h" o "1d"), contados en memoria.
+     */
+    List<Map<String, Object>> obtenerTendencias(String ventana, Integer limite);
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package co.edu.tienda.domain.services;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public interface ReporteVentasService {
+
+    /**
+     * Ventas, unidades e ingresos por hora, día o mes en [desde, hasta), de un punto de
+     * venta ({@code pvId}), de todos los puntos de una ubicación ({@code uId}) o de toda
+     * la tienda si ambos son null. Sale de la tabla de acumulados, no de VENTA.
+     */
+    Map<String, Object> consultar(String granularidad, Integer pvId, Integer uId,
+                                  LocalDateTime desde, LocalDateTime hasta);
+
+    /**
+     * Vuelve a calcular los acumulados desde VENTA y VENTA_DETALLE.
+     */
+    Map<String, Object> reconstruir();
+}
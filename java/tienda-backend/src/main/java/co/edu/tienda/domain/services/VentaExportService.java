@@ -0,0 +1,21 @@
+package co.edu.tienda.domain.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public interface VentaExportService {
+
+    /**
+     * Escribe las ventas con fecha en [desde, hasta) en formato "ndjson" (una venta por
+     * línea, con sus detalles) o "csv" (una fila por línea de detalle). Las filas se
+     * escriben a medida que llegan de la BD, sin acumular el resultado en memoria.
+     */
+    void exportar(LocalDateTime desde, LocalDateTime hasta, String formato, OutputStream salida) throws IOException;
+
+    /**
+     * Filas, ventas, duración y filas por segundo de la última exportación terminada.
+     */
+    Map<String, Object> ultimaExportacion();
+}
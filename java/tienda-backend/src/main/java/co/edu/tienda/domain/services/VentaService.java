@@ -10,11 +10,25 @@ public interface VentaService {
 
     List<Venta> listarTodas();
 
+    /**
+     * Ventas de la más reciente a la más antigua, de a {@code limite} por página.
+     * {@code cursor} es el valor devuelto por la página anterior (null para la primera).
+     */
+    Pagina<Venta> listarPagina(String cursor, Integer limite);
+
     Optional<Venta> buscarPorId(Integer id);
 
     Venta crearVenta(Venta venta);
 
+    /**
+     * Crea un grupo de ventas en una sola transacción. Cada venta se acepta o rechaza
+     * por separado; el resultado trae una entrada por venta, en el mismo orden.
+     */
+    List<Map<String, Object>> crearVentasEnLote(List<Venta> ventas, int indiceInicial);
+
     List<Venta> buscarVentasPorPersona(Integer personaId);
 
+    Pagina<Venta> buscarVentasPorPersona(Integer personaId, String cursor, Integer limite);
+
     List<Map<String, Object>> obtenerVentasPorPersonaConDetalles(Integer personaId);
 }
\ No newline at end of file
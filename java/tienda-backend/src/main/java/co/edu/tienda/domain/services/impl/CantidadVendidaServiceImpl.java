@@ -0,0 +1,182 @@
+package co.edu.tienda.domain.services.impl;
+
+import co.edu.tienda.domain.entities.VentaDetalle;
+import co.edu.tienda.domain.events.VentaCreadaEvent;
+import co.edu.tienda.domain.services.CantidadVendidaService;
+import co.edu.tienda.domain.valores.Centavos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mantiene CANTIDAD_VENDIDA (unidades e ingresos por producto) en la misma transacción
+ * que inserta cada venta, por cualquiera de los caminos de creación.
+ *
+ * Cada producto tiene hasta {@code celdas} filas y cada transacción suma en una al azar:
+ * así las ventas concurrentes del mismo producto no esperan todas por el mismo bloqueo de
+ * fila. Leer el total es sumar esas pocas filas.
+ *
+ * Las ventas de una transacción (una venta, un chunk del lote o del journal) se suman en
+ * memoria y se escriben una sola vez antes del commit, un upsert por producto en orden
+ * de ID.
+ */
+@Service
+@Transactional
+public class CantidadVendidaServiceImpl implements CantidadVendidaService {
+
+    private static final Logger log = LoggerFactory.getLogger(CantidadVendidaServiceImpl.class);
+
+    private static final String SUMAR =
+            "INSERT INTO CANTIDAD_VENDIDA (P_ID, CV_CELDA, CV_UNIDADES, CV_INGRESOS) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (P_ID, CV_CELDA) DO UPDATE SET " +
+            "CV_UNIDADES = CANTIDAD_VENDIDA.CV_UNIDADES + EXCLUDED.CV_UNIDADES, " +
+            "CV_INGRESOS = CANTIDAD_VENDIDA.CV_INGRESOS + EXCLUDED.CV_INGRESOS";
+
+    private static final String DESDE_DETALLE =
+            "SELECT P_ID, SUM(VD_CANTIDAD) AS UNIDADES, SUM(VD_CANTIDAD * VD_PRECIO_UNITARIO) AS INGRESOS " +
+            "FROM VENTA_DETALLE GROUP BY P_ID";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${tienda.ventas.resumen.celdas:4}")
+    private int celdas;
+
+    @EventListener
+    public void alCrearVenta(VentaCreadaEvent event) {
+        Pendiente pendiente = (Pendiente) TransactionSynchronizationManager.getResource(this);
+        if (pendiente == null) {
+            pendiente = new Pendiente();
+            TransactionSynchronizationManager.bindResource(this, pendiente);
+            TransactionSynchronizationManager.registerSynchronization(pendiente);
+        }
+        for (VentaDetalle detalle : event.getVenta().getDetalles()) {
+            long[] suma = pendiente.porProducto.computeIfAbsent(detalle.getPId(), k -> new long[2]);
+            suma[0] += detalle.getVdCantidad();
+            suma[1] = Centavos.sumar(suma[1], detalle.getSubtotalCentavos());
+        }
+    }
+
+    /**
+     * Lo que suman las ventas de la transacción en curso. Queda ligado a la transacción:
+     * si se suspende (REQUIRES_NEW) se desliga, para que la interna no sume en él.
+     */
+    private final class Pendiente implements TransactionSynchronization {
+
+        private final int celda = celdas > 1 ? ThreadLocalRandom.current().nextInt(celdas) : 0;
+
+        // Por producto: {unidades, ingresos en centavos}, en orden de ID
+        private final Map<Integer, long[]> porProducto = new TreeMap<>();
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(CantidadVendidaServiceImpl.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(CantidadVendidaServiceImpl.this, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // En orden de ID y en una sola celda: dos transacciones que tocan los mismos
+            // productos los bloquean en el mismo orden
+            List<Object[]> filas = new ArrayList<>(porProducto.size());
+            porProducto.forEach((id, suma) -> filas.add(new Object[]{id, celda, suma[0], Centavos.aDecimal(suma[1])}));
+            jdbcTemplate.batchUpdate(SUMAR, filas);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CantidadVendidaServiceImpl.this);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> listar() {
+        return jdbcTemplate.query(
+                "SELECT p.P_ID, p.P_NOMBRE, COALESCE(SUM(cv.CV_UNIDADES), 0) AS UNIDADES, " +
+                "COALESCE(SUM(cv.CV_INGRESOS), 0) AS INGRESOS " +
+                "FROM PRODUCTO p LEFT JOIN CANTIDAD_VENDIDA cv ON cv.P_ID = p.P_ID " +
+                "GROUP BY p.P_ID, p.P_NOMBRE " +
+                "ORDER BY UNIDADES DESC", (rs, i) -> {
+                    Map<String, Object> item = new HashMap<>();
+                    item.put("productoId", rs.getInt("P_ID"));
+                    item.put("nombreProducto", rs.getString("P_NOMBRE"));
+                    item.put("cantidadVendida", rs.getLong("UNIDADES"));
+                    item.put("ingresos", rs.getBigDecimal("INGRESOS"));
+                    return item;
+                });
+    }
+
+    @Override
+    public Map<String, Object> reconstruir() {
+        long inicio = System.nanoTime();
+        // Las ventas que escriben en la tabla esperan a que termine la reconstrucción
+        jdbcTemplate.execute("LOCK TABLE CANTIDAD_VENDIDA IN EXCLUSIVE MODE");
+        jdbcTemplate.update("DELETE FROM CANTIDAD_VENDIDA");
+        int productos = jdbcTemplate.update(
+                "INSERT INTO CANTIDAD_VENDIDA (P_ID, CV_CELDA, CV_UNIDADES, CV_INGRESOS) " +
+                "SELECT P_ID, 0, UNIDADES, INGRESOS FROM (" + DESDE_DETALLE + ") d");
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+        log.info("CANTIDAD_VENDIDA reconstruida: {} productos en {} ms", productos, ms);
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("productos", productos);
+        resultado.put("duracionMs", ms);
+        return resultado;
+    }
+
+    @Override
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public Map<String, Object> verificar() {
+        // Una sola instantánea para las dos consultas
+        // Por producto: {unidades, ingresos en centavos}
+        Map<Integer, long[]> resumen = new HashMap<>();
+        jdbcTemplate.query("SELECT P_ID, SUM(CV_UNIDADES) AS UNIDADES, SUM(CV_INGRESOS) AS INGRESOS " +
+                "FROM CANTIDAD_VENDIDA GROUP BY P_ID", rs -> {
+            resumen.put(rs.getInt("P_ID"), new long[]{rs.getLong("UNIDADES"), Centavos.de(rs.getBigDecimal("INGRESOS"))});
+        });
+        Map<Integer, long[]> detalle = new HashMap<>();
+        jdbcTemplate.query(DESDE_DETALLE, rs -> {
+            detalle.put(rs.getInt("P_ID"), new long[]{rs.getLong("UNIDADES"), Centavos.de(rs.getBigDecimal("INGRESOS"))});
+        });
+
+        long[] cero = {0L, 0L};
+        Set<Integer> ids = new TreeSet<>(resumen.keySet());
+        ids.addAll(detalle.keySet());
+        List<Map<String, Object>> diferencias = new ArrayList<>();
+        for (Integer id : ids) {
+            long[] r = resumen.getOrDefault(id, cero);
+            long[] d = detalle.getOrDefault(id, cero);
+            if (r[0] != d[0] || r[1] != d[1]) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("productoId", id);
+                item.put("unidadesResumen", r[0]);
+                item.put("unidadesDetalle", d[0]);
+                item.put("ingresosResumen", Centavos.aDecimal(r[1]));
+                item.put("ingresosDetalle", Centavos.aDecimal(d[1]));
+                diferencias.add(item);
+            }
+        }
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("productosRevisados", ids.size());
+        resultado.put("consistente", diferencias.isEmpty());
+        resultado.put("diferencias", diferencias);
+        return resultado;
+    }
+}
@@ -0,0 +1,304 @@
+package co.edu.tienda.domain.services.impl;
+
+import co.edu.tienda.domain.services.PersonaImportService;
+import co.edu.tienda.infrastructure.personas.FiltroEmails;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+@Service
+public class PersonaImportServiceImpl implements PersonaImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(PersonaImportServiceImpl.class);
+
+    private static final List<String> COLUMNAS = List.of("nombre", "apellido", "email", "telefono");
+    private static final int[] LARGO_MAXIMO = {100, 100, 150, 20};
+
+    // Se borra sola al terminar la transacción
+    private static final String CREAR_TABLA_TEMPORAL =
+            "CREATE TEMP TABLE persona_importacion (linea INTEGER NOT NULL, nombre VARCHAR(100) NOT NULL, " +
+            "apellido VARCHAR(100) NOT NULL, email VARCHAR(150) NOT NULL, telefono VARCHAR(20)) ON COMMIT DROP";
+    private static final String COPY =
+            "COPY persona_importacion (linea, nombre, apellido, email, telefono) FROM STDIN WITH (FORMAT csv)";
+    // La primera aparición de cada email (normalizado) que no esté ya registrado, en el orden del archivo
+    private static final String INSERTAR =
+            "INSERT INTO PERSONA (P_NOMBRE, P_APELLIDO, P_EMAIL, P_TELEFONO) " +
+            "SELECT nombre, apellido, email, telefono FROM (" +
+            "  SELECT DISTINCT ON (LOWER(email)) linea, nombre, apellido, email, telefono " +
+            "  FROM persona_importacion ORDER BY LOWER(email), linea) i " +
+            "WHERE NOT EXISTS (SELECT 1 FROM PERSONA p WHERE LOWER(TRIM(p.P_EMAIL)) = LOWER(i.email)) " +
+            "ORDER BY linea " +
+            "ON CONFLICT DO NOTHING";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FiltroEmails filtroEmails;
+
+    @Value("${tienda.personas.importacion.max-errores:100}")
+    private int maxErrores;
+
+    private volatile Map<String, Object> ultima = Map.of();
+
+    @Override
+    @Transactional
+    public Map<String, Object> importar(Reader csv) throws IOException {
+        long inicio = System.nanoTime();
+        LectorCsv lector = new LectorCsv(csv);
+        Conteo conteo = new Conteo();
+
+        try {
+            jdbcTemplate.execute((Connection conexion) -> {
+                try (Statement st = conexion.createStatement()) {
+                    st.execute(CREAR_TABLA_TEMPORAL);
+                }
+                copiar(conexion, lector, conteo);
+                try (Statement st = conexion.createStatement()) {
+                    conteo.insertadas = st.executeUpdate(INSERTAR);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // Estén o no recién insertados, ya son emails registrados
+        filtroEmails.agregarAlConfirmar(conteo.hashes, conteo.validas);
+
+        long ms = Math.max(1, (System.nanoTime() - inicio) / 1_000_000);
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("leidas", conteo.leidas);
+        resumen.put("validas", conteo.validas);
+        resumen.put("invalidas", conteo.leidas - conteo.validas);
+        resumen.put("insertadas", conteo.insertadas);
+        resumen.put("omitidas", conteo.validas - conteo.insertadas);
+        resumen.put("duracionMs", ms);
+        resumen.put("filasPorSegundo", conteo.leidas * 1000L / ms);
+        ultima = new LinkedHashMap<>(resumen);
+        resumen.put("errores", conteo.errores);
+        log.info("Importación de personas: {} filas leídas, {} insertadas en {} ms",
+                conteo.leidas, conteo.insertadas, ms);
+        return resumen;
+    }
+
+    @Override
+    public Map<String, Object> ultimaImportacion() {
+        return ultima;
+    }
+
+    private static class Conteo {
+        int leidas;
+        int validas;
+        int insertadas;
+        long[] hashes = new long[1024];
+        final List<Map<String, Object>> errores = new ArrayList<>();
+    }
+
+    // Valida cada fila y la pasa a COPY en bloques, sin tener el archivo en memoria
+    private void copiar(Connection conexion, LectorCsv lector, Conteo conteo) throws SQLException {
+        CopyIn copia = conexion.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY);
+        try {
+            StringBuilder bloque = new StringBuilder(64 * 1024);
+            int[] posiciones = {0, 1, 2, 3};
+            List<String> fila = lector.siguiente();
+            if (fila != null && esCabecera(fila)) {
+                posiciones = posiciones(fila);
+                fila = lector.siguiente();
+            }
+            while (fila != null) {
+                conteo.leidas++;
+                String[] valores = new String[COLUMNAS.size()];
+                String error = validar(fila, posiciones, valores);
+                if (error != null) {
+                    if (conteo.errores.size() < maxErrores) {
+                        conteo.errores.add(Map.of("linea", lector.linea(), "error", error));
+                    }
+                } else {
+                    if (conteo.validas == conteo.hashes.length) {
+                        conteo.hashes = Arrays.copyOf(conteo.hashes, conteo.validas * 2);
+                    }
+                    conteo.hashes[conteo.validas++] = FiltroEmails.hash(valores[2]);
+                    bloque.append(lector.linea());
+                    for (String valor : valores) {
+                        bloque.append(',');
+                        if (valor != null) {
+                            bloque.append('"').append(valor.replace("\"", "\"\"")).append('"');
+                        }
+                    }
+                    bloque.append('\n');
+                    if (bloque.length() >= 60 * 1024) {
+                        enviar(copia, bloque);
+                    }
+                }
+                fila = lector.siguiente();
+            }
+            enviar(copia, bloque);
+            copia.endCopy();
+        } finally {
+            if (copia.isActive()) {
+                copia.cancelCopy();
+            }
+        }
+    }
+
+    private static void enviar(CopyIn copia, StringBuilder bloque) throws SQLException {
+        if (bloque.length() > 0) {
+            byte[] bytes = bloque.toString().getBytes(StandardCharsets.UTF_8);
+            copia.writeToCopy(bytes, 0, bytes.length);
+            bloque.setLength(0);
+        }
+    }
+
+    private static boolean esCabecera(List<String> fila) {
+        for (String campo : fila) {
+            if (columna(campo) == 2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Posición de cada columna (nombre, apellido, email, telefono) según la cabecera; -1 si falta
+    private static int[] posiciones(List<String> cabecera) {
+        int[] posiciones = {-1, -1, -1, -1};
+        for (int i = 0; i < cabecera.size(); i++) {
+            int columna = columna(cabecera.get(i));
+            if (columna >= 0 && posiciones[columna] < 0) {
+                posiciones[columna] = i;
+            }
+        }
+        return posiciones;
+    }
+
+    private static int columna(String campo) {
+        String nombre = campo.trim().toLowerCase(Locale.ROOT);
+        if (nombre.startsWith("p_")) {
+            nombre = nombre.substring(2);
+        }
+        return COLUMNAS.indexOf(nombre);
+    }
+
+    // Llena "valores" (sin espacios alrededor; teléfono vacío = null) o devuelve el error
+    private static String validar(List<String> fila, int[] posiciones, String[] valores) {
+        for (int c = 0; c < valores.length; c++) {
+            String valor = posiciones[c] >= 0 && posiciones[c] < fila.size() ? fila.get(posiciones[c]).trim() : "";
+            if (valor.isEmpty()) {
+                if (c < 3) {
+                    return "El " + COLUMNAS.get(c) + " es obligatorio";
+                }
+                valor = null;
+            } else if (valor.length() > LARGO_MAXIMO[c]) {
+                return "El " + COLUMNAS.get(c) + " supera " + LARGO_MAXIMO[c] + " caracteres";
+            }
+            valores[c] = valor;
+        }
+        return null;
+    }
+
+    /**
+     * Lector de CSV (RFC 4180): campos entre comillas con comas, comillas dobles y saltos
+     * de línea. Lee registro por registro.
+     */
+    private static class LectorCsv {
+        private final Reader reader;
+        private int linea;
+        private int lineaSiguiente = 1;
+        private int pendiente = -2;
+
+        LectorCsv(Reader reader) {
+            this.reader = new BufferedReader(reader, 64 * 1024);
+        }
+
+        // Línea del archivo donde empieza el último registro leído
+        int linea() {
+            return linea;
+        }
+
+        private int leer() {
+            try {
+                if (pendiente != -2) {
+                    int c = pendiente;
+                    pendiente = -2;
+                    return c;
+                }
+                return reader.read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        List<String> siguiente() {
+            int c = leer();
+            // Líneas vacías entre registros
+            while (c == '\r' || c == '\n') {
+                if (c == '\n') {
+                    lineaSiguiente++;
+                }
+                c = leer();
+            }
+            if (c == -1) {
+                return null;
+            }
+            linea = lineaSiguiente;
+            List<String> campos = new ArrayList<>();
+            StringBuilder campo = new StringBuilder();
+            boolean entreComillas = false;
+            while (true) {
+                if (entreComillas) {
+                    if (c == -1) {
+                        break;
+                    }
+                    if (c == '"') {
+                        int siguiente = leer();
+                        if (siguiente == '"') {
+                            campo.append('"');
+                        } else {
+                            entreComillas = false;
+                            c = siguiente;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            lineaSiguiente++;
+                        }
+                        campo.append((char) c);
+                    }
+                } else if (c == '"' && campo.length() == 0) {
+                    entreComillas = true;
+                } else if (c == ',') {
+                    campos.add(campo.toString());
+                    campo.setLength(0);
+                } else if (c == '\n' || c == '\r' || c == -1) {
+                    if (c == '\r') {
+                        int siguiente = leer();
+                        if (siguiente != '\n') {
+                            pendiente = siguiente;
+                        }
+                    }
+                    if (c != -1) {
+                        lineaSiguiente++;
+                    }
+                    break;
+                } else {
+                    campo.append((char) c);
+                }
+                c = leer();
+            }
+            campos.add(campo.toString());
+            return campos;
+        }
+    }
+}
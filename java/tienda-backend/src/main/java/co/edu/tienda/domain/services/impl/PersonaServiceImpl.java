@@ -3,7 +3,10 @@ package co.edu.tienda.domain.services.impl;
 import co.edu.tienda.domain.entities.Persona;
 import co.edu.tienda.domain.repositories.PersonaRepository;
 import co.edu.tienda.domain.services.PersonaService;
+import co.edu.tienda.infrastructure.historial.HistorialVentasPersona;
+import co.edu.tienda.infrastructure.personas.FiltroEmails;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,6 +20,12 @@ public class PersonaServiceImpl implements PersonaService {
     @Autowired
     private PersonaRepository personaRepository;
 
+    @Autowired
+    private HistorialVentasPersona historialVentasPersona;
+
+    @Autowired
+    private FiltroEmails filtroEmails;
+
     @Override
     @Transactional(readOnly = true)
     public List<Persona> listarTodas() {
@@ -42,13 +51,24 @@ public class PersonaServiceImpl implements PersonaService {
             throw new RuntimeException("El email es obligatorio");
         }
 
-        // Validación de email único
-        Optional<Persona> existente = personaRepository.findByEmail(persona.getPEmail());
-        if (existente.isPresent()) {
+        persona.setPEmail(persona.getPEmail().trim());
+        validarEmailNuevo(persona.getPEmail());
+        try {
+            Persona guardada = personaRepository.save(persona);
+            filtroEmails.agregarAlConfirmar(guardada.getPEmail());
+            return guardada;
+        } catch (DataIntegrityViolationException e) {
+            // Otro registro con el mismo email se confirmó entre la verificación y el INSERT
             throw new RuntimeException("El email ya está registrado: " + persona.getPEmail());
         }
+    }
 
-        return personaRepository.save(persona);
+    // Validación de email único: el filtro evita la consulta cuando el email seguro es nuevo
+    private void validarEmailNuevo(String email) {
+        if (filtroEmails.puedeExistir(email)
+                && personaRepository.existsByEmailNormalizado(FiltroEmails.normalizar(email))) {
+            throw new RuntimeException("El email ya está registrado: " + email);
+        }
     }
 
     @Override
@@ -64,19 +84,28 @@ public class PersonaServiceImpl implements PersonaService {
         }
         if (persona.getPEmail() != null && !persona.getPEmail().trim().isEmpty()) {
             // verificar correo único si cambia
-            if (!personaExistente.getPEmail().equals(persona.getPEmail())) {
-                Optional<Persona> existe = personaRepository.findByEmail(persona.getPEmail());
-                if (existe.isPresent()) {
-                    throw new RuntimeException("El email ya está registrado: " + persona.getPEmail());
-                }
-                personaExistente.setPEmail(persona.getPEmail());
+            String email = persona.getPEmail().trim();
+            if (!FiltroEmails.normalizar(personaExistente.getPEmail()).equals(FiltroEmails.normalizar(email))) {
+                validarEmailNuevo(email);
+                filtroEmails.agregarAlConfirmar(email);
             }
+            personaExistente.setPEmail(email);
         }
         if (persona.getPTelefono() != null) {
             personaExistente.setPTelefono(persona.getPTelefono());
         }
 
-        return personaRepository.save(personaExistente);
+        Persona actualizada;
+        try {
+            // El UPDATE sale aquí y no al commit, para atrapar el email duplicado
+            actualizada = personaRepository.saveAndFlush(personaExistente);
+        } catch (DataIntegrityViolationException e) {
+            // Otro registro con el mismo email se confirmó entre la verificación y el UPDATE
+            throw new RuntimeException("El email ya está registrado: " + personaExistente.getPEmail());
+        }
+        // Los resúmenes de sus ventas llevan nombre y email
+        historialVentasPersona.olvidar(id);
+        return actualizada;
     }
 
     @Override
@@ -85,6 +114,7 @@ public class PersonaServiceImpl implements PersonaService {
             throw new RuntimeException("Persona no encontrada con ID: " + id);
         }
         personaRepository.deleteById(id);
+        historialVentasPersona.olvidar(id);
     }
 
     @Override
@@ -1,10 +1,18 @@
 package co.edu.tienda.domain.services.impl;
 
 import co.edu.tienda.domain.entities.Producto;
+import co.edu.tienda.domain.events.ProductoCambiadoEvent;
 import co.edu.tienda.domain.repositories.ProductoRepository;
+import co.edu.tienda.domain.services.CantidadVendidaService;
 import co.edu.tienda.domain.services.ProductoService;
+import co.edu.tienda.infrastructure.busqueda.IndiceBusquedaProductos;
+import co.edu.tienda.infrastructure.inventario.IndiceStockBajo;
+import co.edu.tienda.infrastructure.tendencias.TendenciasProductos;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
@@ -14,9 +22,26 @@ import java.util.*;
 @Transactional
 public class ProductoServiceImpl implements ProductoService {
 
+    private static final int BLOQUE_IDS = 1000;
+
     @Autowired
     private ProductoRepository productoRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CantidadVendidaService cantidadVendidaService;
+
+    @Autowired
+    private TendenciasProductos tendenciasProductos;
+
+    @Autowired
+    private IndiceStockBajo indiceStockBajo;
+
+    @Autowired
+    private IndiceBusquedaProductos indiceBusquedaProductos;
+
     @Override
     @Transactional(readOnly = true)
     public List<Producto> listarTodos() {
@@ -48,7 +73,9 @@ public class ProductoServiceImpl implements ProductoService {
             throw new RuntimeException("El stock no puede ser negativo");
         }
 
-        return productoRepository.save(producto);
+        Producto guardado = productoRepository.save(producto);
+        eventPublisher.publishEvent(new ProductoCambiadoEvent(guardado.getPId(), guardado));
+        return guardado;
     }
 
     @Override
@@ -68,14 +95,18 @@ public class ProductoServiceImpl implements ProductoService {
             }
             productoExistente.setPPrecio(producto.getPPrecio());
         }
-        if (producto.getPStock() != null) {
-            if (producto.getPStock() < 0) {
-                throw new RuntimeException("El stock no puede ser negativo");
-            }
-            productoExistente.setPStock(producto.getPStock());
+        if (producto.getPStock() != null && producto.getPStock() < 0) {
+            throw new RuntimeException("El stock no puede ser negativo");
         }
 
-        return productoRepository.save(productoExistente);
+        Producto actualizado = productoRepository.saveAndFlush(productoExistente);
+        // El stock no pasa por la entidad (puede venir de la caché con un stock viejo): un
+        // UPDATE aparte no pisa los descuentos de las ventas confirmadas mientras tanto
+        if (producto.getPStock() != null) {
+            actualizado = productoRepository.fijarStock(actualizado, producto.getPStock());
+        }
+        eventPublisher.publishEvent(new ProductoCambiadoEvent(actualizado.getPId(), actualizado));
+        return actualizado;
     }
 
     @Override
@@ -84,28 +115,103 @@ public class ProductoServiceImpl implements ProductoService {
             throw new RuntimeException("Producto no encontrado con ID: " + id);
         }
         productoRepository.deleteById(id);
+        eventPublisher.publishEvent(new ProductoCambiadoEvent(id, null));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<Producto> buscarConStockBajo(Integer cantidadMinima) {
-        return productoRepository.findByPStockLessThan(cantidadMinima);
+        if (!indiceStockBajo.isCargado()) {
+            return productoRepository.findByPStockLessThan(cantidadMinima);
+        }
+
+        // IDs desde el índice en memoria (de menor a mayor stock); solo esos se leen
+        List<Integer> ids = indiceStockBajo.productosBajo(cantidadMinima);
+        // Por bloques: con un umbral alto la lista puede pasar el límite de 32767 parámetros de PostgreSQL
+        Map<Integer, Producto> porId = new HashMap<>();
+        for (int desde = 0; desde < ids.size(); desde += BLOQUE_IDS) {
+            List<Integer> bloque = ids.subList(desde, Math.min(desde + BLOQUE_IDS, ids.size()));
+            for (Producto producto : productoRepository.findAllById(bloque)) {
+                porId.put(producto.getPId(), producto);
+            }
+        }
+        List<Producto> productos = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Producto producto = porId.get(id);
+            if (producto != null) {
+                productos.add(producto);
+            }
+        }
+        return productos;
+    }
+
+    @Override
+    // Sin transacción propia: con el índice cargado no hace falta tomar una conexión
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<Map<String, Object>> buscar(String texto, Integer limite) {
+        int n = limite == null ? 10 : Math.max(1, Math.min(limite, IndiceBusquedaProductos.LIMITE_MAXIMO));
+        if (texto == null || texto.isBlank()) {
+            return new ArrayList<>();
+        }
+        if (!indiceBusquedaProductos.isCargado()) {
+            List<Map<String, Object>> resultado = new ArrayList<>();
+            for (Producto producto : productoRepository.buscarPorNombre(texto.trim(), PageRequest.of(0, n))) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("id", producto.getPId());
+                item.put("nombre", producto.getPNombre());
+                item.put("precio", producto.getPPrecio());
+                item.put("stock", producto.getPStock());
+                resultado.add(item);
+            }
+            return resultado;
+        }
+
+        // Nombre y precio salen del índice; el stock, del índice de stock si está cargado
+        List<Map<String, Object>> resultado = indiceBusquedaProductos.buscar(texto, n);
+        List<Integer> sinStock = new ArrayList<>();
+        for (Map<String, Object> item : resultado) {
+            Integer stock = indiceStockBajo.stock((Integer) item.get("id"));
+            item.put("stock", stock);
+            if (stock == null) {
+                sinStock.add((Integer) item.get("id"));
+            }
+        }
+        if (!sinStock.isEmpty()) {
+            Map<Integer, Integer> stocks = new HashMap<>();
+            for (Producto producto : productoRepository.findAllById(sinStock)) {
+                stocks.put(producto.getPId(), producto.getPStock());
+            }
+            for (Map<String, Object> item : resultado) {
+                if (item.get("stock") == null) {
+                    item.put("stock", stocks.get((Integer) item.get("id")));
+                }
+            }
+        }
+        return resultado;
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<Map<String, Object>> obtenerCantidadVendidaPorProducto() {
-        List<Object[]> resultados = productoRepository.findCantidadVendidaPorProducto();
-        List<Map<String, Object>> respuesta = new ArrayList<>();
+        // Sale de la tabla resumen que se actualiza con cada venta
+        return cantidadVendidaService.listar();
+    }
 
-        for (Object[] fila : resultados) {
-            Map<String, Object> item = new HashMap<>();
-            item.put("productoId", fila[0]);
-            item.put("nombreProducto", fila[1]);
-            item.put("cantidadVendida", fila[2]);
-            respuesta.add(item);
-        }
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> obtenerTendencias(String ventana, Integer limite) {
+        int n = limite == null ? 10 : Math.max(1, Math.min(limite, tendenciasProductos.getCapacidad()));
+        List<Map<String, Object>> top = tendenciasProductos.top(ventana, n);
 
-        return respuesta;
+        // Nombres desde la caché de segundo nivel
+        List<Integer> ids = top.stream().map(item -> (Integer) item.get("productoId")).toList();
+        Map<Integer, String> nombres = new HashMap<>();
+        for (Producto producto : productoRepository.findAllById(ids)) {
+            nombres.put(producto.getPId(), producto.getPNombre());
+        }
+        for (Map<String, Object> item : top) {
+            item.put("nombreProducto", nombres.get((Integer) item.get("productoId")));
+        }
+        return top;
     }
 }
\ No newline at end of file
@@ -30,7 +30,8 @@ public class PuntoDeVentaServiceImpl implements PuntoDeVentaService {
     @Override
     @Transactional(readOnly = true)
     public Optional<PuntoDeVenta> buscarPorId(Integer id) {
-        return puntoDeVentaRepository.findByIdWithUbicacion(id);
+        // findById pasa por la caché de segundo nivel (la ubicación es EAGER y también está en caché)
+        return puntoDeVentaRepository.findById(id);
     }
 
     @Override
@@ -0,0 +1,225 @@
+package co.edu.tienda.domain.services.impl;
+
+import co.edu.tienda.domain.entities.Venta;
+import co.edu.tienda.domain.entities.VentaDetalle;
+import co.edu.tienda.domain.events.VentaCreadaEvent;
+import co.edu.tienda.domain.services.ReporteVentasService;
+import co.edu.tienda.domain.valores.Centavos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Acumulados de ventas por punto de venta en intervalos de una hora, un día y un mes
+ * (VENTA_ACUMULADO). Cada venta suma en sus tres intervalos dentro de la misma
+ * transacción que la inserta; un reporte lee a lo sumo un registro por intervalo y
+ * celda, sin importar cuántas ventas haya.
+ *
+ * Como en CANTIDAD_VENDIDA, cada intervalo se reparte en {@code celdas} filas para que
+ * las ventas concurrentes de un mismo punto no esperen por el mismo bloqueo, y las
+ * ventas de una transacción se suman en memoria y se escriben una sola vez antes del
+ * commit, en orden de clave.
+ */
+@Service
+@Transactional
+public class ReporteVentasServiceImpl implements ReporteVentasService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReporteVentasServiceImpl.class);
+
+    private static final List<String> GRANULARIDADES = List.of("hora", "dia", "mes");
+
+    private static final String SUMAR =
+            "INSERT INTO VENTA_ACUMULADO (VA_GRANULARIDAD, PV_ID, VA_INICIO, VA_CELDA, VA_VENTAS, VA_UNIDADES, VA_INGRESOS) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (VA_GRANULARIDAD, PV_ID, VA_INICIO, VA_CELDA) DO UPDATE SET " +
+            "VA_VENTAS = VENTA_ACUMULADO.VA_VENTAS + EXCLUDED.VA_VENTAS, " +
+            "VA_UNIDADES = VENTA_ACUMULADO.VA_UNIDADES + EXCLUDED.VA_UNIDADES, " +
+            "VA_INGRESOS = VENTA_ACUMULADO.VA_INGRESOS + EXCLUDED.VA_INGRESOS";
+
+    // El mismo orden que la clave primaria de VENTA_ACUMULADO
+    private static final Comparator<Intervalo> ORDEN = Comparator.comparing(Intervalo::granularidad)
+            .thenComparing(Intervalo::pvId)
+            .thenComparing(Intervalo::inicio);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${tienda.ventas.resumen.celdas:4}")
+    private int celdas;
+
+    @EventListener
+    public void alCrearVenta(VentaCreadaEvent event) {
+        Venta venta = event.getVenta();
+        LocalDateTime fecha = venta.getVFecha() != null ? venta.getVFecha() : LocalDateTime.now();
+        long unidades = 0;
+        long centavos = 0;
+        for (VentaDetalle detalle : venta.getDetalles()) {
+            unidades += detalle.getVdCantidad();
+            centavos = Centavos.sumar(centavos, detalle.getSubtotalCentavos());
+        }
+
+        Pendiente pendiente = (Pendiente) TransactionSynchronizationManager.getResource(this);
+        if (pendiente == null) {
+            pendiente = new Pendiente();
+            TransactionSynchronizationManager.bindResource(this, pendiente);
+            TransactionSynchronizationManager.registerSynchronization(pendiente);
+        }
+        for (String granularidad : GRANULARIDADES) {
+            Intervalo intervalo = new Intervalo(granularidad, venta.getPvId(), inicioIntervalo(fecha, granularidad));
+            long[] suma = pendiente.porIntervalo.computeIfAbsent(intervalo, k -> new long[3]);
+            suma[0]++;
+            suma[1] += unidades;
+            suma[2] = Centavos.sumar(suma[2], centavos);
+        }
+    }
+
+    private record Intervalo(String granularidad, Integer pvId, LocalDateTime inicio) {
+    }
+
+    /**
+     * Lo que suman las ventas de la transacción en curso; se desliga de ella si se suspende
+     * (REQUIRES_NEW), como en CANTIDAD_VENDIDA.
+     */
+    private final class Pendiente implements TransactionSynchronization {
+
+        private final int celda = celdas > 1 ? ThreadLocalRandom.current().nextInt(celdas) : 0;
+
+        // Por intervalo: {ventas, unidades, ingresos en centavos}
+        private final Map<Intervalo, long[]> porIntervalo = new TreeMap<>(ORDEN);
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(ReporteVentasServiceImpl.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(ReporteVentasServiceImpl.this, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // En orden de clave y en una sola celda, para no cruzar bloqueos con otra transacción
+            List<Object[]> filas = new ArrayList<>(porIntervalo.size());
+            porIntervalo.forEach((intervalo, suma) -> filas.add(new Object[]{intervalo.granularidad(),
+                    intervalo.pvId(), Timestamp.valueOf(intervalo.inicio()), celda, suma[0], suma[1],
+                    Centavos.aDecimal(suma[2])}));
+            jdbcTemplate.batchUpdate(SUMAR, filas);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ReporteVentasServiceImpl.this);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> consultar(String granularidad, Integer pvId, Integer uId,
+                                         LocalDateTime desde, LocalDateTime hasta) {
+        if (!GRANULARIDADES.contains(granularidad)) {
+            throw new RuntimeException("Granularidad no soportada: " + granularidad + " (hora, dia o mes)");
+        }
+        if (pvId != null && uId != null) {
+            throw new RuntimeException("Indique pvId o uId, no ambos");
+        }
+        if (hasta == null) {
+            hasta = LocalDateTime.now().withNano(0);
+        }
+        if (desde == null) {
+            desde = switch (granularidad) {
+                case "hora" -> hasta.minusDays(2);
+                case "dia" -> hasta.minusDays(31);
+                default -> hasta.minusMonths(12);
+            };
+        }
+        desde = inicioIntervalo(desde, granularidad);
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT a.VA_INICIO, SUM(a.VA_VENTAS) AS VENTAS, SUM(a.VA_UNIDADES) AS UNIDADES, " +
+                "SUM(a.VA_INGRESOS) AS INGRESOS FROM VENTA_ACUMULADO a ");
+        List<Object> parametros = new ArrayList<>();
+        if (uId != null) {
+            sql.append("JOIN PUNTO_DE_VENTA pv ON pv.PV_ID = a.PV_ID AND pv.U_ID = ? ");
+            parametros.add(uId);
+        }
+        sql.append("WHERE a.VA_GRANULARIDAD = ? AND a.VA_INICIO >= ? AND a.VA_INICIO < ? ");
+        parametros.add(granularidad);
+        parametros.add(Timestamp.valueOf(desde));
+        parametros.add(Timestamp.valueOf(hasta));
+        if (pvId != null) {
+            sql.append("AND a.PV_ID = ? ");
+            parametros.add(pvId);
+        }
+        sql.append("GROUP BY a.VA_INICIO ORDER BY a.VA_INICIO");
+
+        List<Map<String, Object>> intervalos = jdbcTemplate.query(sql.toString(), (rs, i) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("inicio", rs.getTimestamp("VA_INICIO").toLocalDateTime());
+            item.put("ventas", rs.getLong("VENTAS"));
+            item.put("unidades", rs.getLong("UNIDADES"));
+            item.put("ingresos", rs.getBigDecimal("INGRESOS"));
+            return item;
+        }, parametros.toArray());
+
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("granularidad", granularidad);
+        respuesta.put("pvId", pvId);
+        respuesta.put("uId", uId);
+        respuesta.put("desde", desde);
+        respuesta.put("hasta", hasta);
+        respuesta.put("intervalos", intervalos);
+        return respuesta;
+    }
+
+    @Override
+    public Map<String, Object> reconstruir() {
+        long inicio = System.nanoTime();
+        // Las ventas que escriben en la tabla esperan a que termine la reconstrucción
+        jdbcTemplate.execute("LOCK TABLE VENTA_ACUMULADO IN EXCLUSIVE MODE");
+        jdbcTemplate.update("DELETE FROM VENTA_ACUMULADO");
+        int filas = 0;
+        for (String granularidad : GRANULARIDADES) {
+            String truncar = switch (granularidad) {
+                case "hora" -> "hour";
+                case "dia" -> "day";
+                default -> "month";
+            };
+            filas += jdbcTemplate.update(
+                    "INSERT INTO VENTA_ACUMULADO (VA_GRANULARIDAD, PV_ID, VA_INICIO, VA_CELDA, VA_VENTAS, VA_UNIDADES, VA_INGRESOS) " +
+                    "SELECT ?, v.PV_ID, DATE_TRUNC('" + truncar + "', v.V_FECHA), 0, COUNT(*), SUM(l.UNIDADES), SUM(l.INGRESOS) " +
+                    "FROM VENTA v JOIN (SELECT V_ID, SUM(VD_CANTIDAD) AS UNIDADES, " +
+                    "SUM(VD_CANTIDAD * VD_PRECIO_UNITARIO) AS INGRESOS FROM VENTA_DETALLE GROUP BY V_ID) l " +
+                    "ON l.V_ID = v.V_ID " +
+                    "GROUP BY v.PV_ID, DATE_TRUNC('" + truncar + "', v.V_FECHA)", granularidad);
+        }
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+        log.info("VENTA_ACUMULADO reconstruida: {} filas en {} ms", filas, ms);
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("filas", filas);
+        resultado.put("duracionMs", ms);
+        return resultado;
+    }
+
+    private static LocalDateTime inicioIntervalo(LocalDateTime fecha, String granularidad) {
+        return switch (granularidad) {
+            case "hora" -> fecha.truncatedTo(ChronoUnit.HOURS);
+            case "dia" -> fecha.truncatedTo(ChronoUnit.DAYS);
+            default -> fecha.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        };
+    }
+}
@@ -0,0 +1,240 @@
+package co.edu.tienda.domain.services.impl;
+
+import co.edu.tienda.domain.repositories.VentaRepository;
+import co.edu.tienda.domain.repositories.VentaRepositoryCustom.LineaExportada;
+import co.edu.tienda.domain.services.VentaExportService;
+import co.edu.tienda.domain.valores.Centavos;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Service
+public class VentaExportServiceImpl implements VentaExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(VentaExportServiceImpl.class);
+
+    private static final DateTimeFormatter FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+    private static final String CABECERA_CSV =
+            "venta_id,fecha,persona_id,cliente,punto_venta_id,punto_venta,producto_id,producto,cantidad,precio_unitario,subtotal";
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${tienda.ventas.export.fetch-size:1000}")
+    private int fetchSize;
+
+    private volatile Map<String, Object> ultima = Map.of();
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportar(LocalDateTime desde, LocalDateTime hasta, String formato, OutputStream salida) throws IOException {
+        long inicio = System.nanoTime();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), 64 * 1024);
+        Escritor escritor = "csv".equals(formato) ? new EscritorCsv(writer) : new EscritorNdjson(writer);
+
+        try {
+            ventaRepository.recorrerLineas(desde, hasta, fetchSize, escritor);
+            escritor.terminar();
+        } catch (UncheckedIOException e) {
+            // El cliente cerró la conexión: se corta la lectura y se libera el cursor
+            throw e.getCause();
+        }
+        writer.flush();
+
+        long ms = Math.max(1, (System.nanoTime() - inicio) / 1_000_000);
+        long filasPorSegundo = escritor.filas * 1000 / ms;
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("formato", formato);
+        resumen.put("desde", desde);
+        resumen.put("hasta", hasta);
+        resumen.put("filas", escritor.filas);
+        resumen.put("ventas", escritor.ventas);
+        resumen.put("duracionMs", ms);
+        resumen.put("filasPorSegundo", filasPorSegundo);
+        ultima = resumen;
+        log.info("Exportación {}: {} filas ({} ventas) en {} ms, {} filas/s",
+                formato, escritor.filas, escritor.ventas, ms, filasPorSegundo);
+    }
+
+    @Override
+    public Map<String, Object> ultimaExportacion() {
+        return ultima;
+    }
+
+    private abstract static class Escritor implements Consumer<LineaExportada> {
+        long filas;
+        long ventas;
+        Integer ventaActual;
+
+        @Override
+        public void accept(LineaExportada linea) {
+            try {
+                filas++;
+                if (!linea.ventaId().equals(ventaActual)) {
+                    ventas++;
+                    ventaActual = linea.ventaId();
+                }
+                escribir(linea);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        abstract void escribir(LineaExportada linea) throws IOException;
+
+        // Los precios vienen de NUMERIC(10,2): en centavos el resultado es el mismo
+        static long subtotalCentavos(LineaExportada l) {
+            return Centavos.por(Centavos.de(l.precioUnitario()), l.cantidad());
+        }
+
+        abstract void terminar() throws IOException;
+    }
+
+    // Una fila por línea de detalle
+    private static class EscritorCsv extends Escritor {
+        private final Writer writer;
+
+        EscritorCsv(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write(CABECERA_CSV);
+            writer.write('\n');
+        }
+
+        @Override
+        void escribir(LineaExportada l) throws IOException {
+            BigDecimal subtotal = l.cantidad() != null
+                    ? Centavos.aDecimal(subtotalCentavos(l)) : null;
+            writer.write(String.valueOf(l.ventaId()));
+            writer.write(',');
+            writer.write(l.fecha().format(FECHA));
+            writer.write(',');
+            writer.write(String.valueOf(l.personaId()));
+            writer.write(',');
+            campo(l.cliente());
+            writer.write(',');
+            writer.write(String.valueOf(l.puntoVentaId()));
+            writer.write(',');
+            campo(l.puntoVenta());
+            writer.write(',');
+            campo(l.productoId());
+            writer.write(',');
+            campo(l.producto());
+            writer.write(',');
+            campo(l.cantidad());
+            writer.write(',');
+            campo(l.precioUnitario() != null ? l.precioUnitario().toPlainString() : null);
+            writer.write(',');
+            campo(subtotal != null ? subtotal.toPlainString() : null);
+            writer.write('\n');
+        }
+
+        private void campo(Object valor) throws IOException {
+            if (valor == null) {
+                return;
+            }
+            String texto = valor.toString();
+            if (texto.indexOf(',') >= 0 || texto.indexOf('"') >= 0 || texto.indexOf('\n') >= 0 || texto.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(texto.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(texto);
+            }
+        }
+
+        @Override
+        void terminar() {
+        }
+    }
+
+    // Una venta por línea; las filas llegan ordenadas por venta, así que basta con
+    // cerrar el objeto cuando cambia el V_ID
+    private class EscritorNdjson extends Escritor {
+        private final JsonGenerator json;
+        private long total;
+        private int lineas;
+        private boolean abierta;
+
+        EscritorNdjson(Writer writer) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            // El separador entre ventas es el salto de línea que se escribe a mano
+            json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void accept(LineaExportada linea) {
+            if (abierta && !linea.ventaId().equals(ventaActual)) {
+                try {
+                    cerrarVenta();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            super.accept(linea);
+        }
+
+        @Override
+        void escribir(LineaExportada l) throws IOException {
+            if (!abierta) {
+                json.writeStartObject();
+                json.writeNumberField("id", l.ventaId());
+                json.writeStringField("fecha", l.fecha().format(FECHA));
+                json.writeNumberField("pId", l.personaId());
+                json.writeStringField("clienteNombre", l.cliente());
+                json.writeNumberField("pvId", l.puntoVentaId());
+                json.writeStringField("puntoVentaNombre", l.puntoVenta());
+                json.writeArrayFieldStart("detalles");
+                total = 0;
+                lineas = 0;
+                abierta = true;
+            }
+            if (l.productoId() != null) {
+                long subtotal = subtotalCentavos(l);
+                total = Centavos.sumar(total, subtotal);
+                lineas++;
+                json.writeStartObject();
+                json.writeNumberField("pId", l.productoId());
+                json.writeStringField("productoNombre", l.producto());
+                json.writeNumberField("cantidad", l.cantidad());
+                json.writeNumberField("precioUnitario", l.precioUnitario());
+                json.writeNumberField("subtotal", Centavos.aDecimal(subtotal));
+                json.writeEndObject();
+            }
+        }
+
+        private void cerrarVenta() throws IOException {
+            json.writeEndArray();
+            json.writeNumberField("total", lineas > 0 ? Centavos.aDecimal(total) : BigDecimal.ZERO);
+            json.writeEndObject();
+            json.writeRaw('\n');
+            abierta = false;
+        }
+
+        @Override
+        void terminar() throws IOException {
+            if (abierta) {
+                cerrarVenta();
+            }
+            json.flush();
+        }
+    }
+}
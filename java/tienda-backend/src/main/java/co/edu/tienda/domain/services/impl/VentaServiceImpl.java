@@ -3,14 +3,28 @@ package co.edu.tienda.domain.services.impl;
 import co.edu.tienda.domain.entities.Venta;
 import co.edu.tienda.domain.entities.VentaDetalle;
 import co.edu.tienda.domain.entities.Producto;
+import co.edu.tienda.domain.events.VentaCreadaEvent;
+import co.edu.tienda.domain.exceptions.StockInsuficienteException;
 import co.edu.tienda.domain.repositories.VentaRepository;
 import co.edu.tienda.domain.repositories.ProductoRepository;
+import co.edu.tienda.domain.repositories.PersonaRepository;
+import co.edu.tienda.domain.repositories.PuntoDeVentaRepository;
+import co.edu.tienda.domain.services.Pagina;
 import co.edu.tienda.domain.services.VentaService;
+import co.edu.tienda.infrastructure.historial.HistorialVentasPersona;
+import co.edu.tienda.infrastructure.inventario.InventarioCaliente;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
 @Service
@@ -23,37 +37,83 @@ public class VentaServiceImpl implements VentaService {
     @Autowired
     private ProductoRepository productoRepository;
 
+    @Autowired
+    private PersonaRepository personaRepository;
+
+    @Autowired
+    private PuntoDeVentaRepository puntoDeVentaRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectProvider<InventarioCaliente> inventarioCaliente;
+
+    @Autowired
+    private HistorialVentasPersona historialVentasPersona;
+
+    @Value("${tienda.ventas.page.default-size:50}")
+    private int tamanoPaginaPorDefecto;
+
+    @Value("${tienda.ventas.page.max-size:500}")
+    private int tamanoPaginaMaximo;
+
     @Override
     @Transactional(readOnly = true)
     public List<Venta> listarTodas() {
         return ventaRepository.findAllConDetalles();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Pagina<Venta> listarPagina(String cursor, Integer limite) {
+        int tamano = tamanoPagina(limite);
+        Object[] desde = decodificarCursor(cursor);
+        List<Venta> ventas = desde == null
+                ? ventaRepository.findPrimeraPagina(Limit.of(tamano + 1))
+                : ventaRepository.findPaginaDespuesDe((LocalDateTime) desde[0], (Integer) desde[1], Limit.of(tamano + 1));
+        return armarPagina(ventas, tamano);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Optional<Venta> buscarPorId(Integer id) {
-        return ventaRepository.findById(id);
+        return ventaRepository.findConDetallesById(id);
     }
 
     @Override
     public Venta crearVenta(Venta venta) {
-        // Validar que tenga detalles
-        if (venta.getDetalles() == null || venta.getDetalles().isEmpty()) {
-            throw new RuntimeException("La venta debe tener al menos un detalle");
+        Map<Integer, Integer> cantidades = venta.cantidadesPorProducto();
+
+        // Los productos calientes salen del cupo del nodo; el resto, de P_STOCK
+        InventarioCaliente caliente = inventarioCaliente.getIfAvailable();
+        Map<Integer, Integer> calientes = new HashMap<>();
+        Map<Integer, Integer> normales = new HashMap<>(cantidades);
+        if (caliente != null) {
+            for (Integer id : cantidades.keySet()) {
+                if (caliente.esCaliente(id)) {
+                    calientes.put(id, normales.remove(id));
+                }
+            }
+        }
+
+        // Descontar stock de forma atómica: UPDATE condicional en batch, en orden de ID
+        List<Integer> faltantes = normales.isEmpty() ? List.of() : productoRepository.descontarStock(normales);
+        if (faltantes.isEmpty() && !calientes.isEmpty()) {
+            faltantes = caliente.reservar(calientes);
+        }
+        if (!faltantes.isEmpty()) {
+            throw stockInsuficiente(faltantes, cantidades);
+        }
+
+        // Cargar los productos en una sola consulta (ya con el stock descontado)
+        Map<Integer, Producto> productos = new HashMap<>();
+        for (Producto producto : productoRepository.findAllById(cantidades.keySet())) {
+            productos.put(producto.getPId(), producto);
         }
 
-        // Validar stock y actualizar inventario
         for (VentaDetalle detalle : venta.getDetalles()) {
-            Producto producto = productoRepository.findById(detalle.getProducto().getPId())
-                    .orElseThrow(
-                            () -> new RuntimeException("Producto no encontrado: " + detalle.getProducto().getPId()));
-
-            // Verificar stock suficiente
-            if (producto.getPStock() < detalle.getVdCantidad()) {
-                throw new RuntimeException("Stock insuficiente para el producto: " + producto.getPNombre() +
-                        ". Disponible: " + producto.getPStock() +
-                        ", Solicitado: " + detalle.getVdCantidad());
-            }
+            Producto producto = productos.get(detalle.getProducto().getPId());
 
             // Si no se envió el precio unitario, tomar el precio actual del producto
             if (detalle.getVdPrecioUnitario() == null) {
@@ -63,16 +123,199 @@ public class VentaServiceImpl implements VentaService {
             // Establecer la referencia completa al producto (no solo el ID stub)
             detalle.setProducto(producto);
 
-            // Actualizar stock
-            producto.setPStock(producto.getPStock() - detalle.getVdCantidad());
-            productoRepository.save(producto);
-
             // Asegurar que el detalle tenga referencia a la venta
             detalle.setVenta(venta);
         }
+        venta.calcularTotales();
 
         // Guardar la venta con sus detalles (CASCADE se encarga de los detalles)
-        return ventaRepository.save(venta);
+        Venta guardada = ventaRepository.save(venta);
+        eventPublisher.publishEvent(new VentaCreadaEvent(guardada, VentaCreadaEvent.Origen.DIRECTA));
+        return guardada;
+    }
+
+    private StockInsuficienteException stockInsuficiente(List<Integer> faltantes, Map<Integer, Integer> cantidades) {
+        Map<Integer, Producto> existentes = new HashMap<>();
+        for (Producto producto : productoRepository.findAllById(faltantes)) {
+            existentes.put(producto.getPId(), producto);
+        }
+
+        List<Map<String, Object>> detalle = new ArrayList<>();
+        List<String> partes = new ArrayList<>();
+        for (Integer id : faltantes) {
+            Producto producto = existentes.get(id);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("productoId", id);
+            item.put("solicitado", cantidades.get(id));
+            if (producto == null) {
+                item.put("error", "Producto no encontrado");
+                partes.add("Producto no encontrado: " + id);
+            } else {
+                // De un producto caliente este nodo solo puede vender su cupo
+                InventarioCaliente caliente = inventarioCaliente.getIfAvailable();
+                int disponible = caliente != null && caliente.esCaliente(id)
+                        ? caliente.disponible(id) : producto.getPStock();
+                item.put("nombreProducto", producto.getPNombre());
+                item.put("disponible", disponible);
+                partes.add(producto.getPNombre() + " (disponible: " + disponible
+                        + ", solicitado: " + cantidades.get(id) + ")");
+            }
+            detalle.add(item);
+        }
+
+        return new StockInsuficienteException("Stock insuficiente para: " + String.join("; ", partes), detalle);
+    }
+
+    @Override
+    public List<Map<String, Object>> crearVentasEnLote(List<Venta> ventas, int indiceInicial) {
+        String[] errores = new String[ventas.size()];
+        List<Map<Integer, Integer>> pedidos = new ArrayList<>(ventas.size());
+
+        // Validación de estructura y recolección de los IDs referenciados por el lote
+        Set<Integer> personaIds = new HashSet<>();
+        Set<Integer> puntoDeVentaIds = new HashSet<>();
+        Set<Integer> productoIds = new TreeSet<>();
+        for (int i = 0; i < ventas.size(); i++) {
+            Venta venta = ventas.get(i);
+            Map<Integer, Integer> cantidades = null;
+            try {
+                if (venta.getPId() == null || venta.getPvId() == null) {
+                    throw new RuntimeException("La venta debe indicar la persona y el punto de venta");
+                }
+                cantidades = venta.cantidadesPorProducto();
+                personaIds.add(venta.getPId());
+                puntoDeVentaIds.add(venta.getPvId());
+                productoIds.addAll(cantidades.keySet());
+            } catch (RuntimeException e) {
+                errores[i] = e.getMessage();
+            }
+            pedidos.add(cantidades);
+        }
+
+        Set<Integer> personas = personaIds.isEmpty()
+                ? Set.of() : new HashSet<>(personaRepository.findIdsExistentes(personaIds));
+        Set<Integer> puntosDeVenta = puntoDeVentaIds.isEmpty()
+                ? Set.of() : new HashSet<>(puntoDeVentaRepository.findIdsExistentes(puntoDeVentaIds));
+
+        // Los productos calientes salen del cupo del nodo, como en crearVenta. No se bloquean:
+        // pedir cupo actualiza su fila desde otra conexión y esperaría al commit del lote.
+        InventarioCaliente caliente = inventarioCaliente.getIfAvailable();
+        Set<Integer> calientes = new TreeSet<>();
+        if (caliente != null) {
+            productoIds.removeIf(id -> caliente.esCaliente(id) && calientes.add(id));
+        }
+
+        // Productos bloqueados en orden de ID: el stock leído no cambia hasta el commit del lote
+        Map<Integer, Producto> productos = new HashMap<>();
+        Map<Integer, Integer> disponible = new HashMap<>();
+        if (!productoIds.isEmpty()) {
+            for (Producto producto : productoRepository.findAllByIdParaActualizar(productoIds)) {
+                productos.put(producto.getPId(), producto);
+                disponible.put(producto.getPId(), producto.getPStock());
+            }
+        }
+        if (!calientes.isEmpty()) {
+            for (Producto producto : productoRepository.findAllById(calientes)) {
+                productos.put(producto.getPId(), producto);
+            }
+        }
+
+        // Repartir el stock en el orden recibido y acumular el descuento por producto
+        Map<Integer, Integer> aDescontar = new TreeMap<>();
+        List<Venta> aceptadas = new ArrayList<>();
+        for (int i = 0; i < ventas.size(); i++) {
+            if (errores[i] != null) {
+                continue;
+            }
+            Venta venta = ventas.get(i);
+            Map<Integer, Integer> cantidades = pedidos.get(i);
+
+            if (!personas.contains(venta.getPId())) {
+                errores[i] = "Persona no encontrada con ID: " + venta.getPId();
+                continue;
+            }
+            if (!puntosDeVenta.contains(venta.getPvId())) {
+                errores[i] = "Punto de venta no encontrado con ID: " + venta.getPvId();
+                continue;
+            }
+
+            List<String> faltantes = new ArrayList<>();
+            Map<Integer, Integer> delCupo = new HashMap<>();
+            cantidades.forEach((id, cantidad) -> {
+                Producto producto = productos.get(id);
+                if (producto == null) {
+                    faltantes.add("Producto no encontrado: " + id);
+                } else if (calientes.contains(id)) {
+                    delCupo.put(id, cantidad);
+                } else if (disponible.get(id) < cantidad) {
+                    faltantes.add(producto.getPNombre() + " (disponible: " + disponible.get(id)
+                            + ", solicitado: " + cantidad + ")");
+                }
+            });
+            // El cupo se reserva al final: si la venta falla, el rollback del lote lo devuelve
+            if (faltantes.isEmpty() && !delCupo.isEmpty()) {
+                for (Integer id : caliente.reservar(delCupo)) {
+                    faltantes.add(productos.get(id).getPNombre() + " (disponible: " + caliente.disponible(id)
+                            + ", solicitado: " + delCupo.get(id) + ")");
+                }
+            }
+            if (!faltantes.isEmpty()) {
+                errores[i] = "Stock insuficiente para: " + String.join("; ", faltantes);
+                continue;
+            }
+
+            cantidades.forEach((id, cantidad) -> {
+                if (!delCupo.containsKey(id)) {
+                    disponible.merge(id, -cantidad, Integer::sum);
+                    aDescontar.merge(id, cantidad, Integer::sum);
+                }
+            });
+
+            venta.setPersona(personaRepository.getReferenceById(venta.getPId()));
+            venta.setPuntoDeVenta(puntoDeVentaRepository.getReferenceById(venta.getPvId()));
+            for (VentaDetalle detalle : venta.getDetalles()) {
+                Producto producto = productos.get(detalle.getProducto().getPId());
+                if (detalle.getVdPrecioUnitario() == null) {
+                    detalle.setVdPrecioUnitario(producto.getPPrecio());
+                }
+                detalle.setProducto(producto);
+                detalle.setVenta(venta);
+            }
+            venta.calcularTotales();
+            aceptadas.add(venta);
+        }
+
+        // Un solo UPDATE condicional por producto para todo el lote
+        if (!aDescontar.isEmpty()) {
+            List<Integer> faltantes = productoRepository.descontarStock(aDescontar);
+            if (!faltantes.isEmpty()) {
+                throw new RuntimeException("El stock cambió durante el lote para los productos: " + faltantes);
+            }
+        }
+
+        // Inserts en batch gracias a las secuencias pooled
+        ventaRepository.saveAll(aceptadas);
+        ventaRepository.flush();
+        for (Venta venta : aceptadas) {
+            eventPublisher.publishEvent(new VentaCreadaEvent(venta, VentaCreadaEvent.Origen.LOTE));
+        }
+
+        List<Map<String, Object>> resultados = new ArrayList<>(ventas.size());
+        for (int i = 0; i < ventas.size(); i++) {
+            Map<String, Object> resultado = new LinkedHashMap<>();
+            resultado.put("indice", indiceInicial + i);
+            if (errores[i] == null) {
+                resultado.put("estado", "OK");
+                resultado.put("ventaId", ventas.get(i).getVId());
+                resultado.put("total", ventas.get(i).getTotal());
+            } else {
+                resultado.put("estado", "ERROR");
+                resultado.put("error", errores[i]);
+            }
+            resultados.add(resultado);
+        }
+
+        return resultados;
     }
 
     @Override
@@ -83,22 +326,77 @@ public class VentaServiceImpl implements VentaService {
 
     @Override
     @Transactional(readOnly = true)
+    public Pagina<Venta> buscarVentasPorPersona(Integer personaId, String cursor, Integer limite) {
+        int tamano = tamanoPagina(limite);
+        Object[] desde = decodificarCursor(cursor);
+        List<Venta> ventas = desde == null
+                ? ventaRepository.findPrimeraPaginaPorPersona(personaId, Limit.of(tamano + 1))
+                : ventaRepository.findPaginaPorPersonaDespuesDe(personaId, (LocalDateTime) desde[0],
+                        (Integer) desde[1], Limit.of(tamano + 1));
+        return armarPagina(ventas, tamano);
+    }
+
+    private int tamanoPagina(Integer limite) {
+        if (limite == null) {
+            return tamanoPaginaPorDefecto;
+        }
+        if (limite < 1) {
+            throw new RuntimeException("El límite debe ser mayor que 0");
+        }
+        return Math.min(limite, tamanoPaginaMaximo);
+    }
+
+    // Se pidió una fila de más para saber si hay otra página sin hacer un COUNT
+    private Pagina<Venta> armarPagina(List<Venta> ventas, int tamano) {
+        boolean hayMas = ventas.size() > tamano;
+        List<Venta> pagina = hayMas ? new ArrayList<>(ventas.subList(0, tamano)) : ventas;
+        if (!pagina.isEmpty()) {
+            ventaRepository.cargarDetalles(pagina);
+        }
+        String siguiente = null;
+        if (hayMas) {
+            Venta ultima = pagina.get(pagina.size() - 1);
+            siguiente = codificarCursor(ultima.getVFecha(), ultima.getVId());
+        }
+        return new Pagina<>(pagina, siguiente);
+    }
+
+    // Cursor opaco: base64url de "fecha|id" de la última venta entregada
+    private String codificarCursor(LocalDateTime fecha, Integer id) {
+        String valor = fecha.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Object[] decodificarCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf('|');
+            return new Object[]{
+                    LocalDateTime.parse(valor.substring(0, separador), DateTimeFormatter.ISO_LOCAL_DATE_TIME),
+                    Integer.valueOf(valor.substring(separador + 1))
+            };
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new RuntimeException("Cursor inválido");
+        }
+    }
+
+    // Sin readOnly: la carga de la caché va al maestro, no a una réplica con lag. Con
+    // réplicas la conexión es lazy, así que un acierto no llega a pedirla.
+    @Override
     public List<Map<String, Object>> obtenerVentasPorPersonaConDetalles(Integer personaId) {
-        List<Venta> ventas = ventaRepository.findVentasConDetallesPorPersona(personaId);
-        List<Map<String, Object>> respuesta = new ArrayList<>();
+        return historialVentasPersona.obtener(personaId, this::cargarResumenes);
+    }
 
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private List<Map<String, Object>> cargarResumenes(Integer personaId) {
+        // Solo cabeceras: el total y las líneas vienen de VENTA, sin leer VENTA_DETALLE
+        List<Venta> ventas = ventaRepository.findCabecerasPorPersona(personaId);
+        List<Map<String, Object>> respuesta = new ArrayList<>();
 
         for (Venta venta : ventas) {
-            Map<String, Object> ventaMap = new HashMap<>();
-            ventaMap.put("ventaId", venta.getVId());
-            ventaMap.put("fecha", venta.getVFecha().format(formatter));
-            ventaMap.put("personaNombre", venta.getPersona().getPNombre() + " " + venta.getPersona().getPApellido());
-            ventaMap.put("personaEmail", venta.getPersona().getPEmail());
-            ventaMap.put("puntoVenta", venta.getPuntoDeVenta().getPvNombre());
-            ventaMap.put("ubicacion", venta.getPuntoDeVenta().getUbicacion().getUNombre());
-
-            respuesta.add(ventaMap);
+            respuesta.add(HistorialVentasPersona.resumen(venta, venta.getPersona(), venta.getPuntoDeVenta()));
         }
 
         return respuesta;
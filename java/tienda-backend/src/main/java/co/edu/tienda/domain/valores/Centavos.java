@@ -0,0 +1,41 @@
+package co.edu.tienda.domain.valores;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Montos como cantidad entera de centavos ({@code long}), para sumar y multiplicar sin
+ * crear un BigDecimal por operación. Los precios y totales se guardan como
+ * NUMERIC(10,2)/(12,2), así que dos decimales alcanzan; el BigDecimal se arma solo al
+ * salir (JSON, JDBC), siempre con escala 2.
+ */
+public final class Centavos {
+
+    public static final int ESCALA = 2;
+
+    private Centavos() {
+    }
+
+    /**
+     * Centavos de un monto. Las fracciones de centavo se redondean como lo hace
+     * NUMERIC(·,2) al guardar (mitad hacia arriba).
+     */
+    public static long de(BigDecimal monto) {
+        if (monto.scale() == ESCALA) {
+            return monto.movePointRight(ESCALA).longValueExact();
+        }
+        return monto.setScale(ESCALA, RoundingMode.HALF_UP).movePointRight(ESCALA).longValueExact();
+    }
+
+    public static BigDecimal aDecimal(long centavos) {
+        return BigDecimal.valueOf(centavos, ESCALA);
+    }
+
+    public static long por(long centavos, int cantidad) {
+        return Math.multiplyExact(centavos, cantidad);
+    }
+
+    public static long sumar(long a, long b) {
+        return Math.addExact(a, b);
+    }
+}
@@ -0,0 +1,220 @@
+package co.edu.tienda.infrastructure.analitica;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Recorre un rango de bloques de {@link ColumnasVentas} con fork/join: divide el rango
+ * hasta unos pocos bloques por tarea, agrega cada parte por separado y une los
+ * resultados.
+ *
+ * Si la combinación de dimensiones agrupadas tiene pocos valores posibles (hasta
+ * {@link #LIMITE_DENSO}), cada grupo es una posición en arreglos de long y agregar una
+ * fila es sumar en un índice; si no, los grupos van en un HashMap.
+ */
+class Agregacion extends RecursiveTask<Agregacion.Grupos> {
+
+    static final int LIMITE_DENSO = 1 << 17;
+
+    // Valores de las dimensiones agrupadas; las que no se agrupan quedan en 0
+    record Clave(int producto, int puntoVenta, int persona, int dia) {
+    }
+
+    // Dimensiones por las que se agrupa y filtros (null = sin filtro)
+    record Consulta(boolean porProducto, boolean porPuntoVenta, boolean porPersona, boolean porDia,
+                    Integer producto, Integer puntoVenta, Integer persona, int diaDesde, int diaHasta) {
+    }
+
+    /**
+     * Resultado parcial: arreglos densos (líneas, unidades y centavos por índice) o mapa
+     * de clave a {líneas, unidades, centavos}.
+     */
+    static final class Grupos {
+        final long[] lineas;
+        final long[] unidades;
+        final long[] centavos;
+        final Map<Clave, long[]> mapa;
+
+        private Grupos(int tamanoDenso) {
+            this.lineas = new long[tamanoDenso];
+            this.unidades = new long[tamanoDenso];
+            this.centavos = new long[tamanoDenso];
+            this.mapa = null;
+        }
+
+        private Grupos() {
+            this.lineas = null;
+            this.unidades = null;
+            this.centavos = null;
+            this.mapa = new HashMap<>();
+        }
+
+        private void unir(Grupos otro) {
+            if (mapa == null) {
+                for (int i = 0; i < lineas.length; i++) {
+                    lineas[i] += otro.lineas[i];
+                    unidades[i] += otro.unidades[i];
+                    centavos[i] += otro.centavos[i];
+                }
+            } else {
+                otro.mapa.forEach((clave, v) -> {
+                    long[] r = mapa.computeIfAbsent(clave, k -> new long[3]);
+                    r[0] += v[0];
+                    r[1] += v[1];
+                    r[2] += v[2];
+                });
+            }
+        }
+    }
+
+    /**
+     * Cómo pasar de una fila a su índice denso: índice = ((producto * nPuntoVenta +
+     * puntoVenta) * nPersona + persona) * nDia + (dia - minDia), con n = 1 para las
+     * dimensiones que no se agrupan.
+     */
+    record Indice(int nPuntoVenta, int nPersona, int nDia, int minDia, long tamano) {
+
+        static Indice para(ColumnasVentas columnas, Consulta c) {
+            long nProducto = c.porProducto() ? columnas.maxProducto() + 1L : 1;
+            long nPuntoVenta = c.porPuntoVenta() ? columnas.maxPuntoVenta() + 1L : 1;
+            long nPersona = c.porPersona() ? columnas.maxPersona() + 1L : 1;
+            long nDia = c.porDia() ? (long) columnas.maxDia() - columnas.minDia() + 1 : 1;
+            long tamano = nProducto * nPuntoVenta * nPersona * nDia;
+            return new Indice((int) Math.min(nPuntoVenta, Integer.MAX_VALUE), (int) Math.min(nPersona, Integer.MAX_VALUE),
+                    (int) Math.min(nDia, Integer.MAX_VALUE), columnas.minDia(), tamano);
+        }
+
+        boolean denso() {
+            return tamano <= LIMITE_DENSO;
+        }
+
+        Clave clave(int indice, Consulta c) {
+            int dia = indice % nDia;
+            indice /= nDia;
+            int persona = indice % nPersona;
+            indice /= nPersona;
+            int puntoVenta = indice % nPuntoVenta;
+            int producto = indice / nPuntoVenta;
+            return new Clave(producto, puntoVenta, persona, c.porDia() ? dia + minDia : 0);
+        }
+    }
+
+    private final ColumnasVentas.Bloque[] bloques;
+    private final int filas;
+    private final int desde;
+    private final int hasta;
+    private final Consulta consulta;
+    private final Indice indice;
+    private final int bloquesPorTarea;
+
+    Agregacion(ColumnasVentas.Bloque[] bloques, int filas, int desde, int hasta, Consulta consulta, Indice indice) {
+        this(bloques, filas, desde, hasta, consulta, indice,
+                Math.max(1, (hasta - desde) / (4 * ForkJoinPool.getCommonPoolParallelism())));
+    }
+
+    private Agregacion(ColumnasVentas.Bloque[] bloques, int filas, int desde, int hasta, Consulta consulta,
+                       Indice indice, int bloquesPorTarea) {
+        this.bloques = bloques;
+        this.filas = filas;
+        this.desde = desde;
+        this.hasta = hasta;
+        this.consulta = consulta;
+        this.indice = indice;
+        this.bloquesPorTarea = bloquesPorTarea;
+    }
+
+    @Override
+    protected Grupos compute() {
+        if (hasta - desde <= bloquesPorTarea) {
+            Grupos grupos = indice.denso() ? new Grupos((int) indice.tamano()) : new Grupos();
+            for (int b = desde; b < hasta; b++) {
+                if (indice.denso()) {
+                    recorrerDenso(b, grupos);
+                } else {
+                    recorrerMapa(b, grupos.mapa);
+                }
+            }
+            return grupos;
+        }
+        int medio = (desde + hasta) >>> 1;
+        Agregacion izquierda = new Agregacion(bloques, filas, desde, medio, consulta, indice, bloquesPorTarea);
+        izquierda.fork();
+        Grupos derecha = new Agregacion(bloques, filas, medio, hasta, consulta, indice, bloquesPorTarea).compute();
+        Grupos resultado = izquierda.join();
+        resultado.unir(derecha);
+        return resultado;
+    }
+
+    private int filasDe(int b) {
+        return Math.min(ColumnasVentas.TAMANO_BLOQUE, filas - b * ColumnasVentas.TAMANO_BLOQUE);
+    }
+
+    private void recorrerDenso(int b, Grupos grupos) {
+        ColumnasVentas.Bloque bloque = bloques[b];
+        int fin = filasDe(b);
+        Consulta c = consulta;
+        int fProducto = c.producto() != null ? c.producto() : -1;
+        int fPuntoVenta = c.puntoVenta() != null ? c.puntoVenta() : -1;
+        int fPersona = c.persona() != null ? c.persona() : -1;
+        int nPuntoVenta = indice.nPuntoVenta();
+        int nPersona = indice.nPersona();
+        int nDia = indice.nDia();
+        int minDia = indice.minDia();
+
+        for (int i = 0; i < fin; i++) {
+            int dia = bloque.dia[i];
+            if (dia < c.diaDesde() || dia >= c.diaHasta()
+                    || (fProducto >= 0 && bloque.producto[i] != fProducto)
+                    || (fPuntoVenta >= 0 && bloque.puntoVenta[i] != fPuntoVenta)
+                    || (fPersona >= 0 && bloque.persona[i] != fPersona)) {
+                continue;
+            }
+            int k = c.porProducto() ? bloque.producto[i] : 0;
+            k = k * nPuntoVenta + (c.porPuntoVenta() ? bloque.puntoVenta[i] : 0);
+            k = k * nPersona + (c.porPersona() ? bloque.persona[i] : 0);
+            k = k * nDia + (c.porDia() ? dia - minDia : 0);
+            grupos.lineas[k]++;
+            grupos.unidades[k] += bloque.cantidad[i];
+            grupos.centavos[k] += bloque.cantidad[i] * bloque.precioCentavos[i];
+        }
+    }
+
+    private void recorrerMapa(int b, Map<Clave, long[]> grupos) {
+        ColumnasVentas.Bloque bloque = bloques[b];
+        int fin = filasDe(b);
+        Consulta c = consulta;
+        int fProducto = c.producto() != null ? c.producto() : -1;
+        int fPuntoVenta = c.puntoVenta() != null ? c.puntoVenta() : -1;
+        int fPersona = c.persona() != null ? c.persona() : -1;
+
+        int kProducto = -1, kPuntoVenta = -1, kPersona = -1, kDia = -1;
+        long[] acumulado = null;
+        for (int i = 0; i < fin; i++) {
+            int dia = bloque.dia[i];
+            if (dia < c.diaDesde() || dia >= c.diaHasta()
+                    || (fProducto >= 0 && bloque.producto[i] != fProducto)
+                    || (fPuntoVenta >= 0 && bloque.puntoVenta[i] != fPuntoVenta)
+                    || (fPersona >= 0 && bloque.persona[i] != fPersona)) {
+                continue;
+            }
+            int producto = c.porProducto() ? bloque.producto[i] : 0;
+            int puntoVenta = c.porPuntoVenta() ? bloque.puntoVenta[i] : 0;
+            int persona = c.porPersona() ? bloque.persona[i] : 0;
+            int d = c.porDia() ? dia : 0;
+            // Las líneas de una venta van juntas: muchas veces el grupo es el de la fila anterior
+            if (acumulado == null || producto != kProducto || puntoVenta != kPuntoVenta
+                    || persona != kPersona || d != kDia) {
+                acumulado = grupos.computeIfAbsent(new Clave(producto, puntoVenta, persona, d), k -> new long[3]);
+                kProducto = producto;
+                kPuntoVenta = puntoVenta;
+                kPersona = persona;
+                kDia = d;
+            }
+            acumulado[0]++;
+            acumulado[1] += bloque.cantidad[i];
+            acumulado[2] += bloque.cantidad[i] * bloque.precioCentavos[i];
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package co.edu.tienda.infrastructure.analitica;
+
+import co.edu.tienda.domain.entities.Venta;
+import co.edu.tienda.domain.entities.VentaDetalle;
+import co.edu.tienda.domain.events.VentaCreadaEvent;
+import co.edu.tienda.domain.valores.Centavos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Copia en memoria, por columnas, de todas las líneas de venta (producto, punto de
+ * venta, cliente, día, cantidad y precio en centavos) para agregaciones ad hoc sin
+ * consultar PostgreSQL.
+ *
+ * Se carga en segundo plano al arrancar y después se le agregan las ventas a medida que
+ * se confirman. Si la carga falla se descarta lo leído y se reintenta cada
+ * {@code tienda.analitica.reintento-ms}; mientras tanto las consultas responden 503.
+ *
+ * Las ventas que se confirman durante la carga se guardan aparte y se agregan al final,
+ * salvo las que la carga ya leyó; el registro de ventas cargadas es un bit por V_ID.
+ */
+@Component
+@ConditionalOnProperty(name = "tienda.analitica.enabled", havingValue = "true")
+public class AnaliticaVentas {
+
+    private static final Logger log = LoggerFactory.getLogger(AnaliticaVentas.class);
+
+    private static final List<String> DIMENSIONES = List.of("producto", "puntoVenta", "persona", "dia");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${tienda.analitica.fetch-size:10000}")
+    private int fetchSize;
+
+    @Value("${tienda.analitica.reintento-ms:30000}")
+    private long reintentoMs;
+
+    private volatile ColumnasVentas columnas = new ColumnasVentas();
+    private final BitSet ventasCargadas = new BitSet();
+    private final List<Lineas> pendientes = new ArrayList<>();
+    private volatile boolean cargando = true;
+    private volatile String error;
+    private volatile int intentosFallidos;
+    private volatile long duracionCargaMs = -1;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void arrancarCarga() {
+        Thread cargador = new Thread(this::cargar, "analitica-carga");
+        cargador.setDaemon(true);
+        cargador.start();
+    }
+
+    // Hasta que una carga completa termina bien no se responde: una copia a medias daría totales falsos
+    private void cargar() {
+        long inicio;
+        for (int intento = 1; ; intento++) {
+            inicio = System.nanoTime();
+            try {
+                leerVentas();
+                break;
+            } catch (Exception e) {
+                error = e.getMessage();
+                intentosFallidos = intento;
+                log.warn("No se pudo cargar la copia analítica de ventas (intento {}), reintento en {} ms: {}",
+                        intento, reintentoMs, e.getMessage());
+            }
+            // Lo leído se descarta; las ventas que se confirmen mientras tanto siguen en "pendientes"
+            synchronized (this) {
+                columnas = new ColumnasVentas();
+                ventasCargadas.clear();
+            }
+            try {
+                Thread.sleep(reintentoMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        synchronized (this) {
+            pendientes.forEach(this::agregarVenta);
+            pendientes.clear();
+            error = null;
+            cargando = false;
+        }
+        duracionCargaMs = (System.nanoTime() - inicio) / 1_000_000;
+        log.info("Copia analítica de ventas: {} líneas cargadas en {} ms", columnas.tamano(), duracionCargaMs);
+    }
+
+    private void leerVentas() {
+        jdbcTemplate.execute((Connection conexion) -> {
+            // Cursor de PostgreSQL: requiere autocommit desactivado
+            boolean autoCommit = conexion.getAutoCommit();
+            conexion.setAutoCommit(false);
+            try (PreparedStatement ps = conexion.prepareStatement(
+                    "SELECT v.V_ID, vd.P_ID, v.PV_ID, v.P_ID AS PERSONA, v.V_FECHA, vd.VD_CANTIDAD, vd.VD_PRECIO_UNITARIO " +
+                    "FROM VENTA v JOIN VENTA_DETALLE vd ON vd.V_ID = v.V_ID ORDER BY v.V_ID",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        synchronized (this) {
+                            ventasCargadas.set(rs.getInt(1));
+                            columnas.agregar(rs.getInt(2), rs.getInt(3), rs.getInt(4),
+                                    (int) rs.getTimestamp(5).toLocalDateTime().toLocalDate().toEpochDay(),
+                                    rs.getInt(6), Centavos.de(rs.getBigDecimal(7)));
+                        }
+                    }
+                }
+            } finally {
+                conexion.commit();
+                conexion.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+
+    // Una venta ya convertida a columnas, para no tocar entidades después del commit
+    private record Lineas(int ventaId, int puntoVenta, int persona, int dia,
+                          int[] producto, int[] cantidad, long[] precioCentavos) {
+    }
+
+    @EventListener
+    public void alCrearVenta(VentaCreadaEvent event) {
+        Venta venta = event.getVenta();
+        List<VentaDetalle> detalles = venta.getDetalles();
+        int[] producto = new int[detalles.size()];
+        int[] cantidad = new int[detalles.size()];
+        long[] precio = new long[detalles.size()];
+        for (int i = 0; i < detalles.size(); i++) {
+            producto[i] = detalles.get(i).getPId();
+            cantidad[i] = detalles.get(i).getVdCantidad();
+            precio[i] = detalles.get(i).getPrecioCentavos();
+        }
+        Lineas lineas = new Lineas(venta.getVId(), venta.getPvId(), venta.getPId(),
+                (int) venta.getVFecha().toLocalDate().toEpochDay(), producto, cantidad, precio);
+
+        // Solo las ventas confirmadas entran en la copia
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recibir(lineas);
+            }
+        });
+    }
+
+    private synchronized void recibir(Lineas lineas) {
+        if (cargando) {
+            pendientes.add(lineas);
+        } else {
+            agregarVenta(lineas);
+        }
+    }
+
+    // Con el lock tomado
+    private void agregarVenta(Lineas lineas) {
+        if (ventasCargadas.get(lineas.ventaId())) {
+            return;
+        }
+        ventasCargadas.set(lineas.ventaId());
+        for (int i = 0; i < lineas.producto().length; i++) {
+            columnas.agregar(lineas.producto()[i], lineas.puntoVenta(), lineas.persona(), lineas.dia(),
+                    lineas.cantidad()[i], lineas.precioCentavos()[i]);
+        }
+    }
+
+    /**
+     * Líneas, unidades e ingresos agrupados por las dimensiones pedidas ("producto",
+     * "puntoVenta", "persona", "dia"), con filtros opcionales. Recorre la copia en
+     * paralelo; devuelve los {@code limite} grupos con más ingresos.
+     */
+    public Map<String, Object> agregar(List<String> agrupar, Integer productoId, Integer pvId, Integer personaId,
+                                       LocalDate desde, LocalDate hasta, int limite) {
+        if (cargando) {
+            String ultimoError = error;
+            throw new IllegalStateException(ultimoError == null ? "La copia analítica se está cargando"
+                    : "La copia analítica no se pudo cargar, se reintenta: " + ultimoError);
+        }
+        for (String dimension : agrupar) {
+            if (!DIMENSIONES.contains(dimension)) {
+                throw new RuntimeException("Dimensión no soportada: " + dimension + " (" + String.join(", ", DIMENSIONES) + ")");
+            }
+        }
+
+        long inicio = System.nanoTime();
+        Agregacion.Consulta consulta = new Agregacion.Consulta(
+                agrupar.contains("producto"), agrupar.contains("puntoVenta"),
+                agrupar.contains("persona"), agrupar.contains("dia"),
+                productoId, pvId, personaId,
+                desde != null ? (int) desde.toEpochDay() : Integer.MIN_VALUE,
+                hasta != null ? (int) hasta.toEpochDay() : Integer.MAX_VALUE);
+        int filas = columnas.tamano();
+        ColumnasVentas.Bloque[] bloques = columnas.bloques();
+        int cantidadBloques = (filas + ColumnasVentas.TAMANO_BLOQUE - 1) / ColumnasVentas.TAMANO_BLOQUE;
+
+        // {clave, líneas, unidades, centavos}
+        List<Object[]> grupos = new ArrayList<>();
+        if (cantidadBloques > 0) {
+            Agregacion.Indice indice = Agregacion.Indice.para(columnas, consulta);
+            Agregacion.Grupos parcial = ForkJoinPool.commonPool()
+                    .invoke(new Agregacion(bloques, filas, 0, cantidadBloques, consulta, indice));
+            if (parcial.mapa == null) {
+                for (int k = 0; k < parcial.lineas.length; k++) {
+                    if (parcial.lineas[k] > 0) {
+                        grupos.add(new Object[]{indice.clave(k, consulta),
+                                parcial.lineas[k], parcial.unidades[k], parcial.centavos[k]});
+                    }
+                }
+            } else {
+                parcial.mapa.forEach((clave, v) -> grupos.add(new Object[]{clave, v[0], v[1], v[2]}));
+            }
+        }
+
+        grupos.sort((a, b) -> Long.compare((Long) b[3], (Long) a[3]));
+        List<Map<String, Object>> resultado = new ArrayList<>();
+        for (Object[] grupo : grupos.subList(0, Math.min(limite, grupos.size()))) {
+            Agregacion.Clave clave = (Agregacion.Clave) grupo[0];
+            Map<String, Object> item = new LinkedHashMap<>();
+            if (consulta.porProducto()) {
+                item.put("productoId", clave.producto());
+            }
+            if (consulta.porPuntoVenta()) {
+                item.put("pvId", clave.puntoVenta());
+            }
+            if (consulta.porPersona()) {
+                item.put("personaId", clave.persona());
+            }
+            if (consulta.porDia()) {
+                item.put("dia", LocalDate.ofEpochDay(clave.dia()));
+            }
+            item.put("lineas", grupo[1]);
+            item.put("unidades", grupo[2]);
+            item.put("ingresos", Centavos.aDecimal((Long) grupo[3]));
+            resultado.add(item);
+        }
+
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("lineasRecorridas", filas);
+        respuesta.put("grupos", grupos.size());
+        respuesta.put("duracionMs", (System.nanoTime() - inicio) / 1_000_000.0);
+        respuesta.put("resultado", resultado);
+        return respuesta;
+    }
+
+    public Map<String, Object> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("cargando", cargando);
+        estado.put("lineas", columnas.tamano());
+        estado.put("memoriaMb", columnas.bytes() / (1024 * 1024));
+        estado.put("duracionCargaMs", duracionCargaMs);
+        if (error != null) {
+            estado.put("error", error);
+        }
+        estado.put("intentosFallidos", intentosFallidos);
+        return estado;
+    }
+}
@@ -0,0 +1,86 @@
+package co.edu.tienda.infrastructure.analitica;
+
+/**
+ * Líneas de venta guardadas por columnas en arreglos primitivos, en bloques de
+ * {@link #TAMANO_BLOQUE} filas. Solo se agregan filas; un único hilo escribe a la vez
+ * (quien llama sincroniza) y los lectores ven hasta {@link #tamano()}, que se publica
+ * después de escribir cada fila.
+ */
+class ColumnasVentas {
+
+    static final int TAMANO_BLOQUE = 1 << 16;
+
+    static final class Bloque {
+        final int[] producto = new int[TAMANO_BLOQUE];
+        final int[] puntoVenta = new int[TAMANO_BLOQUE];
+        final int[] persona = new int[TAMANO_BLOQUE];
+        final int[] dia = new int[TAMANO_BLOQUE];
+        final int[] cantidad = new int[TAMANO_BLOQUE];
+        final long[] precioCentavos = new long[TAMANO_BLOQUE];
+    }
+
+    private volatile Bloque[] bloques = new Bloque[0];
+    private volatile int tamano;
+    // Rango de cada dimensión; se escriben antes de publicar "tamano"
+    private int maxProducto;
+    private int maxPuntoVenta;
+    private int maxPersona;
+    private int minDia = Integer.MAX_VALUE;
+    private int maxDia = Integer.MIN_VALUE;
+
+    void agregar(int producto, int puntoVenta, int persona, int dia, int cantidad, long precioCentavos) {
+        int fila = tamano;
+        int b = fila / TAMANO_BLOQUE;
+        if (b == bloques.length) {
+            Bloque[] nuevos = java.util.Arrays.copyOf(bloques, b + 1);
+            nuevos[b] = new Bloque();
+            bloques = nuevos;
+        }
+        Bloque bloque = bloques[b];
+        int i = fila % TAMANO_BLOQUE;
+        bloque.producto[i] = producto;
+        bloque.puntoVenta[i] = puntoVenta;
+        bloque.persona[i] = persona;
+        bloque.dia[i] = dia;
+        bloque.cantidad[i] = cantidad;
+        bloque.precioCentavos[i] = precioCentavos;
+        maxProducto = Math.max(maxProducto, producto);
+        maxPuntoVenta = Math.max(maxPuntoVenta, puntoVenta);
+        maxPersona = Math.max(maxPersona, persona);
+        minDia = Math.min(minDia, dia);
+        maxDia = Math.max(maxDia, dia);
+        tamano = fila + 1;
+    }
+
+    int tamano() {
+        return tamano;
+    }
+
+    Bloque[] bloques() {
+        return bloques;
+    }
+
+    int maxProducto() {
+        return maxProducto;
+    }
+
+    int maxPuntoVenta() {
+        return maxPuntoVenta;
+    }
+
+    int maxPersona() {
+        return maxPersona;
+    }
+
+    int minDia() {
+        return minDia;
+    }
+
+    int maxDia() {
+        return maxDia;
+    }
+
+    long bytes() {
+        return (long) bloques.length * TAMANO_BLOQUE * (5 * Integer.BYTES + Long.BYTES);
+    }
+}
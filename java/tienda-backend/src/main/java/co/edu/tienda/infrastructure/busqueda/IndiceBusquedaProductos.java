@@ -0,0 +1,286 @@
+package co.edu.tienda.infrastructure.busqueda;
+
+import co.edu.tienda.domain.entities.Producto;
+import co.edu.tienda.domain.events.ProductoCambiadoEvent;
+import co.edu.tienda.domain.valores.Centavos;
+import co.edu.tienda.infrastructure.hilos.FabricaHilos;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Búsqueda por prefijo sobre el nombre y la descripción de los productos para
+ * GET /api/productos/buscar: cada palabra de la consulta debe ser el comienzo de una
+ * palabra del producto, sin distinguir tildes ni mayúsculas ("cafe org" encuentra
+ * "Café Orgánico").
+ *
+ * El grueso del catálogo está en un {@link SegmentoBusqueda} inmutable que se arma en
+ * segundo plano desde PRODUCTO. Los productos que cambian después (guardar, actualizar,
+ * eliminar) se guardan aparte y tapan su versión del segmento hasta la siguiente carga,
+ * que se hace cada {@code recarga-ms} o cuando los cambios pasan de {@code max-cambios}.
+ */
+@Component
+public class IndiceBusquedaProductos {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceBusquedaProductos.class);
+
+    public static final int LIMITE_MAXIMO = 100;
+
+    // Texto de un producto que cambió; null en Cambio si se eliminó
+    private record Documento(String nombre, List<String> tokensNombre, List<String> tokensDescripcion,
+                             long precioCentavos) {
+    }
+
+    private record Cambio(long version, Documento documento) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FabricaHilos fabricaHilos;
+
+    @Value("${tienda.productos.busqueda.fetch-size:10000}")
+    private int fetchSize;
+
+    @Value("${tienda.productos.busqueda.max-cambios:10000}")
+    private int maxCambios;
+
+    private volatile SegmentoBusqueda segmento = SegmentoBusqueda.VACIO;
+    private final Map<Integer, Cambio> cambios = new ConcurrentHashMap<>();
+    private final AtomicLong versiones = new AtomicLong();
+
+    private final AtomicBoolean cargaPendiente = new AtomicBoolean();
+    private final AtomicLong consultas = new AtomicLong();
+    private volatile boolean cargado;
+    private volatile String error;
+    private volatile long duracionCargaMs = -1;
+    private volatile long ultimaCarga;
+    private ExecutorService cargador;
+
+    @PostConstruct
+    public void iniciar() {
+        // Las cargas salen de un hilo propio: con un catálogo grande tardan segundos
+        cargador = fabricaHilos.unHilo("busqueda-productos");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        programarCarga();
+    }
+
+    @Scheduled(initialDelayString = "${tienda.productos.busqueda.recarga-ms:900000}",
+            fixedDelayString = "${tienda.productos.busqueda.recarga-ms:900000}")
+    public void recargarPeriodicamente() {
+        programarCarga();
+    }
+
+    /**
+     * Programa una carga del segmento; si ya hay una esperando, no agrega otra.
+     */
+    public void programarCarga() {
+        if (cargaPendiente.compareAndSet(false, true)) {
+            cargador.execute(() -> {
+                cargaPendiente.set(false);
+                try {
+                    cargar();
+                } catch (Exception e) {
+                    error = e.getMessage();
+                    log.warn("No se pudo cargar el índice de búsqueda de productos; se consulta la BD: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void cargar() {
+        long inicio = System.nanoTime();
+        // Los cambios hasta esta versión ya se confirmaron, así que la lectura los ve
+        long version = versiones.get();
+        SegmentoBusqueda.Constructor constructor = new SegmentoBusqueda.Constructor();
+        jdbcTemplate.execute((Connection conexion) -> {
+            // Cursor de PostgreSQL: requiere autocommit desactivado
+            boolean autoCommit = conexion.getAutoCommit();
+            conexion.setAutoCommit(false);
+            try (PreparedStatement ps = conexion.prepareStatement(
+                    "SELECT P_ID, P_NOMBRE, P_DESCRIPCION, P_PRECIO FROM PRODUCTO ORDER BY P_ID",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        constructor.agregar(rs.getInt(1), rs.getString(2), rs.getString(3),
+                                Centavos.de(rs.getBigDecimal(4)));
+                    }
+                }
+            } finally {
+                conexion.commit();
+                conexion.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+        segmento = constructor.construir();
+        for (Map.Entry<Integer, Cambio> entrada : cambios.entrySet()) {
+            if (entrada.getValue().version() <= version) {
+                cambios.remove(entrada.getKey(), entrada.getValue());
+            }
+        }
+        cargado = true;
+        error = null;
+        ultimaCarga = System.currentTimeMillis();
+        duracionCargaMs = (System.nanoTime() - inicio) / 1_000_000;
+        log.info("Índice de búsqueda de productos: {} productos y {} términos en {} ms",
+                segmento.tamano(), segmento.cantidadTerminos(), duracionCargaMs);
+    }
+
+    @TransactionalEventListener
+    public void alCambiarProducto(ProductoCambiadoEvent event) {
+        Producto producto = event.getProducto();
+        Documento documento = producto == null ? null : new Documento(producto.getPNombre(),
+                SegmentoBusqueda.tokens(producto.getPNombre()), SegmentoBusqueda.tokens(producto.getPDescripcion()),
+                Centavos.de(producto.getPPrecio()));
+        long version = versiones.incrementAndGet();
+        // Dos cambios seguidos del mismo producto: queda el de versión más alta
+        cambios.merge(event.getProductoId(), new Cambio(version, documento),
+                (anterior, nuevo) -> nuevo.version() > anterior.version() ? nuevo : anterior);
+        if (cambios.size() > maxCambios) {
+            programarCarga();
+        }
+    }
+
+    public boolean isCargado() {
+        return cargado;
+    }
+
+    /**
+     * Hasta {@code limite} productos {id, nombre, precio}: primero los que coinciden solo
+     * con el nombre y después los que necesitan la descripción; dentro de cada grupo, por ID.
+     */
+    public List<Map<String, Object>> buscar(String texto, int limite) {
+        List<String> consulta = new ArrayList<>(new LinkedHashSet<>(SegmentoBusqueda.tokens(texto)));
+        if (consulta.isEmpty() || limite <= 0) {
+            return new ArrayList<>();
+        }
+        consultas.incrementAndGet();
+        SegmentoBusqueda actual = segmento;
+
+        // Los productos cambiados no se miran en el segmento; se comparan uno por uno
+        Map<Integer, Documento> documentos = new HashMap<>();
+        List<Integer> cambiadosNombre = new ArrayList<>();
+        List<Integer> cambiadosDescripcion = new ArrayList<>();
+        for (Map.Entry<Integer, Cambio> entrada : cambios.entrySet()) {
+            Documento documento = entrada.getValue().documento();
+            if (documento == null) {
+                continue;
+            }
+            int coincidencia = coincidencia(documento, consulta);
+            if (coincidencia > 0) {
+                documentos.put(entrada.getKey(), documento);
+                (coincidencia == 1 ? cambiadosNombre : cambiadosDescripcion).add(entrada.getKey());
+            }
+        }
+        Collections.sort(cambiadosNombre);
+        Collections.sort(cambiadosDescripcion);
+
+        int[][] rangos = new int[consulta.size()][];
+        for (int i = 0; i < rangos.length; i++) {
+            rangos[i] = actual.rango(consulta.get(i));
+        }
+        List<Integer> enNombre = new ArrayList<>();
+        actual.buscar(rangos, true, limite, cambios::containsKey, enNombre);
+        List<Integer> enDescripcion = new ArrayList<>();
+        if (enNombre.size() < limite) {
+            actual.buscar(rangos, false, limite - enNombre.size(), cambios::containsKey, enDescripcion);
+        }
+
+        List<Integer> ids = unir(enNombre, cambiadosNombre, limite);
+        ids.addAll(unir(enDescripcion, cambiadosDescripcion, limite - ids.size()));
+
+        List<Map<String, Object>> resultado = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Documento documento = documentos.get(id);
+            int posicion = documento == null ? actual.posicion(id) : -1;
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", id);
+            item.put("nombre", documento != null ? documento.nombre() : actual.nombre(posicion));
+            item.put("precio", Centavos.aDecimal(documento != null ? documento.precioCentavos() : actual.precio(posicion)));
+            resultado.add(item);
+        }
+        return resultado;
+    }
+
+    // 0: no coincide; 1: coincide con el nombre; 2: necesita la descripción
+    private static int coincidencia(Documento documento, List<String> consulta) {
+        boolean todosEnNombre = true;
+        for (String prefijo : consulta) {
+            if (!algunoEmpiezaCon(documento.tokensNombre(), prefijo)) {
+                todosEnNombre = false;
+                if (!algunoEmpiezaCon(documento.tokensDescripcion(), prefijo)) {
+                    return 0;
+                }
+            }
+        }
+        return todosEnNombre ? 1 : 2;
+    }
+
+    private static boolean algunoEmpiezaCon(List<String> tokens, String prefijo) {
+        for (String token : tokens) {
+            if (token.startsWith(prefijo)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Mezcla dos listas ordenadas y se queda con los primeros "limite"
+    private static List<Integer> unir(List<Integer> a, List<Integer> b, int limite) {
+        List<Integer> union = new ArrayList<>(Math.min(limite, a.size() + b.size()));
+        int i = 0;
+        int j = 0;
+        while (union.size() < limite && (i < a.size() || j < b.size())) {
+            if (j == b.size() || (i < a.size() && a.get(i) < b.get(j))) {
+                union.add(a.get(i++));
+            } else {
+                union.add(b.get(j++));
+            }
+        }
+        return union;
+    }
+
+    public Map<String, Object> estado() {
+        SegmentoBusqueda actual = segmento;
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("cargado", cargado);
+        estado.put("productos", actual.tamano());
+        estado.put("terminos", actual.cantidadTerminos());
+        estado.put("cambiosSinCargar", cambios.size());
+        estado.put("maxCambios", maxCambios);
+        estado.put("consultas", consultas.get());
+        estado.put("duracionCargaMs", duracionCargaMs);
+        estado.put("ultimaCarga", ultimaCarga > 0 ? Instant.ofEpochMilli(ultimaCarga).toString() : null);
+        estado.put("error", error);
+        return estado;
+    }
+
+    @PreDestroy
+    public void detener() {
+        cargador.shutdownNow();
+    }
+}
@@ -0,0 +1,345 @@
+package co.edu.tienda.infrastructure.busqueda;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Índice invertido inmutable de los nombres y descripciones de los productos.
+ *
+ * Los términos están ordenados, así que las palabras que empiezan con un prefijo son un
+ * rango contiguo de términos. Por término se guardan los IDs de producto (ordenados) que
+ * lo tienen en el nombre y en la descripción; por producto, los términos que tiene
+ * (también ordenados), para verificar el resto de la consulta sin volver a los textos.
+ */
+final class SegmentoBusqueda {
+
+    static final SegmentoBusqueda VACIO = new Constructor().construir();
+
+    private static final int[] SIN_PRODUCTOS = new int[0];
+
+    private final String[] terminos;
+    private final int[][] enNombre;
+    private final int[][] enDescripcion;
+
+    private final int[] ids;
+    private final int[][] terminosNombre;
+    private final int[][] terminosDescripcion;
+    private final String[] nombres;
+    private final long[] precios;
+
+    private SegmentoBusqueda(String[] terminos, int[][] enNombre, int[][] enDescripcion, int[] ids,
+                             int[][] terminosNombre, int[][] terminosDescripcion, String[] nombres, long[] precios) {
+        this.terminos = terminos;
+        this.enNombre = enNombre;
+        this.enDescripcion = enDescripcion;
+        this.ids = ids;
+        this.terminosNombre = terminosNombre;
+        this.terminosDescripcion = terminosDescripcion;
+        this.nombres = nombres;
+        this.precios = precios;
+    }
+
+    /**
+     * Palabras del texto en minúsculas y sin tildes ("Café-Orgánico" → cafe, organico).
+     */
+    static List<String> tokens(String texto) {
+        List<String> tokens = new ArrayList<>();
+        if (texto == null || texto.isEmpty()) {
+            return tokens;
+        }
+        String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder actual = new StringBuilder();
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                actual.append(Character.toLowerCase(c));
+            } else if (actual.length() > 0) {
+                tokens.add(actual.toString());
+                actual.setLength(0);
+            }
+        }
+        if (actual.length() > 0) {
+            tokens.add(actual.toString());
+        }
+        return tokens;
+    }
+
+    int tamano() {
+        return ids.length;
+    }
+
+    int cantidadTerminos() {
+        return terminos.length;
+    }
+
+    int posicion(int id) {
+        return Arrays.binarySearch(ids, id);
+    }
+
+    String nombre(int posicion) {
+        return nombres[posicion];
+    }
+
+    long precio(int posicion) {
+        return precios[posicion];
+    }
+
+    /**
+     * Rango [desde, hasta) de los términos que empiezan con {@code prefijo}.
+     */
+    int[] rango(String prefijo) {
+        return new int[]{insercion(prefijo), insercion(prefijo + '\uffff')};
+    }
+
+    private int insercion(String clave) {
+        int i = Arrays.binarySearch(terminos, clave);
+        return i >= 0 ? i : -(i + 1);
+    }
+
+    /**
+     * Agrega a {@code salida}, de menor a mayor ID y hasta {@code maximo}, los productos en
+     * los que cada rango de la consulta tiene un término: con {@code soloNombre}, los que
+     * coinciden solo por el nombre; si no, los que necesitan la descripción para coincidir.
+     * Se saltan los productos de {@code ignorar}.
+     */
+    void buscar(int[][] rangos, boolean soloNombre, int maximo, IntPredicate ignorar, List<Integer> salida) {
+        // El rango con menos productos guía el recorrido; los demás se verifican por producto
+        int guia = -1;
+        long menor = Long.MAX_VALUE;
+        for (int i = 0; i < rangos.length; i++) {
+            long n = productos(rangos[i], soloNombre, menor);
+            if (n < menor) {
+                menor = n;
+                guia = i;
+            }
+        }
+        if (menor == 0) {
+            return;
+        }
+
+        List<int[]> listas = new ArrayList<>();
+        for (int t = rangos[guia][0]; t < rangos[guia][1]; t++) {
+            listas.add(enNombre[t]);
+            if (!soloNombre) {
+                listas.add(enDescripcion[t]);
+            }
+        }
+        Mezcla mezcla = new Mezcla(listas);
+        int anterior = -1;
+        int id;
+        int agregados = 0;
+        while (agregados < maximo && (id = mezcla.siguiente()) >= 0) {
+            if (id == anterior || ignorar.test(id)) {
+                continue;
+            }
+            anterior = id;
+            int posicion = posicion(id);
+            boolean todosEnNombre = true;
+            boolean todos = true;
+            for (int[] rango : rangos) {
+                if (!contiene(terminosNombre[posicion], rango)) {
+                    todosEnNombre = false;
+                    if (soloNombre || !contiene(terminosDescripcion[posicion], rango)) {
+                        todos = false;
+                        break;
+                    }
+                }
+            }
+            if (soloNombre ? todosEnNombre : todos && !todosEnNombre) {
+                salida.add(id);
+                agregados++;
+            }
+        }
+    }
+
+    // Productos en el rango (con repetidos); deja de contar al pasar "tope"
+    private long productos(int[] rango, boolean soloNombre, long tope) {
+        long n = 0;
+        for (int t = rango[0]; t < rango[1] && n < tope; t++) {
+            n += enNombre[t].length;
+            if (!soloNombre) {
+                n += enDescripcion[t].length;
+            }
+        }
+        return n;
+    }
+
+    private static boolean contiene(int[] terminosOrdenados, int[] rango) {
+        int i = Arrays.binarySearch(terminosOrdenados, rango[0]);
+        if (i >= 0) {
+            return true;
+        }
+        int siguiente = -(i + 1);
+        return siguiente < terminosOrdenados.length && terminosOrdenados[siguiente] < rango[1];
+    }
+
+    /**
+     * Recorre en orden la unión de varias listas ordenadas de IDs (con repetidos), con un
+     * montículo de cursores: cuesta lo que se consume, no el tamaño de las listas.
+     */
+    private static final class Mezcla {
+        private final int[][] listas;
+        private final int[] cursor;
+        private final int[] monticulo;
+        private int tamano;
+
+        Mezcla(List<int[]> listas) {
+            this.listas = new int[listas.size()][];
+            this.cursor = new int[listas.size()];
+            this.monticulo = new int[listas.size()];
+            for (int i = 0; i < listas.size(); i++) {
+                this.listas[i] = listas.get(i);
+                if (this.listas[i].length > 0) {
+                    monticulo[tamano++] = i;
+                }
+            }
+            for (int i = tamano / 2 - 1; i >= 0; i--) {
+                bajar(i);
+            }
+        }
+
+        int siguiente() {
+            if (tamano == 0) {
+                return -1;
+            }
+            int lista = monticulo[0];
+            int id = listas[lista][cursor[lista]++];
+            if (cursor[lista] == listas[lista].length) {
+                monticulo[0] = monticulo[--tamano];
+            }
+            bajar(0);
+            return id;
+        }
+
+        private int actual(int posicionMonticulo) {
+            int lista = monticulo[posicionMonticulo];
+            return listas[lista][cursor[lista]];
+        }
+
+        private void bajar(int i) {
+            while (true) {
+                int menor = i;
+                int izquierda = 2 * i + 1;
+                int derecha = izquierda + 1;
+                if (izquierda < tamano && actual(izquierda) < actual(menor)) {
+                    menor = izquierda;
+                }
+                if (derecha < tamano && actual(derecha) < actual(menor)) {
+                    menor = derecha;
+                }
+                if (menor == i) {
+                    return;
+                }
+                int tmp = monticulo[i];
+                monticulo[i] = monticulo[menor];
+                monticulo[menor] = tmp;
+                i = menor;
+            }
+        }
+    }
+
+    /**
+     * Arma un segmento a partir de los productos, que deben llegar en orden de ID.
+     * Mientras se arma, cada término tiene un número provisional (orden de aparición).
+     */
+    static final class Constructor {
+        private final Map<String, Integer> provisionales = new HashMap<>();
+        private final List<String> terminos = new ArrayList<>();
+        private int[] ids = new int[1024];
+        private final List<int[]> terminosNombre = new ArrayList<>();
+        private final List<int[]> terminosDescripcion = new ArrayList<>();
+        private final List<String> nombres = new ArrayList<>();
+        private long[] precios = new long[1024];
+        private int tamano;
+
+        void agregar(int id, String nombre, String descripcion, long precioCentavos) {
+            if (tamano > 0 && id <= ids[tamano - 1]) {
+                throw new IllegalArgumentException("Los productos deben llegar en orden de ID: " + id);
+            }
+            if (tamano == ids.length) {
+                ids = Arrays.copyOf(ids, tamano * 2);
+                precios = Arrays.copyOf(precios, tamano * 2);
+            }
+            ids[tamano] = id;
+            precios[tamano] = precioCentavos;
+            terminosNombre.add(provisionales(tokens(nombre)));
+            terminosDescripcion.add(provisionales(tokens(descripcion)));
+            nombres.add(nombre);
+            tamano++;
+        }
+
+        private int[] provisionales(List<String> tokens) {
+            int[] numeros = new int[tokens.size()];
+            for (int i = 0; i < numeros.length; i++) {
+                numeros[i] = provisionales.computeIfAbsent(tokens.get(i), t -> {
+                    terminos.add(t);
+                    return terminos.size() - 1;
+                });
+            }
+            return numeros;
+        }
+
+        SegmentoBusqueda construir() {
+            String[] ordenados = terminos.toArray(new String[0]);
+            Arrays.sort(ordenados);
+            int[] definitivo = new int[ordenados.length];
+            for (int i = 0; i < ordenados.length; i++) {
+                definitivo[provisionales.get(ordenados[i])] = i;
+            }
+
+            int[][] porNombre = renumerar(terminosNombre, definitivo);
+            int[][] porDescripcion = renumerar(terminosDescripcion, definitivo);
+            int[] productos = Arrays.copyOf(ids, tamano);
+            return new SegmentoBusqueda(ordenados,
+                    invertir(porNombre, productos, ordenados.length),
+                    invertir(porDescripcion, productos, ordenados.length),
+                    productos, porNombre, porDescripcion,
+                    nombres.toArray(new String[0]), Arrays.copyOf(precios, tamano));
+        }
+
+        // Términos de cada producto con su número definitivo, ordenados y sin repetir
+        private static int[][] renumerar(List<int[]> porProducto, int[] definitivo) {
+            int[][] resultado = new int[porProducto.size()][];
+            for (int p = 0; p < resultado.length; p++) {
+                int[] numeros = porProducto.get(p);
+                for (int i = 0; i < numeros.length; i++) {
+                    numeros[i] = definitivo[numeros[i]];
+                }
+                Arrays.sort(numeros);
+                int distintos = 0;
+                for (int i = 0; i < numeros.length; i++) {
+                    if (distintos == 0 || numeros[i] != numeros[distintos - 1]) {
+                        numeros[distintos++] = numeros[i];
+                    }
+                }
+                resultado[p] = distintos == numeros.length ? numeros : Arrays.copyOf(numeros, distintos);
+            }
+            return resultado;
+        }
+
+        // Productos por término; salen ordenados porque los productos se recorren en orden de ID
+        private static int[][] invertir(int[][] porProducto, int[] ids, int cantidadTerminos) {
+            int[] cuenta = new int[cantidadTerminos];
+            for (int[] numeros : porProducto) {
+                for (int t : numeros) {
+                    cuenta[t]++;
+                }
+            }
+            int[][] porTermino = new int[cantidadTerminos][];
+            for (int t = 0; t < cantidadTerminos; t++) {
+                porTermino[t] = cuenta[t] == 0 ? SIN_PRODUCTOS : new int[cuenta[t]];
+                cuenta[t] = 0;
+            }
+            for (int p = 0; p < porProducto.length; p++) {
+                for (int t : porProducto[p]) {
+                    porTermino[t][cuenta[t]++] = ids[p];
+                }
+            }
+            return porTermino;
+        }
+    }
+}
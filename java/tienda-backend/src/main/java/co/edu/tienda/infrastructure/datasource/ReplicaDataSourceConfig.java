@@ -0,0 +1,103 @@
+package co.edu.tienda.infrastructure.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Enrutamiento lectura/escritura: las transacciones readOnly van a las réplicas
+ * configuradas en tienda.datasource.replica.urls y las escrituras al maestro
+ * (spring.datasource.*). Sin réplicas configuradas esta clase no se activa y
+ * Spring Boot crea el DataSource único de siempre.
+ *
+ * Supone spring.jpa.open-in-view=false: con open-in-view la conexión de la primera
+ * transacción de un request queda ligada a su EntityManager, y si esa transacción era
+ * readOnly las escrituras posteriores del mismo request irían a la réplica.
+ */
+@Configuration
+@ConditionalOnExpression("!'${tienda.datasource.replica.urls:}'.isBlank()")
+public class ReplicaDataSourceConfig {
+
+    @Value("${tienda.datasource.replica.urls}")
+    private String replicaUrls;
+
+    @Value("${tienda.datasource.replica.username:${spring.datasource.username}}")
+    private String replicaUsername;
+
+    @Value("${tienda.datasource.replica.password:${spring.datasource.password}}")
+    private String replicaPassword;
+
+    @Value("${tienda.datasource.replica.max-pool-size:10}")
+    private int replicaMaxPoolSize;
+
+    @Value("${tienda.datasource.replica.max-lag-ms:5000}")
+    private long maxLagMs;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource ds = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName("primary");
+        return ds;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(DataSourceProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new ReplicaLagMonitor(replicaDataSources(properties, meterRegistry.getIfAvailable()), maxLagMs);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaLagMonitor replicaLagMonitor) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(replicaLagMonitor);
+
+        Map<Object, Object> destinos = new HashMap<>(replicaLagMonitor.replicas());
+        destinos.put(ReplicaRoutingDataSource.PRIMARY, primaryDataSource);
+        routing.setTargetDataSources(destinos);
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+
+        // La conexión real se pide en la primera sentencia, cuando ya se sabe si la transacción es readOnly
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private Map<String, DataSource> replicaDataSources(DataSourceProperties properties, MeterRegistry meterRegistry) {
+        List<String> urls = Arrays.stream(replicaUrls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource ds = new HikariDataSource();
+            ds.setPoolName("replica-" + i);
+            ds.setJdbcUrl(urls.get(i));
+            ds.setUsername(replicaUsername);
+            ds.setPassword(replicaPassword);
+            ds.setDriverClassName(properties.determineDriverClassName());
+            ds.setMaximumPoolSize(replicaMaxPoolSize);
+            ds.setReadOnly(true);
+            // Spring Boot instrumenta los pools que son beans; estos se crean aquí
+            if (meterRegistry != null) {
+                ds.setMetricRegistry(meterRegistry);
+            }
+            replicas.put("replica-" + i, ds);
+        }
+        return replicas;
+    }
+}
@@ -0,0 +1,107 @@
+package co.edu.tienda.infrastructure.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mide periódicamente el lag de replicación de cada réplica y mantiene la lista
+ * de réplicas aptas para lecturas. Una réplica que supera el límite configurado
+ * (o que no responde) sale de la rotación hasta que vuelva a estar al día.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    // Lag en milisegundos; 0 si la réplica ya aplicó todo lo que recibió del maestro
+    private static final String LAG_QUERY =
+            "SELECT CASE " +
+            "WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    private final Map<String, DataSource> dataSources;
+    private final Map<String, JdbcTemplate> replicas = new LinkedHashMap<>();
+    private final Map<String, Long> lagMs = new ConcurrentHashMap<>();
+    private final long maxLagMs;
+
+    private volatile List<String> disponibles = List.of();
+
+    public ReplicaLagMonitor(Map<String, DataSource> replicas, long maxLagMs) {
+        this.dataSources = Collections.unmodifiableMap(new LinkedHashMap<>(replicas));
+        replicas.forEach((nombre, ds) -> {
+            JdbcTemplate jdbc = new JdbcTemplate(ds);
+            jdbc.setQueryTimeout(2);
+            this.replicas.put(nombre, jdbc);
+        });
+        this.maxLagMs = maxLagMs;
+    }
+
+    public Map<String, DataSource> replicas() {
+        return dataSources;
+    }
+
+    public List<String> replicasDisponibles() {
+        return disponibles;
+    }
+
+    @Scheduled(fixedDelayString = "${tienda.datasource.replica.lag-check-interval-ms:1000}")
+    public void medirLag() {
+        List<String> aptas = new ArrayList<>();
+        for (Map.Entry<String, JdbcTemplate> entry : replicas.entrySet()) {
+            String nombre = entry.getKey();
+            try {
+                Number lag = entry.getValue().queryForObject(LAG_QUERY, Number.class);
+                long valor = lag != null ? lag.longValue() : 0L;
+                lagMs.put(nombre, valor);
+                if (valor <= maxLagMs) {
+                    aptas.add(nombre);
+                }
+            } catch (Exception e) {
+                // Réplica caída o inaccesible: fuera de la rotación
+                lagMs.put(nombre, -1L);
+                log.debug("No se pudo medir el lag de {}: {}", nombre, e.getMessage());
+            }
+        }
+
+        if (!aptas.equals(disponibles)) {
+            log.info("Réplicas disponibles para lectura: {} (lag máximo {} ms)", aptas, maxLagMs);
+        }
+        disponibles = List.copyOf(aptas);
+    }
+
+    /**
+     * Estado actual de cada réplica: lag medido (-1 si no responde) y si está en rotación.
+     */
+    public Map<String, Object> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        for (String nombre : replicas.keySet()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("lagMs", lagMs.getOrDefault(nombre, -1L));
+            item.put("disponible", disponibles.contains(nombre));
+            estado.put(nombre, item);
+        }
+        estado.put("maxLagMs", maxLagMs);
+        return estado;
+    }
+
+    /**
+     * Cierra los pools de las réplicas al apagar la aplicación (destroy method inferido).
+     */
+    public void close() {
+        for (DataSource ds : dataSources.values()) {
+            if (ds instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Error cerrando el pool de una réplica: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package co.edu.tienda.infrastructure.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSource que envía las transacciones de solo lectura a las réplicas
+ * (hot standby) y todo lo demás al maestro.
+ * Debe usarse detrás de un LazyConnectionDataSourceProxy para que la decisión
+ * se tome cuando la transacción ya está marcada como readOnly.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final AtomicInteger contador = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+
+        // Réplicas con lag dentro del límite; si no hay ninguna, se lee del maestro
+        List<String> disponibles = lagMonitor.replicasDisponibles();
+        if (disponibles.isEmpty()) {
+            return PRIMARY;
+        }
+        int indice = Math.floorMod(contador.getAndIncrement(), disponibles.size());
+        return disponibles.get(indice);
+    }
+}
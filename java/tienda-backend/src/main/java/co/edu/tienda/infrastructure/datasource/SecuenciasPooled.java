@@ -0,0 +1,97 @@
+package co.edu.tienda.infrastructure.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Deja las secuencias de VENTA y VENTA_DETALLE listas para el optimizador pooled
+ * de Hibernate: INCREMENT BY igual al allocationSize de las entidades y valor
+ * actual nunca por debajo del MAX(id) de la tabla.
+ *
+ * Se ejecuta al arrancar y antes de crear el EntityManagerFactory: Hibernate compara el
+ * allocationSize con el INCREMENT BY de la secuencia al construirlo y, con las secuencias
+ * SERIAL originales (INCREMENT 1), no arrancaría. Así una BD existente no necesita
+ * reparar estas secuencias a mano con /api/util/reset-sequences.
+ */
+@Component
+public class SecuenciasPooled {
+
+    private static final Logger log = LoggerFactory.getLogger(SecuenciasPooled.class);
+
+    // Debe coincidir con allocationSize de @SequenceGenerator en Venta y VentaDetalle
+    public static final int ALLOCATION_SIZE = 50;
+
+    // secuencia -> {tabla, columna}
+    private static final Map<String, String[]> SECUENCIAS = Map.of(
+            "venta_v_id_seq", new String[]{"venta", "v_id"},
+            "venta_detalle_vd_id_seq", new String[]{"venta_detalle", "vd_id"}
+    );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${tienda.sequences.align-on-startup:true}")
+    private boolean alinearAlArrancar;
+
+    /**
+     * Hace que el EntityManagerFactory dependa de este bean (se crea y alinea antes).
+     */
+    @Configuration(proxyBeanMethods = false)
+    static class AntesDeHibernate {
+
+        @Bean
+        static EntityManagerFactoryDependsOnPostProcessor secuenciasAntesDeHibernate() {
+            return new EntityManagerFactoryDependsOnPostProcessor(SecuenciasPooled.class);
+        }
+    }
+
+    @PostConstruct
+    public void alinearAlArrancar() {
+        if (!alinearAlArrancar) {
+            return;
+        }
+        try {
+            log.info("Secuencias pooled alineadas: {}", alinear());
+        } catch (Exception e) {
+            log.warn("No se pudieron alinear las secuencias pooled: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ajusta INCREMENT BY y adelanta la secuencia hasta MAX(id) si quedó atrás.
+     * Nunca retrocede una secuencia: otros nodos pueden tener rangos ya reservados.
+     * Cada sentencia se confirma sola (setval no se revierte con la transacción, así que
+     * agruparlas no daría atomicidad); llamada desde una transacción, participa en ella.
+     */
+    public Map<String, Long> alinear() {
+        Map<String, Long> valores = new LinkedHashMap<>();
+        for (Map.Entry<String, String[]> entry : SECUENCIAS.entrySet()) {
+            String secuencia = entry.getKey();
+            String tabla = entry.getValue()[0];
+            String columna = entry.getValue()[1];
+
+            Long incremento = jdbcTemplate.queryForObject(
+                    "SELECT increment_by FROM pg_sequences WHERE sequencename = ?", Long.class, secuencia);
+            if (incremento == null || incremento != ALLOCATION_SIZE) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + secuencia + " INCREMENT BY " + ALLOCATION_SIZE);
+            }
+
+            Long valor = jdbcTemplate.queryForObject(
+                    "SELECT setval('" + secuencia + "', GREATEST(COALESCE((SELECT MAX(" + columna + ") FROM " + tabla + "), 1), " +
+                    "(SELECT last_value FROM " + secuencia + ")), true)", Long.class);
+            valores.put(secuencia, valor);
+        }
+        return valores;
+    }
+}
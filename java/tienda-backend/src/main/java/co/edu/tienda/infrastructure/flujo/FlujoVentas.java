@@ -0,0 +1,304 @@
+package co.edu.tienda.infrastructure.flujo;
+
+import co.edu.tienda.domain.entities.Venta;
+import co.edu.tienda.domain.events.VentaCreadaEvent;
+import co.edu.tienda.infrastructure.hilos.FabricaHilos;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flujo SSE de ventas confirmadas para GET /api/ventas/stream.
+ *
+ * Cada venta se serializa una sola vez y, después del commit, se ofrece a la cola de
+ * cada suscriptor sin bloquear: publicar nunca espera a un cliente. Cada suscriptor con
+ * eventos en cola tiene su propio hilo de envío (a lo sumo uno), así que un cliente que
+ * dejó de leer solo bloquea el suyo. El cliente cuya cola se llena, o cuyo envío lleva
+ * más de {@code plazoEnvioMs}, se desconecta, y al reconectarse con Last-Event-ID
+ * recupera lo que se perdió si todavía está en el historial.
+ *
+ * Los IDs de evento son "inicio-secuencia": la secuencia es de este nodo y empieza de
+ * nuevo al reiniciar, así que un ID de otro arranque recibe un evento "reinicio" (el
+ * cliente debe volver a pedir GET /api/ventas).
+ */
+@Component
+public class FlujoVentas {
+
+    private static final Logger log = LoggerFactory.getLogger(FlujoVentas.class);
+
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    // Se encola como cualquier evento para no escribir en paralelo con un envío
+    private static final Evento LATIDO = new Evento(-1, null, null, null);
+
+    private record Evento(long secuencia, String id, String nombre, String datos) {
+    }
+
+    private static class Suscriptor {
+        private final SseEmitter emitter;
+        private final BlockingQueue<Evento> cola;
+        private final AtomicBoolean programado = new AtomicBoolean();
+        private volatile boolean cerrado;
+        // System.nanoTime() al empezar el envío en curso; 0 si no hay ninguno
+        private volatile long enviandoDesde;
+
+        Suscriptor(SseEmitter emitter, int capacidad) {
+            this.emitter = emitter;
+            this.cola = new ArrayBlockingQueue<>(capacidad);
+        }
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private FabricaHilos fabricaHilos;
+
+    @Value("${tienda.ventas.stream.buffer:1000}")
+    private int buffer;
+
+    @Value("${tienda.ventas.stream.historial:10000}")
+    private int tamanoHistorial;
+
+    @Value("${tienda.ventas.stream.max-suscriptores:1000}")
+    private int maxSuscriptores;
+
+    @Value("${tienda.ventas.stream.plazo-envio-ms:10000}")
+    private long plazoEnvioMs;
+
+    private final String inicio = Long.toString(System.currentTimeMillis(), 36);
+    private final List<Suscriptor> suscriptores = new CopyOnWriteArrayList<>();
+    private final AtomicLong enviados = new AtomicLong();
+    private final AtomicLong desalojados = new AtomicLong();
+
+    // Historial circular y secuencia; se modifican solo con el monitor de este objeto
+    private Evento[] historial;
+    private long secuencia;
+
+    private ExecutorService envios;
+
+    @PostConstruct
+    public void iniciar() {
+        historial = new Evento[tamanoHistorial];
+        envios = fabricaHilos.porTarea("ventas-sse");
+    }
+
+    @EventListener
+    public void alCrearVenta(VentaCreadaEvent event) {
+        // Se arma dentro de la transacción: en los lotes persona y punto de venta son proxies
+        Venta venta = event.getVenta();
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("id", venta.getVId());
+        resumen.put("fecha", venta.getVFecha().format(FORMATO_FECHA));
+        resumen.put("pId", venta.getPId());
+        resumen.put("pvId", venta.getPvId());
+        resumen.put("total", venta.getTotal());
+        resumen.put("numLineas", venta.getNumLineas());
+        resumen.put("origen", event.getOrigen().name());
+
+        String datos;
+        try {
+            datos = objectMapper.writeValueAsString(resumen);
+        } catch (JsonProcessingException e) {
+            log.warn("No se pudo serializar la venta {} para el flujo: {}", venta.getVId(), e.getMessage());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publicar(datos);
+            }
+        });
+    }
+
+    private synchronized void publicar(String datos) {
+        secuencia++;
+        Evento evento = new Evento(secuencia, inicio + "-" + secuencia, "venta", datos);
+        historial[(int) (secuencia % tamanoHistorial)] = evento;
+        for (Suscriptor suscriptor : suscriptores) {
+            ofrecer(suscriptor, evento);
+        }
+    }
+
+    /**
+     * Nueva suscripción. Con {@code ultimoId} (Last-Event-ID) primero se reenvía lo que
+     * vino después de ese evento. Devuelve null si ya hay demasiados suscriptores.
+     */
+    public SseEmitter suscribir(String ultimoId) {
+        if (suscriptores.size() >= maxSuscriptores) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(0L);
+        Suscriptor suscriptor;
+        synchronized (this) {
+            List<Evento> perdidos = new ArrayList<>();
+            boolean reinicio = ultimoId != null && !recuperar(ultimoId, perdidos);
+
+            // La cola alcanza para lo que hay que reenviar más el margen normal
+            suscriptor = new Suscriptor(emitter, buffer + perdidos.size() + 1);
+            if (reinicio) {
+                suscriptor.cola.add(new Evento(secuencia, inicio + "-" + secuencia, "reinicio", "{}"));
+            }
+            suscriptor.cola.addAll(perdidos);
+            suscriptores.add(suscriptor);
+        }
+        emitter.onCompletion(() -> cerrar(suscriptor));
+        emitter.onTimeout(() -> cerrar(suscriptor));
+        emitter.onError(e -> cerrar(suscriptor));
+        programar(suscriptor);
+        return emitter;
+    }
+
+    // Eventos posteriores a "ultimoId"; false si ese ID ya no está en el historial o es de otro arranque
+    private boolean recuperar(String ultimoId, List<Evento> perdidos) {
+        int guion = ultimoId.lastIndexOf('-');
+        if (guion < 0 || !ultimoId.substring(0, guion).equals(inicio)) {
+            return false;
+        }
+        long desde;
+        try {
+            desde = Long.parseLong(ultimoId.substring(guion + 1));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (desde > secuencia || secuencia - desde > tamanoHistorial) {
+            return false;
+        }
+        for (long s = desde + 1; s <= secuencia; s++) {
+            perdidos.add(historial[(int) (s % tamanoHistorial)]);
+        }
+        return true;
+    }
+
+    private void ofrecer(Suscriptor suscriptor, Evento evento) {
+        if (suscriptor.cerrado) {
+            return;
+        }
+        if (suscriptor.cola.offer(evento)) {
+            programar(suscriptor);
+        } else if (evento != LATIDO) {
+            desalojar(suscriptor);
+        }
+    }
+
+    // Cliente lento: se desconecta y, si vuelve a tiempo, retoma desde el historial
+    private void desalojar(Suscriptor suscriptor) {
+        desalojados.incrementAndGet();
+        cerrar(suscriptor);
+        // complete() espera si hay un envío en curso a ese cliente: fuera del hilo que publica
+        try {
+            envios.execute(suscriptor.emitter::complete);
+        } catch (RejectedExecutionException e) {
+            suscriptor.emitter.complete();
+        }
+    }
+
+    private void programar(Suscriptor suscriptor) {
+        if (suscriptor.programado.compareAndSet(false, true)) {
+            try {
+                envios.execute(() -> vaciar(suscriptor));
+            } catch (RejectedExecutionException e) {
+                suscriptor.programado.set(false);
+            }
+        }
+    }
+
+    // Un solo hilo a la vez por suscriptor ("programado"), así los eventos salen en orden
+    private void vaciar(Suscriptor suscriptor) {
+        while (true) {
+            Evento evento;
+            while (!suscriptor.cerrado && (evento = suscriptor.cola.poll()) != null) {
+                suscriptor.enviandoDesde = System.nanoTime();
+                try {
+                    if (evento == LATIDO) {
+                        suscriptor.emitter.send(SseEmitter.event().comment("latido"));
+                    } else {
+                        suscriptor.emitter.send(SseEmitter.event().id(evento.id()).name(evento.nombre()).data(evento.datos()));
+                        enviados.incrementAndGet();
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    cerrar(suscriptor);
+                    suscriptor.emitter.completeWithError(e);
+                    return;
+                } finally {
+                    suscriptor.enviandoDesde = 0;
+                }
+            }
+            suscriptor.programado.set(false);
+            if (suscriptor.cerrado || suscriptor.cola.isEmpty() || !suscriptor.programado.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private void cerrar(Suscriptor suscriptor) {
+        suscriptor.cerrado = true;
+        suscriptores.remove(suscriptor);
+    }
+
+    // Mantiene abiertos los proxies, descubre clientes que se fueron y desconecta a los
+    // que tienen un envío trabado hace más de plazoEnvioMs
+    @Scheduled(fixedDelayString = "${tienda.ventas.stream.heartbeat-ms:15000}")
+    public void latido() {
+        long ahora = System.nanoTime();
+        for (Suscriptor suscriptor : suscriptores) {
+            long desde = suscriptor.enviandoDesde;
+            if (desde != 0 && ahora - desde > TimeUnit.MILLISECONDS.toNanos(plazoEnvioMs)) {
+                desalojar(suscriptor);
+            } else {
+                ofrecer(suscriptor, LATIDO);
+            }
+        }
+    }
+
+    public Map<String, Object> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        int enCola = 0;
+        int maxEnCola = 0;
+        for (Suscriptor suscriptor : suscriptores) {
+            int n = suscriptor.cola.size();
+            enCola += n;
+            maxEnCola = Math.max(maxEnCola, n);
+        }
+        synchronized (this) {
+            estado.put("ultimoId", secuencia > 0 ? inicio + "-" + secuencia : null);
+            estado.put("publicados", secuencia);
+        }
+        estado.put("suscriptores", suscriptores.size());
+        estado.put("maxSuscriptores", maxSuscriptores);
+        estado.put("enviados", enviados.get());
+        estado.put("desalojados", desalojados.get());
+        estado.put("enCola", enCola);
+        estado.put("maxEnCola", maxEnCola);
+        estado.put("buffer", buffer);
+        estado.put("historial", tamanoHistorial);
+        return estado;
+    }
+
+    @PreDestroy
+    public void detener() {
+        for (Suscriptor suscriptor : suscriptores) {
+            cerrar(suscriptor);
+            suscriptor.emitter.complete();
+        }
+        envios.shutdownNow();
+    }
+}
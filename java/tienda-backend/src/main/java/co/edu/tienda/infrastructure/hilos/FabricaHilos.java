@@ -0,0 +1,111 @@
+package co.edu.tienda.infrastructure.hilos;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hilos para los ejecutores propios del backend (envíos SSE, cargas de índices).
+ *
+ * Con {@code spring.threads.virtual.enabled=true} y Java 21 o superior son hilos virtuales:
+ * la misma propiedad con la que Spring Boot pasa a hilos virtuales los requests de Tomcat
+ * y las tareas @Scheduled. En Java 17 la propiedad no tiene efecto y todo sigue con hilos
+ * de plataforma. Las APIs de hilos virtuales se buscan por reflexión para que el backend
+ * compile y corra con Java 17.
+ */
+@Component
+public class FabricaHilos {
+
+    private static final Logger log = LoggerFactory.getLogger(FabricaHilos.class);
+
+    // Thread.ofVirtual() y Executors.newThreadPerTaskExecutor(ThreadFactory); null antes de Java 21
+    private static final Method OF_VIRTUAL = buscar(Thread.class, "ofVirtual");
+    private static final Method POR_TAREA = buscar(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualesPedidos;
+
+    private boolean virtuales;
+
+    @PostConstruct
+    public void iniciar() {
+        virtuales = virtualesPedidos && OF_VIRTUAL != null && POR_TAREA != null;
+        if (virtualesPedidos && !virtuales) {
+            log.warn("spring.threads.virtual.enabled=true, pero Java {} no tiene hilos virtuales (desde 21): "
+                    + "se usan hilos de plataforma", Runtime.version().feature());
+        }
+    }
+
+    /**
+     * True si los requests y los ejecutores de este backend corren en hilos virtuales.
+     */
+    public boolean isVirtuales() {
+        return virtuales;
+    }
+
+    public boolean isVirtualesPedidos() {
+        return virtualesPedidos;
+    }
+
+    /**
+     * Hilos "nombre-1", "nombre-2", ...: virtuales, o de plataforma daemon.
+     */
+    public ThreadFactory fabrica(String nombre) {
+        if (virtuales) {
+            try {
+                Object constructor = OF_VIRTUAL.invoke(null);
+                Class<?> tipo = Class.forName("java.lang.Thread$Builder");
+                constructor = tipo.getMethod("name", String.class, long.class).invoke(constructor, nombre + "-", 1L);
+                return (ThreadFactory) tipo.getMethod("factory").invoke(constructor);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("No se pudo crear la fábrica de hilos virtuales", e);
+            }
+        }
+        AtomicInteger numero = new AtomicInteger();
+        return r -> {
+            Thread hilo = new Thread(r, nombre + "-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+
+    /**
+     * Ejecutor de tareas en orden, una a la vez.
+     */
+    public ExecutorService unHilo(String nombre) {
+        return Executors.newSingleThreadExecutor(fabrica(nombre));
+    }
+
+    /**
+     * Ejecutor en el que una tarea nunca espera a que otra termine: un hilo virtual por
+     * tarea, o hilos de plataforma que se crean cuando todos están ocupados y se liberan
+     * tras un minuto sin uso. Para tareas que pueden quedar bloqueadas en E/S (un cliente
+     * que no lee) sin que eso demore a las demás; quien lo usa acota cuántas corren a la vez.
+     */
+    public ExecutorService porTarea(String nombre) {
+        if (virtuales) {
+            try {
+                return (ExecutorService) POR_TAREA.invoke(null, fabrica(nombre));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("No se pudo crear el ejecutor de hilos virtuales", e);
+            }
+        }
+        return Executors.newCachedThreadPool(fabrica(nombre));
+    }
+
+    private static Method buscar(Class<?> clase, String metodo, Class<?>... parametros) {
+        try {
+            return clase.getMethod(metodo, parametros);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
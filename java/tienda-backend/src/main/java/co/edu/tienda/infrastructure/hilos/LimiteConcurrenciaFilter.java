@@ -0,0 +1,229 @@
+package co.edu.tienda.infrastructure.hilos;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Límite de requests a /api que se atienden a la vez, pensado según el pool de Hikari.
+ *
+ * Con hilos de plataforma Tomcat ya pone un techo (200 hilos), pero los reportes lentos
+ * pueden ocuparlo entero y las ventas quedan en cola detrás. Con hilos virtuales no hay
+ * techo: miles de requests llegarían juntos a pedir una de las pocas conexiones del pool.
+ * Por eso hay dos grupos con su propio semáforo:
+ *
+ * - reportes ({@code tienda.hilos.limite.reportes.rutas}): a lo sumo
+ *   {@code tienda.hilos.limite.reportes} a la vez (4 por defecto).
+ * - general, el resto de /api: a lo sumo {@code tienda.hilos.limite.por-conexion} (2) por
+ *   cada conexión del pool; no todos los requests usan la BD (cachés, índices en memoria).
+ *
+ * El request que no consigue lugar en {@code tienda.hilos.limite.espera-ms} (el mismo
+ * connectionTimeout de Hikari por defecto) recibe 503 con Retry-After. Un límite de 0
+ * desactiva el grupo. /api/util no se limita, para poder ver el estado bajo carga.
+ */
+@Component
+public class LimiteConcurrenciaFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(LimiteConcurrenciaFilter.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int conexiones;
+
+    @Value("${tienda.hilos.limite.por-conexion:2}")
+    private int porConexion;
+
+    @Value("${tienda.hilos.limite.reportes:4}")
+    private int limiteReportes;
+
+    @Value("${tienda.hilos.limite.reportes.rutas:/api/reportes,/api/ventas/export}")
+    private List<String> rutasReportes;
+
+    @Value("${tienda.hilos.limite.espera-ms:${spring.datasource.hikari.connection-timeout:30000}}")
+    private long esperaMs;
+
+    private Grupo reportes;
+    private Grupo general;
+
+    /**
+     * Semáforo justo (en orden de llegada) de un grupo, con sus métricas.
+     */
+    private final class Grupo {
+        final String nombre;
+        final int limite;
+        final Semaphore permisos;
+        final Timer espera;
+        final Counter rechazados;
+
+        Grupo(String nombre, int limite) {
+            this.nombre = nombre;
+            this.limite = limite;
+            this.permisos = new Semaphore(Math.max(limite, 0), true);
+            Gauge.builder("tienda.hilos.limite.en-uso", this, g -> g.limite - g.permisos.availablePermits())
+                    .description("Requests atendiéndose dentro del límite de concurrencia")
+                    .tag("grupo", nombre)
+                    .register(meterRegistry);
+            Gauge.builder("tienda.hilos.limite.esperando", permisos, Semaphore::getQueueLength)
+                    .description("Requests esperando lugar en el límite de concurrencia")
+                    .tag("grupo", nombre)
+                    .register(meterRegistry);
+            this.espera = Timer.builder("tienda.hilos.limite.espera")
+                    .description("Espera por un lugar en el límite de concurrencia")
+                    .tag("grupo", nombre)
+                    .register(meterRegistry);
+            this.rechazados = Counter.builder("tienda.hilos.limite.rechazados")
+                    .description("Requests rechazados con 503 por no conseguir lugar a tiempo")
+                    .tag("grupo", nombre)
+                    .register(meterRegistry);
+        }
+
+        Map<String, Object> estado() {
+            Map<String, Object> estado = new LinkedHashMap<>();
+            estado.put("limite", limite > 0 ? limite : "sin límite");
+            if (limite > 0) {
+                estado.put("enUso", limite - permisos.availablePermits());
+                estado.put("esperando", permisos.getQueueLength());
+            }
+            estado.put("rechazados", (long) rechazados.count());
+            return estado;
+        }
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        reportes = new Grupo("reportes", limiteReportes);
+        general = new Grupo("general", conexiones * porConexion);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String ruta = ruta(request);
+        return !ruta.startsWith("/api/") || ruta.startsWith("/api/util/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String ruta = ruta(request);
+        Grupo grupo = rutasReportes.stream().anyMatch(ruta::startsWith) ? reportes : general;
+        if (grupo.limite <= 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        boolean obtenido;
+        long inicio = System.nanoTime();
+        try {
+            obtenido = grupo.permisos.tryAcquire(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            obtenido = false;
+        }
+        grupo.espera.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        if (!obtenido) {
+            grupo.rechazados.increment();
+            log.warn("{} {} rechazado: los {} lugares del grupo {} siguieron ocupados por {} ms",
+                    request.getMethod(), ruta, grupo.limite, grupo.nombre, esperaMs);
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            objectMapper.writeValue(response.getWriter(), Map.of("error",
+                    "Servidor ocupado (" + grupo.nombre + "), intente de nuevo"));
+            return;
+        }
+        boolean liberarAlTerminar = true;
+        try {
+            chain.doFilter(request, response);
+            // La exportación sigue en el ejecutor async (StreamingResponseBody): el lugar se
+            // libera cuando termina. Los flujos SSE no usan la BD y lo liberan enseguida.
+            if (grupo == reportes && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new LiberarAlCompletar(grupo.permisos));
+                liberarAlTerminar = false;
+            }
+        } finally {
+            if (liberarAlTerminar) {
+                grupo.permisos.release();
+            }
+        }
+    }
+
+    private static final class LiberarAlCompletar implements AsyncListener {
+        private final Semaphore permisos;
+        private final AtomicBoolean liberado = new AtomicBoolean();
+
+        LiberarAlCompletar(Semaphore permisos) {
+            this.permisos = permisos;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        // Timeout o error y después complete: se libera una sola vez
+        private void liberar() {
+            if (liberado.compareAndSet(false, true)) {
+                permisos.release();
+            }
+        }
+    }
+
+    public Map<String, Object> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("conexionesPool", conexiones);
+        estado.put("esperaMs", esperaMs);
+        estado.put("reportes", reportes.estado());
+        estado.put("rutasReportes", rutasReportes);
+        estado.put("general", general.estado());
+        return estado;
+    }
+
+    private static String ruta(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
@@ -0,0 +1,204 @@
+package co.edu.tienda.infrastructure.historial;
+
+import co.edu.tienda.domain.entities.Persona;
+import co.edu.tienda.domain.entities.PuntoDeVenta;
+import co.edu.tienda.domain.entities.Venta;
+import co.edu.tienda.domain.events.VentaCreadaEvent;
+import co.edu.tienda.domain.repositories.PersonaRepository;
+import co.edu.tienda.domain.repositories.PuntoDeVentaRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Resúmenes de las ventas de cada persona (GET /api/ventas/persona/{id}/detalles), en
+ * memoria. El tamaño se limita por cantidad total de resúmenes, no de personas, así un
+ * cliente con mucho historial cuenta lo que ocupa. Las entradas vencen
+ * {@code ttl-ms} después de cargarse. La carga lee del maestro: una réplica atrasada
+ * dejaría fuera ventas ya confirmadas durante todo el ttl.
+ *
+ * Una venta nueva se agrega a la entrada de su persona al confirmarse, en vez de
+ * invalidarla; el kiosco que consulta justo después de comprar no vuelve a la BD.
+ *
+ * La carga corre fuera de la caché (no dentro de su compute, que con hilos virtuales
+ * dejaría el hilo portador tomado durante la consulta). Para no guardar una carga que
+ * leyó antes de una venta o un cambio de su persona, cada uno sube una versión por
+ * persona y la carga solo se guarda si la versión no cambió mientras leía.
+ */
+@Component
+public class HistorialVentasPersona {
+
+    private static final Logger log = LoggerFactory.getLogger(HistorialVentasPersona.class);
+
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private PersonaRepository personaRepository;
+
+    @Autowired
+    private PuntoDeVentaRepository puntoDeVentaRepository;
+
+    @Value("${tienda.ventas.persona-cache.max-resumenes:100000}")
+    private long maxResumenes;
+
+    @Value("${tienda.ventas.persona-cache.ttl-ms:600000}")
+    private long ttlMs;
+
+    private Cache<Integer, List<Map<String, Object>>> cache;
+    private final AtomicLong agregadas = new AtomicLong();
+    // Versión de cada persona, repartidas en franjas: dos personas de la misma franja solo
+    // hacen que alguna carga no se guarde
+    private final AtomicLongArray versiones = new AtomicLongArray(1024);
+
+    @PostConstruct
+    public void iniciar() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxResumenes)
+                .weigher((Integer personaId, List<Map<String, Object>> resumenes) -> resumenes.size() + 1)
+                // Vence a ttl-ms de la carga: agregar ventas no lo renueva, así que las ventas de
+                // otras instancias (que aquí no se agregan) aparecen a más tardar a ttl-ms
+                .expireAfter(Expiry.creating((Integer personaId, List<Map<String, Object>> resumenes) ->
+                        Duration.ofMillis(ttlMs)))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Resumen de una venta tal como lo devuelve el endpoint. Lee persona, punto de venta
+     * y ubicación: llamar con la sesión abierta.
+     */
+    public static Map<String, Object> resumen(Venta venta, Persona persona, PuntoDeVenta puntoDeVenta) {
+        Map<String, Object> ventaMap = new HashMap<>();
+        ventaMap.put("ventaId", venta.getVId());
+        ventaMap.put("fecha", venta.getVFecha().format(FORMATO_FECHA));
+        ventaMap.put("personaNombre", persona.getPNombre() + " " + persona.getPApellido());
+        ventaMap.put("personaEmail", persona.getPEmail());
+        ventaMap.put("puntoVenta", puntoDeVenta.getPvNombre());
+        ventaMap.put("ubicacion", puntoDeVenta.getUbicacion().getUNombre());
+        ventaMap.put("total", venta.getTotal());
+        ventaMap.put("numLineas", venta.getNumLineas());
+        return ventaMap;
+    }
+
+    public List<Map<String, Object>> obtener(Integer personaId, Function<Integer, List<Map<String, Object>>> cargar) {
+        List<Map<String, Object>> resumenes = cache.getIfPresent(personaId);
+        if (resumenes != null) {
+            return resumenes;
+        }
+        int franja = franja(personaId);
+        long version = versiones.get(franja);
+        List<Map<String, Object>> cargados = List.copyOf(cargar.apply(personaId));
+        // Revisar la versión y guardar en un solo paso: una venta que sube la versión
+        // después se agrega a lo guardado, y una que la subió antes deja la carga fuera
+        cache.asMap().compute(personaId, (id, actual) ->
+                actual != null ? actual : versiones.get(franja) == version ? cargados : null);
+        return cargados;
+    }
+
+    @EventListener
+    public void alCrearVenta(VentaCreadaEvent event) {
+        Venta venta = event.getVenta();
+        Integer personaId = venta.getPId();
+        // Siempre: una carga que empiece antes del commit no vería esta venta
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                versiones.incrementAndGet(franja(personaId));
+                // Con la versión ya subida, una carga en curso no se guarda: si no está
+                // ahora, no hay a qué agregarla. asMap() no cuenta como acierto ni fallo
+                if (!cache.asMap().containsKey(personaId)) {
+                    return;
+                }
+                // La venta trae persona y punto de venta solo con el ID (API y journal) o
+                // como proxy (lote); se leen aquí, el punto de venta desde la caché de
+                // segundo nivel. La sesión de la transacción sigue abierta
+                try {
+                    agregar(personaId, resumen(venta, personaRepository.findById(personaId).orElseThrow(),
+                            puntoDeVentaRepository.findById(venta.getPvId()).orElseThrow()));
+                } catch (RuntimeException e) {
+                    // La venta ya está confirmada; solo se pierde la entrada de la caché
+                    log.debug("No se pudo armar el resumen de la venta {}: {}", venta.getVId(), e.getMessage());
+                    cache.invalidate(personaId);
+                }
+            }
+        });
+    }
+
+    private void agregar(Integer personaId, Map<String, Object> resumen) {
+        cache.asMap().computeIfPresent(personaId, (id, resumenes) -> {
+            Object ventaId = resumen.get("ventaId");
+            for (Map<String, Object> existente : resumenes) {
+                // Una carga que empezó después del commit ya la trae
+                if (existente.get("ventaId").equals(ventaId)) {
+                    return resumenes;
+                }
+            }
+            // Orden por fecha descendente, como la consulta; la fecha formateada ordena como texto
+            String fecha = (String) resumen.get("fecha");
+            int posicion = 0;
+            while (posicion < resumenes.size() && ((String) resumenes.get(posicion).get("fecha")).compareTo(fecha) > 0) {
+                posicion++;
+            }
+            List<Map<String, Object>> nuevos = new ArrayList<>(resumenes.size() + 1);
+            nuevos.addAll(resumenes.subList(0, posicion));
+            nuevos.add(resumen);
+            nuevos.addAll(resumenes.subList(posicion, resumenes.size()));
+            agregadas.incrementAndGet();
+            return List.copyOf(nuevos);
+        });
+    }
+
+    /**
+     * Saca a la persona de la caché ahora y otra vez al terminar la transacción en curso,
+     * por si otra la vuelve a cargar antes del commit.
+     */
+    public void olvidar(Integer personaId) {
+        versiones.incrementAndGet(franja(personaId));
+        cache.invalidate(personaId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    versiones.incrementAndGet(franja(personaId));
+                    cache.invalidate(personaId);
+                }
+            });
+        }
+    }
+
+    private int franja(Integer personaId) {
+        return Math.floorMod(personaId, versiones.length());
+    }
+
+    public Map<String, Object> estado() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("aciertos", stats.hitCount());
+        estado.put("fallos", stats.missCount());
+        estado.put("tasaAciertos", stats.requestCount() > 0 ? stats.hitRate() : 0.0);
+        estado.put("personas", cache.estimatedSize());
+        // Resúmenes más uno por persona
+        estado.put("peso", cache.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L));
+        estado.put("pesoMaximo", maxResumenes);
+        estado.put("ventasAgregadas", agregadas.get());
+        estado.put("desalojos", stats.evictionCount());
+        return estado;
+    }
+}
@@ -0,0 +1,102 @@
+package co.edu.tienda.infrastructure.inventario;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Contador de unidades repartido en celdas, al estilo de LongAdder pero con toma
+ * condicional: nunca baja de cero. Cada hilo empieza por "su" celda, así los hilos
+ * que venden el mismo producto casi nunca compiten por el mismo CAS. Las celdas
+ * están separadas por una línea de caché para evitar false sharing.
+ */
+public class ContadorSegmentado {
+
+    // 16 ints = 64 bytes entre celdas
+    private static final int SEPARACION = 16;
+
+    private final AtomicIntegerArray celdas;
+    private final int cantidadCeldas;
+
+    public ContadorSegmentado(int cantidadCeldas) {
+        this.cantidadCeldas = cantidadCeldas;
+        this.celdas = new AtomicIntegerArray(cantidadCeldas * SEPARACION);
+    }
+
+    /**
+     * Toma {@code cantidad} unidades o ninguna.
+     */
+    public boolean tomar(int cantidad) {
+        int inicio = (int) (Thread.currentThread().getId() % cantidadCeldas);
+
+        // Camino rápido: una sola celda alcanza
+        for (int k = 0; k < cantidadCeldas; k++) {
+            int i = ((inicio + k) % cantidadCeldas) * SEPARACION;
+            int actual = celdas.get(i);
+            while (actual >= cantidad) {
+                if (celdas.compareAndSet(i, actual, actual - cantidad)) {
+                    return true;
+                }
+                actual = celdas.get(i);
+            }
+        }
+
+        // Juntar de varias celdas; si no alcanza, devolver lo tomado
+        int[] tomado = new int[cantidadCeldas];
+        int juntado = 0;
+        for (int k = 0; k < cantidadCeldas && juntado < cantidad; k++) {
+            int celda = (inicio + k) % cantidadCeldas;
+            int i = celda * SEPARACION;
+            int actual = celdas.get(i);
+            while (actual > 0) {
+                int parte = Math.min(actual, cantidad - juntado);
+                if (celdas.compareAndSet(i, actual, actual - parte)) {
+                    tomado[celda] = parte;
+                    juntado += parte;
+                    break;
+                }
+                actual = celdas.get(i);
+            }
+        }
+        if (juntado == cantidad) {
+            return true;
+        }
+        for (int celda = 0; celda < cantidadCeldas; celda++) {
+            if (tomado[celda] > 0) {
+                celdas.addAndGet(celda * SEPARACION, tomado[celda]);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reparte unidades entre las celdas.
+     */
+    public void agregar(int cantidad) {
+        int base = cantidad / cantidadCeldas;
+        int resto = cantidad % cantidadCeldas;
+        for (int celda = 0; celda < cantidadCeldas; celda++) {
+            int parte = base + (celda < resto ? 1 : 0);
+            if (parte > 0) {
+                celdas.addAndGet(celda * SEPARACION, parte);
+            }
+        }
+    }
+
+    /**
+     * Deja todas las celdas en cero y devuelve lo que había.
+     */
+    public int vaciar() {
+        int total = 0;
+        for (int celda = 0; celda < cantidadCeldas; celda++) {
+            total += celdas.getAndSet(celda * SEPARACION, 0);
+        }
+        return total;
+    }
+
+    public int total() {
+        int total = 0;
+        for (int celda = 0; celda < cantidadCeldas; celda++) {
+            total += celdas.get(celda * SEPARACION);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,347 @@
+package co.edu.tienda.infrastructure.inventario;
+
+import co.edu.tienda.domain.entities.VentaDetalle;
+import co.edu.tienda.domain.events.ProductoCambiadoEvent;
+import co.edu.tienda.domain.events.VentaCreadaEvent;
+import co.edu.tienda.domain.repositories.ProductoRepository;
+import co.edu.tienda.infrastructure.hilos.FabricaHilos;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Stock disponible de cada producto en memoria, ordenado por stock, para contestar
+ * "productos con stock menor a N" sin recorrer PRODUCTO: O(log n + k) con cualquier umbral.
+ *
+ * Lo mueven las ventas confirmadas (por cualquier camino) y los cambios de producto;
+ * cada {@code recarga-ms} se vuelve a leer de la BD, lo que también trae lo que
+ * vendieron otros nodos. Con inventario caliente, el stock disponible incluye las
+ * unidades que están en cupo de algún nodo sin vender.
+ *
+ * Cuando un producto baja del punto de reorden (o vuelve a superarlo) se avisa a los
+ * suscriptores por SSE. Los envíos salen de un hilo propio: un cliente lento no
+ * demora el commit de las ventas.
+ */
+@Component
+public class IndiceStockBajo {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceStockBajo.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ObjectProvider<InventarioCaliente> inventarioCaliente;
+
+    @Autowired
+    private FabricaHilos fabricaHilos;
+
+    @Value("${tienda.productos.stock-bajo.punto-reorden:10}")
+    private int puntoReorden;
+
+    // stock << 32 | id: recorrer el conjunto en orden es recorrer por stock
+    private final ConcurrentSkipListSet<Long> porStock = new ConcurrentSkipListSet<>();
+    private final Map<Integer, Integer> stockPorProducto = new ConcurrentHashMap<>();
+
+    // Productos que cambiaron mientras se recargaba: la lectura de la BD puede ser más vieja
+    private final Set<Integer> tocados = ConcurrentHashMap.newKeySet();
+    private volatile boolean recargando;
+    private volatile boolean cargado;
+    private volatile long ultimaRecarga;
+
+    private final List<SseEmitter> suscriptores = new CopyOnWriteArrayList<>();
+    private final AtomicLong avisos = new AtomicLong();
+    private ExecutorService notificador;
+    private TransactionTemplate lectura;
+
+    @PostConstruct
+    public void iniciar() {
+        notificador = fabricaHilos.unHilo("stock-bajo-sse");
+        // En el maestro (no readOnly) y con una sola instantánea para PRODUCTO y los cupos
+        lectura = new TransactionTemplate(transactionManager);
+        lectura.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        recargarSinFallar();
+    }
+
+    @Scheduled(initialDelayString = "${tienda.productos.stock-bajo.recarga-ms:300000}",
+            fixedDelayString = "${tienda.productos.stock-bajo.recarga-ms:300000}")
+    public void recargarPeriodicamente() {
+        recargarSinFallar();
+    }
+
+    private void recargarSinFallar() {
+        try {
+            recargar();
+        } catch (Exception e) {
+            log.warn("No se pudo cargar el índice de stock bajo; se consulta la BD: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Vuelve a leer el stock de todos los productos. Los que cambian durante la lectura
+     * conservan el valor del índice, que ya tiene ese cambio.
+     */
+    public synchronized Map<String, Object> recargar() {
+        long inicio = System.nanoTime();
+        tocados.clear();
+        recargando = true;
+        try {
+            Map<Integer, Integer> leidos = lectura.execute(status -> leer());
+            for (Integer id : new ArrayList<>(stockPorProducto.keySet())) {
+                if (!leidos.containsKey(id)) {
+                    quitar(id, true);
+                }
+            }
+            leidos.forEach((id, stock) -> cambiar(id, anterior -> stock, true, true));
+            cargado = true;
+            ultimaRecarga = System.currentTimeMillis();
+
+            Map<String, Object> resultado = new LinkedHashMap<>();
+            resultado.put("productos", stockPorProducto.size());
+            resultado.put("cambiadosDuranteLaCarga", tocados.size());
+            resultado.put("duracionMs", (System.nanoTime() - inicio) / 1_000_000);
+            return resultado;
+        } finally {
+            recargando = false;
+        }
+    }
+
+    private Map<Integer, Integer> leer() {
+        Map<Integer, Integer> stock = new HashMap<>();
+        jdbcTemplate.query("SELECT P_ID, P_STOCK FROM PRODUCTO", rs -> {
+            stock.put(rs.getInt("P_ID"), rs.getInt("P_STOCK"));
+        });
+        InventarioCaliente caliente = inventarioCaliente.getIfAvailable();
+        if (caliente != null) {
+            caliente.unidadesEnCupo().forEach((id, unidades) -> stock.computeIfPresent(id, (k, s) -> s + unidades));
+        }
+        return stock;
+    }
+
+    @TransactionalEventListener
+    public void alCrearVenta(VentaCreadaEvent event) {
+        Map<Integer, Integer> vendidas = new HashMap<>();
+        for (VentaDetalle detalle : event.getVenta().getDetalles()) {
+            vendidas.merge(detalle.getPId(), detalle.getVdCantidad(), Integer::sum);
+        }
+        // Igual que el drenador del journal, el stock no baja de 0
+        vendidas.forEach((id, cantidad) -> cambiar(id, stock -> stock - cantidad, false, false));
+    }
+
+    @TransactionalEventListener
+    public void alCambiarProducto(ProductoCambiadoEvent event) {
+        if (event.isEliminado()) {
+            quitar(event.getProductoId(), false);
+            return;
+        }
+        Integer stock = event.getProducto().getPStock();
+        if (stock == null) {
+            return;
+        }
+        // Las unidades en cupo de un producto caliente no pasan por P_STOCK hasta la próxima recarga
+        InventarioCaliente caliente = inventarioCaliente.getIfAvailable();
+        if (caliente != null && caliente.esCaliente(event.getProductoId())) {
+            return;
+        }
+        cambiar(event.getProductoId(), anterior -> stock, true, false);
+    }
+
+    // Dentro de compute, así la recarga y los cambios del mismo producto no se intercalan
+    private void cambiar(Integer id, IntUnaryOperator calcular, boolean crear, boolean desdeRecarga) {
+        int[] cruce = {-1, -1};
+        stockPorProducto.compute(id, (k, anterior) -> {
+            if (desdeRecarga ? tocados.contains(k) : anterior == null && !crear) {
+                return anterior;
+            }
+            if (!desdeRecarga && recargando) {
+                tocados.add(k);
+            }
+            int nuevo = Math.max(calcular.applyAsInt(anterior != null ? anterior : 0), 0);
+            if (anterior != null) {
+                porStock.remove(clave(anterior, k));
+            }
+            porStock.add(clave(nuevo, k));
+            cruce[0] = anterior != null ? anterior : Integer.MAX_VALUE;
+            cruce[1] = nuevo;
+            return nuevo;
+        });
+        if (cruce[1] < 0) {
+            return;
+        }
+        boolean antesBajo = cruce[0] < puntoReorden;
+        boolean ahoraBajo = cruce[1] < puntoReorden;
+        if (antesBajo != ahoraBajo && cargado) {
+            avisar(id, cruce[1], ahoraBajo);
+        }
+    }
+
+    private void quitar(Integer id, boolean desdeRecarga) {
+        stockPorProducto.compute(id, (k, stock) -> {
+            if (desdeRecarga && tocados.contains(k)) {
+                return stock;
+            }
+            if (!desdeRecarga && recargando) {
+                tocados.add(k);
+            }
+            if (stock != null) {
+                porStock.remove(clave(stock, k));
+            }
+            return null;
+        });
+    }
+
+    private static long clave(int stock, int id) {
+        return ((long) stock << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    public boolean isCargado() {
+        return cargado;
+    }
+
+    /**
+     * Stock disponible del producto según el índice; null si no está o el índice no se cargó.
+     */
+    public Integer stock(Integer id) {
+        return cargado ? stockPorProducto.get(id) : null;
+    }
+
+    public int getPuntoReorden() {
+        return puntoReorden;
+    }
+
+    /**
+     * IDs de los productos con stock menor a {@code umbral}, de menor a mayor stock.
+     */
+    public List<Integer> productosBajo(int umbral) {
+        if (umbral <= 0) {
+            return List.of();
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (Long clave : porStock.headSet((long) umbral << 32)) {
+            ids.add((int) (clave & 0xFFFFFFFFL));
+        }
+        return ids;
+    }
+
+    /**
+     * Suscripción a los cruces del punto de reorden. El primer evento ("inicial") trae
+     * los productos que ya están por debajo.
+     */
+    public SseEmitter suscribir() {
+        SseEmitter emitter = new SseEmitter(0L);
+        emitter.onCompletion(() -> suscriptores.remove(emitter));
+        emitter.onTimeout(() -> suscriptores.remove(emitter));
+        emitter.onError(e -> suscriptores.remove(emitter));
+
+        List<Map<String, Object>> inicial = new ArrayList<>();
+        for (Integer id : productosBajo(puntoReorden)) {
+            Integer stock = stockPorProducto.get(id);
+            if (stock != null) {
+                inicial.add(aviso(id, stock, true));
+            }
+        }
+        suscriptores.add(emitter);
+        notificador.execute(() -> enviar(emitter, "inicial", Map.of("puntoReorden", puntoReorden,
+                "cargado", cargado, "productos", inicial)));
+        return emitter;
+    }
+
+    private void avisar(Integer id, int stock, boolean bajo) {
+        avisos.incrementAndGet();
+        if (suscriptores.isEmpty()) {
+            return;
+        }
+        notificador.execute(() -> {
+            Map<String, Object> aviso = aviso(id, stock, bajo);
+            productoRepository.findById(id).ifPresent(p -> aviso.put("nombreProducto", p.getPNombre()));
+            for (SseEmitter emitter : suscriptores) {
+                enviar(emitter, bajo ? "stock-bajo" : "stock-repuesto", aviso);
+            }
+        });
+    }
+
+    private Map<String, Object> aviso(Integer id, int stock, boolean bajo) {
+        Map<String, Object> aviso = new LinkedHashMap<>();
+        aviso.put("productoId", id);
+        aviso.put("stock", stock);
+        aviso.put("puntoReorden", puntoReorden);
+        aviso.put("bajo", bajo);
+        return aviso;
+    }
+
+    private void enviar(SseEmitter emitter, String evento, Object datos) {
+        try {
+            emitter.send(SseEmitter.event().name(evento).data(datos, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            suscriptores.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    // Comentario SSE periódico: mantiene abiertos los proxies y descubre clientes que se fueron
+    @Scheduled(fixedDelayString = "${tienda.productos.stock-bajo.heartbeat-ms:30000}")
+    public void latido() {
+        if (!suscriptores.isEmpty()) {
+            notificador.execute(() -> {
+                for (SseEmitter emitter : suscriptores) {
+                    try {
+                        emitter.send(SseEmitter.event().comment("latido"));
+                    } catch (IOException | IllegalStateException e) {
+                        suscriptores.remove(emitter);
+                        emitter.completeWithError(e);
+                    }
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("cargado", cargado);
+        estado.put("productos", stockPorProducto.size());
+        estado.put("puntoReorden", puntoReorden);
+        estado.put("bajoPuntoReorden", productosBajo(puntoReorden).size());
+        estado.put("suscriptores", suscriptores.size());
+        estado.put("avisos", avisos.get());
+        estado.put("ultimaRecarga", ultimaRecarga > 0 ? Instant.ofEpochMilli(ultimaRecarga).toString() : null);
+        return estado;
+    }
+
+    @PreDestroy
+    public void detener() {
+        suscriptores.forEach(SseEmitter::complete);
+        notificador.shutdownNow();
+    }
+}
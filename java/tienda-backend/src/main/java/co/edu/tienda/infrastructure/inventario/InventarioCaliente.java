@@ -0,0 +1,394 @@
+package co.edu.tienda.infrastructure.inventario;
+
+import co.edu.tienda.domain.repositories.ProductoRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stock de los productos más vendidos repartido en cupos por nodo.
+ *
+ * El nodo toma un cupo de unidades de P_STOCK (un UPDATE cada {@code cupo} unidades,
+ * no uno por venta) y las ventas lo consumen de un {@link ContadorSegmentado} sin
+ * tocar la fila del producto. Las unidades de un cupo ya salieron de P_STOCK, así que
+ * la suma de lo que pueden vender todos los nodos nunca supera el stock real: no hay
+ * sobreventa aunque un nodo se caiga.
+ *
+ * Cada venta deja una fila en INVENTARIO_CONSUMO dentro de su propia transacción (solo
+ * INSERT, sin bloqueos compartidos). Periódicamente esas filas se descuentan de
+ * INVENTARIO_CUPO, que queda como "unidades que este nodo tiene sin vender". Con eso
+ * la reconciliación es exacta: al arrancar, lo que el nodo tenía en cupo menos lo que
+ * alcanzó a vender vuelve a P_STOCK.
+ *
+ * Pedir un cupo pasa con la transacción de la venta abierta, así que se hace por un
+ * pool propio de pocas conexiones: si usara el pool principal, con todas sus conexiones
+ * tomadas por ventas esperando el mismo cupo nadie podría pedirlo.
+ *
+ * No convive con el journal de ventas: el journal descuenta de P_STOCK con su propio
+ * inventario en memoria y no ve los cupos, así que la aplicación no arranca si los dos
+ * están activos.
+ */
+@Component
+@ConditionalOnProperty(name = "tienda.inventario.caliente.enabled", havingValue = "true")
+public class InventarioCaliente {
+
+    private static final Logger log = LoggerFactory.getLogger(InventarioCaliente.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Value("${tienda.inventario.caliente.productos:}")
+    private String productos;
+
+    @Value("${tienda.inventario.caliente.nodo:${HOSTNAME:local}}")
+    private String nodo;
+
+    @Value("${tienda.inventario.caliente.cupo:50}")
+    private int cupo;
+
+    @Value("${tienda.inventario.caliente.celdas:8}")
+    private int celdas;
+
+    @Value("${tienda.inventario.caliente.pool-size:2}")
+    private int tamanoPool;
+
+    @Value("${tienda.ventas.journal.enabled:false}")
+    private boolean journalActivo;
+
+    private final Map<Integer, ContadorSegmentado> contadores = new ConcurrentHashMap<>();
+    // Uno por producto, para pedir cupo; no un monitor, que con hilos virtuales dejaría
+    // el hilo portador tomado durante toda la transacción del cupo
+    private final Map<Integer, ReentrantLock> candados = new ConcurrentHashMap<>();
+    private HikariDataSource conexionesCupo;
+    private JdbcTemplate jdbcCupo;
+    private TransactionTemplate transaccionCupo;
+
+    @PostConstruct
+    public void iniciar() {
+        if (journalActivo) {
+            throw new IllegalStateException("tienda.inventario.caliente.enabled y tienda.ventas.journal.enabled "
+                    + "no se pueden activar a la vez: el journal vende desde P_STOCK sin ver los cupos del nodo");
+        }
+        conexionesCupo = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        conexionesCupo.setPoolName("inventario-cupo");
+        conexionesCupo.setMaximumPoolSize(tamanoPool);
+        jdbcCupo = new JdbcTemplate(conexionesCupo);
+        transaccionCupo = new TransactionTemplate(new DataSourceTransactionManager(conexionesCupo));
+        for (String id : productos.split(",")) {
+            if (!id.isBlank()) {
+                contadores.put(Integer.valueOf(id.trim()), new ContadorSegmentado(celdas));
+                candados.put(Integer.valueOf(id.trim()), new ReentrantLock());
+            }
+        }
+
+        // Antes de recibir ventas: lo que quedó en cupo de la ejecución anterior vuelve a P_STOCK
+        try {
+            Map<Integer, Integer> devueltas = reconciliarNodo(nodo);
+            log.info("Inventario caliente en el nodo {} para los productos {}; devueltas al arrancar: {}",
+                    nodo, contadores.keySet(), devueltas);
+        } catch (Exception e) {
+            log.warn("No se pudo reconciliar el cupo del nodo {}: {}", nodo, e.getMessage());
+        }
+    }
+
+    public String getNodo() {
+        return nodo;
+    }
+
+    public boolean esCaliente(Integer productoId) {
+        return contadores.containsKey(productoId);
+    }
+
+    /**
+     * Unidades que este nodo puede vender ahora de un producto caliente (las de su cupo).
+     * Cuando una reserva falla ya se pidió cupo nuevo, así que P_STOCK no tenía más.
+     */
+    public int disponible(Integer productoId) {
+        ContadorSegmentado contador = contadores.get(productoId);
+        return contador != null ? contador.total() : 0;
+    }
+
+    /**
+     * Reserva las cantidades de productos calientes, todas o ninguna. Debe llamarse dentro
+     * de la transacción de la venta: el consumo se registra en ella y, si se revierte, las
+     * unidades vuelven al contador. Devuelve los IDs sin stock suficiente (vacío si se reservó).
+     */
+    public List<Integer> reservar(Map<Integer, Integer> cantidades) {
+        if (cantidades.isEmpty()) {
+            return List.of();
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("La reserva de stock caliente necesita una transacción activa");
+        }
+
+        Map<Integer, Integer> tomadas = new TreeMap<>();
+        List<Integer> faltantes = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : new TreeMap<>(cantidades).entrySet()) {
+            if (tomar(entry.getKey(), entry.getValue())) {
+                tomadas.put(entry.getKey(), entry.getValue());
+            } else {
+                faltantes.add(entry.getKey());
+            }
+        }
+        if (!faltantes.isEmpty()) {
+            devolverAlContador(tomadas);
+            return faltantes;
+        }
+
+        try {
+            List<Object[]> consumo = new ArrayList<>();
+            tomadas.forEach((id, cantidad) -> consumo.add(new Object[]{nodo, id, cantidad}));
+            jdbcTemplate.batchUpdate("INSERT INTO INVENTARIO_CONSUMO (ICO_NODO, P_ID, ICO_CANTIDAD) VALUES (?, ?, ?)", consumo);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        devolverAlContador(tomadas);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            devolverAlContador(tomadas);
+            throw e;
+        }
+        return List.of();
+    }
+
+    private boolean tomar(Integer productoId, int cantidad) {
+        ContadorSegmentado contador = contadores.get(productoId);
+        if (contador.tomar(cantidad)) {
+            return true;
+        }
+        // Un solo hilo por producto pide un cupo nuevo; los demás esperan y reintentan
+        ReentrantLock candado = candados.get(productoId);
+        candado.lock();
+        try {
+            while (true) {
+                if (contador.tomar(cantidad)) {
+                    return true;
+                }
+                int asignadas = asignarCupo(productoId, Math.max(cupo, cantidad));
+                if (asignadas == 0) {
+                    return contador.tomar(cantidad);
+                }
+                productoRepository.olvidarEnCache(List.of(productoId));
+                contador.agregar(asignadas);
+            }
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    // Mueve hasta "pedido" unidades de P_STOCK al cupo de este nodo, en su propia transacción
+    private int asignarCupo(Integer productoId, int pedido) {
+        Integer asignadas = transaccionCupo.execute(status -> {
+            Integer stock;
+            try {
+                stock = jdbcCupo.queryForObject(
+                        "SELECT P_STOCK FROM PRODUCTO WHERE P_ID = ? FOR UPDATE", Integer.class, productoId);
+            } catch (EmptyResultDataAccessException e) {
+                return 0;
+            }
+            int tomar = Math.min(stock != null ? stock : 0, pedido);
+            if (tomar <= 0) {
+                return 0;
+            }
+            jdbcCupo.update("UPDATE PRODUCTO SET P_STOCK = P_STOCK - ? WHERE P_ID = ?", tomar, productoId);
+            sumarCupo(nodo, productoId, tomar);
+            return tomar;
+        });
+        return asignadas != null ? asignadas : 0;
+    }
+
+    private void sumarCupo(String nodo, Integer productoId, int unidades) {
+        int filas = jdbcCupo.update(
+                "UPDATE INVENTARIO_CUPO SET IC_UNIDADES = IC_UNIDADES + ? WHERE IC_NODO = ? AND P_ID = ?",
+                unidades, nodo, productoId);
+        if (filas == 0) {
+            jdbcCupo.update("INSERT INTO INVENTARIO_CUPO (IC_NODO, P_ID, IC_UNIDADES) VALUES (?, ?, ?)",
+                    nodo, productoId, unidades);
+        }
+    }
+
+    private void devolverAlContador(Map<Integer, Integer> tomadas) {
+        tomadas.forEach((id, cantidad) -> contadores.get(id).agregar(cantidad));
+    }
+
+    /**
+     * Descuenta del cupo las ventas ya confirmadas y borra esas filas de consumo.
+     */
+    @Scheduled(fixedDelayString = "${tienda.inventario.caliente.flush-interval-ms:1000}")
+    public void plegarConsumo() {
+        try {
+            plegarConsumo(nodo);
+        } catch (Exception e) {
+            log.debug("No se pudo plegar el consumo del nodo {}: {}", nodo, e.getMessage());
+        }
+    }
+
+    private int plegarConsumo(String nodo) {
+        Integer plegadas = transaccionCupo.execute(status -> {
+            Map<Integer, Integer> porProducto = new TreeMap<>();
+            List<Object[]> ids = new ArrayList<>();
+            // Solo filas ya confirmadas; las que se confirmen después entran en la próxima pasada
+            jdbcCupo.query("SELECT ICO_ID, P_ID, ICO_CANTIDAD FROM INVENTARIO_CONSUMO WHERE ICO_NODO = ? " +
+                    "ORDER BY ICO_ID FETCH FIRST 10000 ROWS ONLY", rs -> {
+                ids.add(new Object[]{rs.getLong("ICO_ID")});
+                porProducto.merge(rs.getInt("P_ID"), rs.getInt("ICO_CANTIDAD"), Integer::sum);
+            }, nodo);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            List<Object[]> descuentos = new ArrayList<>();
+            porProducto.forEach((id, cantidad) -> descuentos.add(new Object[]{cantidad, nodo, id}));
+            jdbcCupo.batchUpdate(
+                    "UPDATE INVENTARIO_CUPO SET IC_UNIDADES = IC_UNIDADES - ? WHERE IC_NODO = ? AND P_ID = ?", descuentos);
+            jdbcCupo.batchUpdate("DELETE FROM INVENTARIO_CONSUMO WHERE ICO_ID = ?", ids);
+            return ids.size();
+        });
+        return plegadas != null ? plegadas : 0;
+    }
+
+    /**
+     * Devuelve a P_STOCK todo lo que este nodo tiene sin vender. Las ventas en curso
+     * conservan lo que ya tomaron; si se revierten, esas unidades vuelven al contador.
+     */
+    public Map<Integer, Integer> devolverTodo() {
+        Map<Integer, Integer> devueltas = new TreeMap<>();
+        for (Map.Entry<Integer, ContadorSegmentado> entry : contadores.entrySet()) {
+            ReentrantLock candado = candados.get(entry.getKey());
+            candado.lock();
+            try {
+                int unidades = entry.getValue().vaciar();
+                if (unidades > 0) {
+                    devueltas.put(entry.getKey(), unidades);
+                }
+            } finally {
+                candado.unlock();
+            }
+        }
+        if (devueltas.isEmpty()) {
+            return devueltas;
+        }
+        try {
+            transaccionCupo.executeWithoutResult(status -> devueltas.forEach((id, unidades) -> {
+                jdbcCupo.update("UPDATE PRODUCTO SET P_STOCK = P_STOCK + ? WHERE P_ID = ?", unidades, id);
+                sumarCupo(nodo, id, -unidades);
+            }));
+            productoRepository.olvidarEnCache(devueltas.keySet());
+        } catch (RuntimeException e) {
+            devolverAlContador(devueltas);
+            throw e;
+        }
+        return devueltas;
+    }
+
+    /**
+     * Reconciliación de un nodo que no está vendiendo (este mismo al arrancar, o uno
+     * que se cayó): pliega su consumo y devuelve a P_STOCK el resto de su cupo.
+     * No usar con otro nodo que siga activo.
+     */
+    public Map<Integer, Integer> reconciliarNodo(String nodo) {
+        plegarConsumo(nodo);
+        Map<Integer, Integer> devueltas = new TreeMap<>();
+        transaccionCupo.executeWithoutResult(status -> {
+            jdbcCupo.query("SELECT P_ID, IC_UNIDADES FROM INVENTARIO_CUPO WHERE IC_NODO = ? AND IC_UNIDADES <> 0 FOR UPDATE",
+                    rs -> {
+                        devueltas.put(rs.getInt("P_ID"), rs.getInt("IC_UNIDADES"));
+                    }, nodo);
+            devueltas.forEach((id, unidades) -> {
+                jdbcCupo.update("UPDATE PRODUCTO SET P_STOCK = P_STOCK + ? WHERE P_ID = ?", unidades, id);
+                jdbcCupo.update("UPDATE INVENTARIO_CUPO SET IC_UNIDADES = 0 WHERE IC_NODO = ? AND P_ID = ?", nodo, id);
+            });
+        });
+        productoRepository.olvidarEnCache(devueltas.keySet());
+        return devueltas;
+    }
+
+    /**
+     * Unidades en cupo que los nodos aún no vendieron (o cuyo consumo no se plegó), por
+     * producto y sumando todos los nodos. Junto con P_STOCK es el stock disponible real;
+     * leer ambos en la misma transacción para no contar dos veces un cupo recién asignado.
+     */
+    public Map<Integer, Integer> unidadesEnCupo() {
+        Map<Integer, Integer> unidades = new HashMap<>();
+        jdbcTemplate.query("SELECT P_ID, SUM(UNIDADES) AS UNIDADES FROM (" +
+                "SELECT P_ID, IC_UNIDADES AS UNIDADES FROM INVENTARIO_CUPO " +
+                "UNION ALL SELECT P_ID, -ICO_CANTIDAD FROM INVENTARIO_CONSUMO) c GROUP BY P_ID", rs -> {
+            unidades.put(rs.getInt("P_ID"), rs.getInt("UNIDADES"));
+        });
+        return unidades;
+    }
+
+    /**
+     * Por producto: unidades en los contadores, cupo registrado en la BD, consumo aún
+     * sin plegar y stock sin asignar. "enVuelo" son ventas que tomaron unidades y no
+     * terminaron; un valor negativo indica un descuadre.
+     */
+    public Map<String, Object> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("nodo", nodo);
+        estado.put("cupo", cupo);
+        Map<Integer, Object> porProducto = new TreeMap<>();
+        for (Map.Entry<Integer, ContadorSegmentado> entry : contadores.entrySet()) {
+            Integer id = entry.getKey();
+            int local = entry.getValue().total();
+            Integer enCupo = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(IC_UNIDADES), 0) FROM INVENTARIO_CUPO WHERE IC_NODO = ? AND P_ID = ?",
+                    Integer.class, nodo, id);
+            Integer sinPlegar = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(ICO_CANTIDAD), 0) FROM INVENTARIO_CONSUMO WHERE ICO_NODO = ? AND P_ID = ?",
+                    Integer.class, nodo, id);
+            List<Integer> stock = jdbcTemplate.queryForList(
+                    "SELECT P_STOCK FROM PRODUCTO WHERE P_ID = ?", Integer.class, id);
+
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("disponibleLocal", local);
+            item.put("cupoEnBd", enCupo);
+            item.put("consumoSinPlegar", sinPlegar);
+            item.put("enVuelo", enCupo - sinPlegar - local);
+            item.put("stockSinAsignar", stock.isEmpty() ? null : stock.get(0));
+            porProducto.put(id, item);
+        }
+        estado.put("productos", porProducto);
+        return estado;
+    }
+
+    @PreDestroy
+    public void detener() {
+        try {
+            plegarConsumo(nodo);
+            Map<Integer, Integer> devueltas = devolverTodo();
+            log.info("Inventario caliente: devueltas a P_STOCK al apagar: {}", devueltas);
+        } catch (Exception e) {
+            log.warn("No se pudo devolver el cupo del nodo {} al apagar; se reconcilia al arrancar: {}",
+                    nodo, e.getMessage());
+        } finally {
+            conexionesCupo.close();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package co.edu.tienda.infrastructure.journal;
+
+import co.edu.tienda.domain.entities.Producto;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Vista en memoria del stock para el modo journal.
+ *
+ * disponible = stock en BD - unidades en el journal que aún no se aplicaron.
+ * "pendiente" es la fuente de verdad de lo no aplicado; "disponible" se calcula una
+ * vez al cargar el producto y después solo lo mueven las reservas. Las reservas y
+ * el commit del drenador toman el lock de lectura; recargar un producto toma el de
+ * escritura, así nunca se lee la BD a mitad de un commit del drenador.
+ */
+public class InventarioEnMemoria {
+
+    public static class Item {
+        private final AtomicInteger disponible;
+        private final Producto producto;
+
+        Item(Producto producto, int disponible) {
+            this.producto = producto;
+            this.disponible = new AtomicInteger(disponible);
+        }
+
+        public int getDisponible() {
+            return disponible.get();
+        }
+
+        public Producto getProducto() {
+            return producto;
+        }
+    }
+
+    private final Map<Integer, Item> items = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicInteger> pendiente = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Function<Integer, Optional<Producto>> cargador;
+
+    public InventarioEnMemoria(Function<Integer, Optional<Producto>> cargador) {
+        this.cargador = cargador;
+    }
+
+    /**
+     * Reserva todas las cantidades o ninguna. Devuelve los productos que no alcanzaron
+     * (ID -> disponible, -1 si el producto no existe); vacío si la reserva se hizo.
+     */
+    public Map<Integer, Integer> reservar(Map<Integer, Integer> cantidades, Map<Integer, Item> reservados) {
+        while (true) {
+            Map<Integer, Integer> faltantes = new LinkedHashMap<>();
+            for (Integer id : cantidades.keySet()) {
+                if (obtener(id) == null) {
+                    faltantes.put(id, -1);
+                }
+            }
+            if (!faltantes.isEmpty()) {
+                return faltantes;
+            }
+
+            lock.readLock().lock();
+            try {
+                Map<Integer, Item> actuales = new TreeMap<>();
+                for (Integer id : cantidades.keySet()) {
+                    Item item = items.get(id);
+                    if (item == null) {
+                        break;
+                    }
+                    actuales.put(id, item);
+                }
+                if (actuales.size() < cantidades.size()) {
+                    // Se invalidó un producto entre la carga y la reserva: reintentar
+                    continue;
+                }
+
+                List<Integer> hechos = new ArrayList<>();
+                for (Map.Entry<Integer, Item> entry : actuales.entrySet()) {
+                    int cantidad = cantidades.get(entry.getKey());
+                    AtomicInteger disponible = entry.getValue().disponible;
+                    int actual;
+                    do {
+                        actual = disponible.get();
+                    } while (actual >= cantidad && !disponible.compareAndSet(actual, actual - cantidad));
+
+                    if (actual < cantidad) {
+                        faltantes.put(entry.getKey(), actual);
+                    } else {
+                        hechos.add(entry.getKey());
+                    }
+                }
+
+                if (!faltantes.isEmpty()) {
+                    for (Integer id : hechos) {
+                        actuales.get(id).disponible.addAndGet(cantidades.get(id));
+                    }
+                    return faltantes;
+                }
+
+                for (Integer id : hechos) {
+                    pendiente.computeIfAbsent(id, k -> new AtomicInteger()).addAndGet(cantidades.get(id));
+                }
+                reservados.putAll(actuales);
+                return Map.of();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Cuenta como pendientes unidades que ya están en el journal (reproducción al arrancar).
+     */
+    public void agregarPendiente(Map<Integer, Integer> cantidades) {
+        cantidades.forEach((id, cantidad) ->
+                pendiente.computeIfAbsent(id, k -> new AtomicInteger()).addAndGet(cantidad));
+    }
+
+    /**
+     * Ejecuta el commit del drenador y descuenta lo aplicado de "pendiente" sin que
+     * ninguna recarga vea el estado intermedio.
+     */
+    public <T> T aplicar(Supplier<T> commit, Map<Integer, Integer> aplicadas) {
+        lock.readLock().lock();
+        try {
+            T resultado = commit.get();
+            aplicadas.forEach((id, cantidad) -> {
+                AtomicInteger p = pendiente.get(id);
+                if (p != null) {
+                    p.addAndGet(-cantidad);
+                }
+            });
+            return resultado;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve unidades que nunca llegarán a la BD (venta descartada por el drenador).
+     */
+    public void liberar(Map<Integer, Integer> cantidades) {
+        lock.readLock().lock();
+        try {
+            cantidades.forEach((id, cantidad) -> {
+                AtomicInteger p = pendiente.get(id);
+                if (p != null) {
+                    p.addAndGet(-cantidad);
+                }
+                Item item = items.get(id);
+                if (item != null) {
+                    item.disponible.addAndGet(cantidad);
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Olvida el producto; se recarga desde la BD en el próximo uso.
+     */
+    public void invalidar(Integer id) {
+        items.remove(id);
+    }
+
+    public String nombre(Integer id) {
+        Item item = items.get(id);
+        return item != null ? item.producto.getPNombre() : null;
+    }
+
+    public int totalPendiente() {
+        return pendiente.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    private Item obtener(Integer id) {
+        Item item = items.get(id);
+        if (item != null) {
+            return item;
+        }
+        lock.writeLock().lock();
+        try {
+            item = items.get(id);
+            if (item == null) {
+                Optional<Producto> producto = cargador.apply(id);
+                if (producto.isEmpty()) {
+                    return null;
+                }
+                AtomicInteger p = pendiente.get(id);
+                int disponible = producto.get().getPStock() - (p != null ? p.get() : 0);
+                item = new Item(producto.get(), disponible);
+                items.put(id, item);
+            }
+            return item;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
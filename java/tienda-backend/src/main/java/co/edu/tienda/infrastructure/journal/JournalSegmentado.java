@@ -0,0 +1,306 @@
+package co.edu.tienda.infrastructure.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Log de solo-agregar en segmentos de tamaño fijo mapeados en memoria.
+ * Formato de cada registro: [int longitud][datos][int crc32]; una longitud 0 marca
+ * el final de lo escrito. Las escrituras se hacen durables en grupo: un hilo hace
+ * force() cada pocos milisegundos y despierta a todos los que esperaban ese fsync.
+ *
+ * Las posiciones son globales: (segmento << 32) | offset, crecientes en el tiempo.
+ */
+public class JournalSegmentado implements Closeable {
+
+    private static final int CABECERA = 4;
+    private static final int COLA = 4;
+    private static final String CHECKPOINT = "checkpoint";
+
+    public record Registro(long fin, byte[] datos) {}
+
+    private final Path directorio;
+    private final int tamanoSegmento;
+    private final long intervaloFsyncMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hayDatos = lock.newCondition();
+    private final Condition persistido = lock.newCondition();
+
+    private int segmentoActual;
+    private FileChannel canal;
+    private MappedByteBuffer buffer;
+    private long escrito;
+    private volatile long durable;
+    private volatile boolean abierto;
+    private Thread sincronizador;
+
+    public JournalSegmentado(Path directorio, int tamanoSegmento, long intervaloFsyncMs) {
+        this.directorio = directorio;
+        this.tamanoSegmento = tamanoSegmento;
+        this.intervaloFsyncMs = intervaloFsyncMs;
+    }
+
+    public static long posicion(int segmento, int offset) {
+        return ((long) segmento << 32) | offset;
+    }
+
+    private static int segmento(long posicion) {
+        return (int) (posicion >>> 32);
+    }
+
+    /**
+     * Abre el journal y devuelve los registros escritos después del último checkpoint,
+     * en orden. La escritura continúa después del último registro válido.
+     */
+    public List<Registro> abrir() throws IOException {
+        Files.createDirectories(directorio);
+        long checkpoint = leerCheckpoint();
+        List<Integer> segmentos = listarSegmentos();
+
+        List<Registro> pendientes = new ArrayList<>();
+        int ultimo = segmento(checkpoint);
+        int offsetFinal = (int) checkpoint;
+        for (Integer numero : segmentos) {
+            if (numero < segmento(checkpoint)) {
+                continue;
+            }
+            int inicio = numero == segmento(checkpoint) ? (int) checkpoint : 0;
+            offsetFinal = leerSegmento(numero, inicio, pendientes);
+            ultimo = numero;
+        }
+
+        mapear(ultimo);
+        buffer.position(offsetFinal);
+        limpiarCola(offsetFinal);
+        escrito = posicion(ultimo, offsetFinal);
+        durable = escrito;
+        abierto = true;
+
+        sincronizador = new Thread(this::sincronizar, "venta-journal-fsync");
+        sincronizador.setDaemon(true);
+        sincronizador.start();
+        return pendientes;
+    }
+
+    /**
+     * Agrega un registro y devuelve la posición donde termina. No espera el fsync.
+     */
+    public long agregar(byte[] datos) throws IOException {
+        int necesario = CABECERA + datos.length + COLA;
+        if (necesario + CABECERA > tamanoSegmento) {
+            throw new IOException("Registro de " + datos.length + " bytes no cabe en un segmento");
+        }
+
+        lock.lock();
+        try {
+            if (!abierto) {
+                throw new IOException("El journal está cerrado");
+            }
+            // Siempre queda espacio para la marca de fin (longitud 0)
+            if (buffer.remaining() < necesario + CABECERA) {
+                rotar();
+            }
+            CRC32 crc = new CRC32();
+            crc.update(datos);
+            buffer.putInt(datos.length);
+            buffer.put(datos);
+            buffer.putInt((int) crc.getValue());
+            escrito = posicion(segmentoActual, buffer.position());
+            hayDatos.signal();
+            return escrito;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Bloquea hasta que la posición dada esté en disco (fsync agrupado).
+     */
+    public void esperarDurable(long posicion) throws InterruptedException {
+        if (durable >= posicion) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durable < posicion && abierto) {
+                persistido.await(100, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long durable() {
+        return durable;
+    }
+
+    /**
+     * Registra que todo hasta la posición dada ya se aplicó en la base de datos y
+     * borra los segmentos anteriores.
+     */
+    public void checkpoint(long posicion) throws IOException {
+        Path tmp = directorio.resolve(CHECKPOINT + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.write(ByteBuffer.allocate(Long.BYTES).putLong(0, posicion));
+            ch.force(true);
+        }
+        Files.move(tmp, directorio.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        for (Integer numero : listarSegmentos()) {
+            if (numero < segmento(posicion)) {
+                Files.deleteIfExists(archivo(numero));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (!abierto) {
+                return;
+            }
+            abierto = false;
+            buffer.force();
+            durable = escrito;
+            hayDatos.signalAll();
+            persistido.signalAll();
+            canal.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sincronizar() {
+        while (abierto) {
+            try {
+                lock.lock();
+                try {
+                    while (abierto && durable >= escrito) {
+                        hayDatos.await();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                // Deja que se acumulen más escrituras en el mismo fsync
+                if (intervaloFsyncMs > 0) {
+                    Thread.sleep(intervaloFsyncMs);
+                }
+
+                MappedByteBuffer actual;
+                long objetivo;
+                lock.lock();
+                try {
+                    actual = buffer;
+                    objetivo = escrito;
+                } finally {
+                    lock.unlock();
+                }
+                if (!abierto) {
+                    return;
+                }
+                actual.force();
+
+                lock.lock();
+                try {
+                    durable = Math.max(durable, objetivo);
+                    persistido.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void rotar() throws IOException {
+        buffer.force();
+        canal.close();
+        mapear(segmentoActual + 1);
+        // El segmento anterior quedó completo en disco
+        durable = posicion(segmentoActual, 0);
+        persistido.signalAll();
+    }
+
+    private void mapear(int numero) throws IOException {
+        canal = FileChannel.open(archivo(numero), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanoSegmento);
+        segmentoActual = numero;
+    }
+
+    // Deja en cero lo que haya después del último registro válido (escritura a medias)
+    private void limpiarCola(int desde) {
+        ByteBuffer ceros = ByteBuffer.allocate(64 * 1024);
+        ByteBuffer destino = buffer.duplicate();
+        destino.position(desde);
+        while (destino.hasRemaining()) {
+            ceros.clear().limit(Math.min(ceros.capacity(), destino.remaining()));
+            destino.put(ceros);
+        }
+    }
+
+    private int leerSegmento(int numero, int inicio, List<Registro> pendientes) throws IOException {
+        try (FileChannel ch = FileChannel.open(archivo(numero), StandardOpenOption.READ)) {
+            MappedByteBuffer lectura = ch.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(ch.size(), tamanoSegmento));
+            int offset = inicio;
+            while (offset + CABECERA <= lectura.limit()) {
+                int longitud = lectura.getInt(offset);
+                if (longitud <= 0 || offset + CABECERA + longitud + COLA > lectura.limit()) {
+                    break;
+                }
+                byte[] datos = new byte[longitud];
+                lectura.get(offset + CABECERA, datos);
+                CRC32 crc = new CRC32();
+                crc.update(datos);
+                if ((int) crc.getValue() != lectura.getInt(offset + CABECERA + longitud)) {
+                    break;
+                }
+                offset += CABECERA + longitud + COLA;
+                pendientes.add(new Registro(posicion(numero, offset), datos));
+            }
+            return offset;
+        }
+    }
+
+    private long leerCheckpoint() throws IOException {
+        Path archivo = directorio.resolve(CHECKPOINT);
+        if (!Files.exists(archivo)) {
+            return posicion(0, 0);
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(archivo)).getLong();
+    }
+
+    private List<Integer> listarSegmentos() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith("ventas-") && n.endsWith(".journal"))
+                    .map(n -> Integer.parseInt(n.substring(7, n.length() - 8)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path archivo(int numero) {
+        return directorio.resolve(String.format("ventas-%08d.journal", numero));
+    }
+}
@@ -0,0 +1,33 @@
+package co.edu.tienda.infrastructure.journal;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Reserva IDs de una secuencia pooled igual que el optimizador de Hibernate: cada
+ * nextval v entrega el rango (v - incremento, v], así que no choca con los IDs que
+ * asigna JPA en otros caminos ni en otros nodos.
+ */
+public class RangoIds {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String secuencia;
+    private final int incremento;
+
+    private long siguiente = 1;
+    private long tope = 0;
+
+    public RangoIds(JdbcTemplate jdbcTemplate, String secuencia, int incremento) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.secuencia = secuencia;
+        this.incremento = incremento;
+    }
+
+    public synchronized int siguiente() {
+        if (siguiente > tope) {
+            Long valor = jdbcTemplate.queryForObject("SELECT nextval('" + secuencia + "')", Long.class);
+            tope = valor;
+            siguiente = Math.max(1, valor - incremento + 1);
+        }
+        return Math.toIntExact(siguiente++);
+    }
+}
@@ -0,0 +1,528 @@
+package co.edu.tienda.infrastructure.journal;
+
+import co.edu.tienda.domain.entities.Producto;
+import co.edu.tienda.domain.entities.Venta;
+import co.edu.tienda.domain.entities.VentaDetalle;
+import co.edu.tienda.domain.events.ProductoCambiadoEvent;
+import co.edu.tienda.domain.events.VentaCreadaEvent;
+import co.edu.tienda.domain.exceptions.StockInsuficienteException;
+import co.edu.tienda.domain.repositories.PersonaRepository;
+import co.edu.tienda.domain.repositories.ProductoRepository;
+import co.edu.tienda.domain.repositories.PuntoDeVentaRepository;
+import co.edu.tienda.infrastructure.datasource.SecuenciasPooled;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Modo write-behind de ventas (tienda.ventas.journal.enabled=true).
+ *
+ * La venta se valida contra el inventario en memoria, se escribe en un journal local
+ * mapeado en memoria y se confirma al cliente en cuanto el fsync agrupado la cubre.
+ * Un hilo drenador la aplica después en PostgreSQL en lotes (un commit por lote).
+ * Al arrancar se reproducen las entradas posteriores al último checkpoint; las que ya
+ * estaban en la BD se reconocen por su V_ID y no se vuelven a aplicar.
+ *
+ * Supone que este nodo es el único que vende desde la BD para estos productos; por eso
+ * la carga masiva también pasa por aquí ({@link #registrarLote}). Si el stock en BD baja
+ * por otro camino (p. ej. una edición manual del stock), el drenador lo deja en 0, lo
+ * registra en el log y suma las unidades faltantes en "unidadesSobrevendidas".
+ */
+@Component
+@ConditionalOnProperty(name = "tienda.ventas.journal.enabled", havingValue = "true")
+public class VentaJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(VentaJournal.class);
+
+    private record Pendiente(long fin, VentaJournalEntry entrada) {}
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PersonaRepository personaRepository;
+
+    @Autowired
+    private PuntoDeVentaRepository puntoDeVentaRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tienda.ventas.journal.dir:./journal}")
+    private String directorio;
+
+    @Value("${tienda.ventas.journal.segment-size-mb:64}")
+    private int tamanoSegmentoMb;
+
+    @Value("${tienda.ventas.journal.fsync-interval-ms:2}")
+    private long intervaloFsyncMs;
+
+    @Value("${tienda.ventas.journal.drain-batch-size:500}")
+    private int tamanoLote;
+
+    @Value("${tienda.ventas.journal.drain-idle-ms:20}")
+    private long esperaDrenadorMs;
+
+    private final ObjectMapper mapper = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private final ConcurrentLinkedQueue<Pendiente> cola = new ConcurrentLinkedQueue<>();
+    private final Set<Integer> personasConocidas = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> puntosConocidos = ConcurrentHashMap.newKeySet();
+    private final AtomicLong aceptadas = new AtomicLong();
+    private final AtomicLong aplicadas = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+    private final AtomicLong unidadesSobrevendidas = new AtomicLong();
+
+    private JournalSegmentado journal;
+    private InventarioEnMemoria inventario;
+    private RangoIds idsVenta;
+    private RangoIds idsDetalle;
+    private TransactionTemplate transactionTemplate;
+    private volatile boolean activo;
+    private Thread drenador;
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        inventario = new InventarioEnMemoria(productoRepository::buscarSinCache);
+        idsVenta = new RangoIds(jdbcTemplate, "venta_v_id_seq", SecuenciasPooled.ALLOCATION_SIZE);
+        idsDetalle = new RangoIds(jdbcTemplate, "venta_detalle_vd_id_seq", SecuenciasPooled.ALLOCATION_SIZE);
+
+        journal = new JournalSegmentado(Paths.get(directorio), tamanoSegmentoMb * 1024 * 1024, intervaloFsyncMs);
+        for (JournalSegmentado.Registro registro : journal.abrir()) {
+            VentaJournalEntry entrada = mapper.readValue(registro.datos(), VentaJournalEntry.class);
+            inventario.agregarPendiente(entrada.cantidadesPorProducto());
+            cola.add(new Pendiente(registro.fin(), entrada));
+        }
+        if (!cola.isEmpty()) {
+            log.info("Journal de ventas: {} ventas pendientes de aplicar tras el reinicio", cola.size());
+        }
+
+        Gauge.builder("tienda.ventas.journal.pendientes", cola, ConcurrentLinkedQueue::size)
+                .description("Ventas aceptadas en el journal que aún no están en la BD")
+                .register(meterRegistry);
+        TimeGauge.builder("tienda.ventas.journal.lag", this, TimeUnit.MILLISECONDS, VentaJournal::lagMs)
+                .description("Antigüedad de la venta más vieja sin aplicar en la BD")
+                .register(meterRegistry);
+        FunctionCounter.builder("tienda.ventas.journal.sobrevendidas", unidadesSobrevendidas, AtomicLong::get)
+                .description("Unidades que faltaron en P_STOCK al aplicar ventas del journal")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void arrancarDrenador() {
+        activo = true;
+        drenador = new Thread(this::drenar, "venta-journal-drain");
+        drenador.setDaemon(true);
+        drenador.start();
+    }
+
+    @PreDestroy
+    public void detener() throws IOException, InterruptedException {
+        activo = false;
+        if (drenador != null) {
+            drenador.interrupt();
+            drenador.join(5000);
+        }
+        journal.close();
+    }
+
+    /**
+     * Acepta la venta: valida, reserva stock en memoria, asigna IDs y la escribe en el
+     * journal. Devuelve cuando la entrada está en disco; la BD se actualiza después.
+     */
+    public Venta registrar(Venta venta) {
+        esperarDurable(aceptar(venta));
+        aceptadas.incrementAndGet();
+        return venta;
+    }
+
+    /**
+     * Carga masiva en modo journal: cada venta se acepta o rechaza por separado, igual que
+     * en {@link #registrar}, y se espera un solo fsync para todo el chunk. Los resultados
+     * tienen la misma forma que los de VentaService.crearVentasEnLote.
+     */
+    public List<Map<String, Object>> registrarLote(List<Venta> ventas, int indiceInicial) {
+        String[] errores = new String[ventas.size()];
+        long ultimo = -1;
+        for (int i = 0; i < ventas.size(); i++) {
+            try {
+                ultimo = Math.max(ultimo, aceptar(ventas.get(i)));
+            } catch (RuntimeException e) {
+                errores[i] = e.getMessage();
+            }
+        }
+        if (ultimo >= 0) {
+            esperarDurable(ultimo);
+        }
+
+        List<Map<String, Object>> resultados = new ArrayList<>(ventas.size());
+        for (int i = 0; i < ventas.size(); i++) {
+            Map<String, Object> resultado = new LinkedHashMap<>();
+            resultado.put("indice", indiceInicial + i);
+            if (errores[i] == null) {
+                aceptadas.incrementAndGet();
+                resultado.put("estado", "OK");
+                resultado.put("ventaId", ventas.get(i).getVId());
+                resultado.put("total", ventas.get(i).getTotal());
+            } else {
+                resultado.put("estado", "ERROR");
+                resultado.put("error", errores[i]);
+            }
+            resultados.add(resultado);
+        }
+        return resultados;
+    }
+
+    // Valida, reserva y escribe en el journal; devuelve la posición que debe quedar en disco
+    private long aceptar(Venta venta) {
+        if (venta.getPId() == null || venta.getPvId() == null) {
+            throw new RuntimeException("La venta debe indicar la persona y el punto de venta");
+        }
+        Map<Integer, Integer> cantidades = venta.cantidadesPorProducto();
+        if (!existe(personasConocidas, venta.getPId(), personaRepository::existsById)) {
+            throw new RuntimeException("Persona no encontrada con ID: " + venta.getPId());
+        }
+        if (!existe(puntosConocidos, venta.getPvId(), puntoDeVentaRepository::existsById)) {
+            throw new RuntimeException("Punto de venta no encontrado con ID: " + venta.getPvId());
+        }
+
+        Map<Integer, InventarioEnMemoria.Item> reservados = new HashMap<>();
+        Map<Integer, Integer> faltantes = inventario.reservar(cantidades, reservados);
+        if (!faltantes.isEmpty()) {
+            throw stockInsuficiente(faltantes, cantidades);
+        }
+
+        try {
+            venta.setVId(idsVenta.siguiente());
+            if (venta.getVFecha() == null) {
+                venta.setVFecha(LocalDateTime.now());
+            }
+            List<VentaJournalEntry.Linea> lineas = new ArrayList<>();
+            for (VentaDetalle detalle : venta.getDetalles()) {
+                Producto producto = reservados.get(detalle.getProducto().getPId()).getProducto();
+                if (detalle.getVdPrecioUnitario() == null) {
+                    detalle.setVdPrecioUnitario(producto.getPPrecio());
+                }
+                detalle.setVdId(idsDetalle.siguiente());
+                detalle.setProducto(producto);
+                detalle.setVenta(venta);
+                lineas.add(new VentaJournalEntry.Linea(detalle.getVdId(), producto.getPId(),
+                        detalle.getVdCantidad(), detalle.getVdPrecioUnitario()));
+            }
+            venta.calcularTotales();
+            VentaJournalEntry entrada = new VentaJournalEntry(venta.getVId(), venta.getVFecha(),
+                    venta.getPId(), venta.getPvId(), lineas);
+
+            byte[] datos = mapper.writeValueAsBytes(entrada);
+            // Escritura y encolado en el mismo orden que las posiciones del journal
+            synchronized (cola) {
+                long fin = journal.agregar(datos);
+                cola.add(new Pendiente(fin, entrada));
+                return fin;
+            }
+        } catch (Exception e) {
+            inventario.liberar(cantidades);
+            throw new RuntimeException("No se pudo registrar la venta en el journal: " + e.getMessage(), e);
+        }
+    }
+
+    private void esperarDurable(long fin) {
+        try {
+            journal.esperarDurable(fin);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrumpido esperando el fsync del journal");
+        }
+    }
+
+    // Las ventas que entran por la BD (directas o en lote) cambian el stock real
+    @TransactionalEventListener
+    public void alCrearVenta(VentaCreadaEvent event) {
+        if (event.getOrigen() != VentaCreadaEvent.Origen.JOURNAL) {
+            event.getVenta().getDetalles().forEach(d -> inventario.invalidar(d.getPId()));
+        }
+    }
+
+    @TransactionalEventListener
+    public void alCambiarProducto(ProductoCambiadoEvent event) {
+        inventario.invalidar(event.getProductoId());
+    }
+
+    /**
+     * Lag del drenador: ventas aceptadas que aún no están en la BD y antigüedad de la más vieja.
+     */
+    public Map<String, Object> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("pendientes", cola.size());
+        estado.put("unidadesPendientes", inventario.totalPendiente());
+        estado.put("lagMs", lagMs());
+        estado.put("aceptadas", aceptadas.get());
+        estado.put("aplicadas", aplicadas.get());
+        estado.put("descartadas", descartadas.get());
+        estado.put("unidadesSobrevendidas", unidadesSobrevendidas.get());
+        return estado;
+    }
+
+    public int pendientes() {
+        return cola.size();
+    }
+
+    private long lagMs() {
+        Pendiente primera = cola.peek();
+        return primera == null ? 0
+                : Math.max(0, Duration.between(primera.entrada().fecha(), LocalDateTime.now()).toMillis());
+    }
+
+    private void drenar() {
+        long espera = esperaDrenadorMs;
+        while (activo) {
+            List<Pendiente> lote = siguienteLote();
+            if (lote.isEmpty()) {
+                dormir(esperaDrenadorMs);
+                continue;
+            }
+            try {
+                aplicarLote(lote);
+                espera = esperaDrenadorMs;
+            } catch (DataIntegrityViolationException e) {
+                // Alguna venta ya no es aplicable (p. ej. persona eliminada): aislarla
+                log.warn("Lote del journal rechazado, se aplica venta por venta: {}", e.getMessage());
+                aplicarUnaPorUna(lote);
+            } catch (Exception e) {
+                // BD caída o error transitorio: reintentar el mismo lote más tarde
+                log.warn("No se pudo drenar el journal, reintento en {} ms: {}", espera, e.getMessage());
+                dormir(espera);
+                espera = Math.min(espera * 2, 5000);
+            }
+        }
+    }
+
+    // Las primeras entradas de la cola que ya están en disco (no se quitan hasta aplicarlas)
+    private List<Pendiente> siguienteLote() {
+        long durable = journal.durable();
+        List<Pendiente> lote = new ArrayList<>();
+        for (Pendiente pendiente : cola) {
+            if (lote.size() == tamanoLote || pendiente.fin() > durable) {
+                break;
+            }
+            lote.add(pendiente);
+        }
+        return lote;
+    }
+
+    private void aplicarLote(List<Pendiente> lote) throws IOException {
+        List<VentaJournalEntry> entradas = lote.stream().map(Pendiente::entrada).toList();
+        Map<Integer, Integer> unidades = new TreeMap<>();
+        entradas.forEach(e -> e.cantidadesPorProducto().forEach((id, c) -> unidades.merge(id, c, Integer::sum)));
+
+        Map<Integer, Integer> sobreventas =
+                inventario.aplicar(() -> transactionTemplate.execute(status -> insertar(entradas)), unidades);
+        // Se cuenta después del commit: un lote reintentado no suma dos veces
+        sobreventas.forEach((id, faltan) -> {
+            log.error("Sobreventa al aplicar el journal: al producto {} le faltaron {} unidades; su stock quedó en 0",
+                    id, faltan);
+            unidadesSobrevendidas.addAndGet(faltan);
+        });
+        terminar(lote);
+        aplicadas.addAndGet(lote.size());
+    }
+
+    private void aplicarUnaPorUna(List<Pendiente> lote) {
+        for (Pendiente pendiente : lote) {
+            try {
+                aplicarLote(List.of(pendiente));
+            } catch (DataIntegrityViolationException e) {
+                descartar(pendiente, e.getMessage());
+            } catch (Exception e) {
+                // Error transitorio: el resto del lote se reintenta en la siguiente vuelta
+                log.warn("No se pudo aplicar la venta {} del journal: {}", pendiente.entrada().vId(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Inserta las ventas que aún no están en la BD, con sus detalles, y descuenta el stock.
+     * Devuelve las unidades que faltaron por producto para descontar completo.
+     */
+    private Map<Integer, Integer> insertar(List<VentaJournalEntry> entradas) {
+        String ids = entradas.stream().map(e -> String.valueOf(e.vId())).collect(Collectors.joining(","));
+        Set<Integer> existentes = new HashSet<>(
+                jdbcTemplate.queryForList("SELECT V_ID FROM VENTA WHERE V_ID IN (" + ids + ")", Integer.class));
+        List<VentaJournalEntry> nuevas = entradas.stream().filter(e -> !existentes.contains(e.vId())).toList();
+        if (nuevas.isEmpty()) {
+            return Map.of();
+        }
+
+        List<Object[]> ventas = new ArrayList<>();
+        List<Object[]> detalles = new ArrayList<>();
+        Map<Integer, Integer> stock = new TreeMap<>();
+        for (VentaJournalEntry e : nuevas) {
+            ventas.add(new Object[]{e.vId(), Timestamp.valueOf(e.fecha()), e.pId(), e.pvId(), e.total(), e.detalles().size()});
+            for (VentaJournalEntry.Linea linea : e.detalles()) {
+                detalles.add(new Object[]{linea.vdId(), e.vId(), linea.pId(), linea.cantidad(), linea.precioUnitario()});
+            }
+            e.cantidadesPorProducto().forEach((id, c) -> stock.merge(id, c, Integer::sum));
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO VENTA (V_ID, V_FECHA, P_ID, PV_ID, V_TOTAL, V_NUM_LINEAS) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", ventas);
+        jdbcTemplate.batchUpdate("INSERT INTO VENTA_DETALLE (VD_ID, V_ID, P_ID, VD_CANTIDAD, VD_PRECIO_UNITARIO) " +
+                "VALUES (?, ?, ?, ?, ?)", detalles);
+
+        // Las ventas ya fueron confirmadas al cliente: no se rechazan, el stock no baja de 0.
+        // Si no alcanza, el stock bajó por otro camino: se registra y se cuenta la diferencia.
+        String productos = stock.keySet().stream().map(String::valueOf).collect(Collectors.joining(","));
+        Map<Integer, Integer> faltantes = new TreeMap<>();
+        jdbcTemplate.query("SELECT P_ID, P_STOCK FROM PRODUCTO WHERE P_ID IN (" + productos + ") ORDER BY P_ID FOR UPDATE",
+                rs -> {
+                    int faltan = stock.get(rs.getInt(1)) - rs.getInt(2);
+                    if (faltan > 0) {
+                        faltantes.put(rs.getInt(1), faltan);
+                    }
+                });
+        List<Object[]> descuentos = stock.entrySet().stream()
+                .map(s -> new Object[]{s.getValue(), s.getKey()})
+                .toList();
+        jdbcTemplate.batchUpdate("UPDATE PRODUCTO SET P_STOCK = GREATEST(P_STOCK - ?, 0) WHERE P_ID = ?", descuentos);
+        productoRepository.olvidarEnCache(stock.keySet());
+
+        for (VentaJournalEntry e : nuevas) {
+            eventPublisher.publishEvent(new VentaCreadaEvent(aVenta(e), VentaCreadaEvent.Origen.JOURNAL));
+        }
+        return faltantes;
+    }
+
+    private void descartar(Pendiente pendiente, String error) {
+        log.error("Venta {} del journal descartada: {}", pendiente.entrada().vId(), error);
+        try {
+            Map<String, Object> registro = new LinkedHashMap<>();
+            registro.put("venta", pendiente.entrada());
+            registro.put("error", error);
+            Files.write(Paths.get(directorio).resolve("descartadas.ndjson"),
+                    (mapper.writeValueAsString(registro) + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            inventario.liberar(pendiente.entrada().cantidadesPorProducto());
+            terminar(List.of(pendiente));
+            descartadas.incrementAndGet();
+        } catch (IOException e) {
+            log.error("No se pudo guardar la venta descartada {}: {}", pendiente.entrada().vId(), e.getMessage());
+        }
+    }
+
+    private void terminar(List<Pendiente> lote) throws IOException {
+        for (int i = 0; i < lote.size(); i++) {
+            cola.poll();
+        }
+        journal.checkpoint(lote.get(lote.size() - 1).fin());
+    }
+
+    private Venta aVenta(VentaJournalEntry e) {
+        Venta venta = new Venta();
+        venta.setVId(e.vId());
+        venta.setVFecha(e.fecha());
+        venta.setPId(e.pId());
+        venta.setPvId(e.pvId());
+        for (VentaJournalEntry.Linea linea : e.detalles()) {
+            VentaDetalle detalle = new VentaDetalle();
+            detalle.setVdId(linea.vdId());
+            detalle.setPId(linea.pId());
+            detalle.setVdCantidad(linea.cantidad());
+            detalle.setVdPrecioUnitario(linea.precioUnitario());
+            venta.addDetalle(detalle);
+        }
+        venta.calcularTotales();
+        return venta;
+    }
+
+    private boolean existe(Set<Integer> conocidos, Integer id, Predicate<Integer> consulta) {
+        if (conocidos.contains(id)) {
+            return true;
+        }
+        if (consulta.test(id)) {
+            conocidos.add(id);
+            return true;
+        }
+        return false;
+    }
+
+    private StockInsuficienteException stockInsuficiente(Map<Integer, Integer> faltantes, Map<Integer, Integer> cantidades) {
+        List<Map<String, Object>> detalle = new ArrayList<>();
+        List<String> partes = new ArrayList<>();
+        faltantes.forEach((id, disponible) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("productoId", id);
+            item.put("solicitado", cantidades.get(id));
+            if (disponible < 0) {
+                item.put("error", "Producto no encontrado");
+                partes.add("Producto no encontrado: " + id);
+            } else {
+                String nombre = inventario.nombre(id);
+                item.put("nombreProducto", nombre);
+                item.put("disponible", disponible);
+                partes.add(nombre + " (disponible: " + disponible + ", solicitado: " + cantidades.get(id) + ")");
+            }
+            detalle.add(item);
+        });
+        return new StockInsuficienteException("Stock insuficiente para: " + String.join("; ", partes), detalle);
+    }
+
+    private void dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            activo = false;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package co.edu.tienda.infrastructure.journal;
+
+import co.edu.tienda.domain.valores.Centavos;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Registro de una venta aceptada en el journal. Lleva los IDs ya reservados de las
+ * secuencias, así la reproducción tras un reinicio puede saltarse lo ya insertado.
+ */
+public record VentaJournalEntry(Integer vId, LocalDateTime fecha, Integer pId, Integer pvId, List<Linea> detalles) {
+
+    public record Linea(Integer vdId, Integer pId, Integer cantidad, BigDecimal precioUnitario) {}
+
+    public Map<Integer, Integer> cantidadesPorProducto() {
+        Map<Integer, Integer> cantidades = new TreeMap<>();
+        for (Linea linea : detalles) {
+            cantidades.merge(linea.pId(), linea.cantidad(), Integer::sum);
+        }
+        return cantidades;
+    }
+
+    public BigDecimal total() {
+        long total = 0;
+        for (Linea linea : detalles) {
+            total = Centavos.sumar(total, Centavos.por(Centavos.de(linea.precioUnitario()), linea.cantidad()));
+        }
+        return Centavos.aDecimal(total);
+    }
+}
@@ -0,0 +1,30 @@
+package co.edu.tienda.infrastructure.metricas;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Métricas de Hibernate además de las que Spring Boot publica desde sus estadísticas
+ * (hibernate.statements, hibernate.entities.loads, hibernate.flushes,
+ * hibernate.second.level.cache.requests, hibernate.query.cache.requests, ...).
+ */
+@Configuration
+public class MetricasConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer sentenciasPorSesionCustomizer(MeterRegistry meterRegistry) {
+        SentenciasPorSesion.usar(DistributionSummary.builder("tienda.hibernate.sentencias")
+                .description("Sentencias JDBC preparadas por sesión de Hibernate (una transacción)")
+                .baseUnit("sentencias")
+                .register(meterRegistry));
+        return propiedades -> {
+            propiedades.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, SentenciasPorSesion.class.getName());
+            // Sentencias por request y por endpoint (PresupuestoSentenciasFilter)
+            propiedades.put(AvailableSettings.STATEMENT_INSPECTOR, new SentenciasPorRequest());
+        };
+    }
+}
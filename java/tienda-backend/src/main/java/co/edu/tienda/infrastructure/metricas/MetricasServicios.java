@@ -0,0 +1,44 @@
+package co.edu.tienda.infrastructure.metricas;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Timer "tienda.servicios" para cada método público de los *ServiceImpl, con etiquetas
+ * servicio, metodo y excepcion. Los percentiles y el histograma se configuran con
+ * management.metrics.distribution.* en application.properties.
+ *
+ * Solo se miden las llamadas que pasan por el proxy de Spring: un método que llama a
+ * otro del mismo servicio cuenta una vez.
+ */
+@Aspect
+@Component
+public class MetricasServicios {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Around("execution(public * co.edu.tienda.domain.services.impl.*ServiceImpl.*(..))")
+    public Object medir(ProceedingJoinPoint punto) throws Throwable {
+        Timer.Sample muestra = Timer.start(meterRegistry);
+        String excepcion = "none";
+        try {
+            return punto.proceed();
+        } catch (Throwable e) {
+            excepcion = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            muestra.stop(Timer.builder("tienda.servicios")
+                    .description("Duración de los métodos de los servicios")
+                    .tag("servicio", punto.getSignature().getDeclaringType().getSimpleName())
+                    .tag("metodo", punto.getSignature().getName())
+                    .tag("excepcion", excepcion)
+                    .register(meterRegistry));
+        }
+    }
+}
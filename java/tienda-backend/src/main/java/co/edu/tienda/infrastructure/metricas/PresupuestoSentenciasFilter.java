@@ -0,0 +1,106 @@
+package co.edu.tienda.infrastructure.metricas;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Presupuesto de sentencias SQL por request. Cuenta las sentencias de cada request con
+ * {@link SentenciasPorRequest} y las registra en "tienda.http.sentencias" por endpoint
+ * (el patrón de la ruta, p. ej. /api/ventas/{id}).
+ *
+ * Un request que pasa de {@code tienda.sql.presupuesto.por-request} sentencias, o que
+ * repite la misma sentencia {@code tienda.sql.presupuesto.repeticiones} veces o más (un
+ * N+1 probable), se registra en el log con las sentencias repetidas y suma en
+ * "tienda.http.sentencias.excedidas". Con {@code tienda.sql.presupuesto.estricto=true}
+ * el request además termina con IllegalStateException, para que una prueba con MockMvc
+ * falle.
+ */
+@Component
+public class PresupuestoSentenciasFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(PresupuestoSentenciasFilter.class);
+
+    // Largo máximo de cada sentencia en el log
+    private static final int LARGO_SENTENCIA = 300;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tienda.sql.presupuesto.por-request:20}")
+    private int presupuesto;
+
+    @Value("${tienda.sql.presupuesto.repeticiones:5}")
+    private int repeticiones;
+
+    @Value("${tienda.sql.presupuesto.estricto:false}")
+    private boolean estricto;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SentenciasPorRequest.Conteo conteo = SentenciasPorRequest.iniciar();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SentenciasPorRequest.terminar(conteo);
+        }
+        revisar(request, conteo);
+    }
+
+    private void revisar(HttpServletRequest request, SentenciasPorRequest.Conteo conteo) {
+        Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = patron != null ? patron.toString() : "UNKNOWN";
+        String metodo = request.getMethod();
+        DistributionSummary.builder("tienda.http.sentencias")
+                .description("Sentencias SQL de Hibernate por request")
+                .baseUnit("sentencias")
+                .tag("metodo", metodo)
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(conteo.getTotal());
+
+        String motivo;
+        if (conteo.maximoRepeticiones() >= repeticiones) {
+            motivo = "n+1";
+        } else if (conteo.getTotal() > presupuesto) {
+            motivo = "presupuesto";
+        } else {
+            return;
+        }
+        Counter.builder("tienda.http.sentencias.excedidas")
+                .description("Requests que pasaron del presupuesto de sentencias o repitieron una sentencia")
+                .tag("metodo", metodo)
+                .tag("endpoint", endpoint)
+                .tag("motivo", motivo)
+                .register(meterRegistry)
+                .increment();
+
+        StringBuilder detalle = new StringBuilder();
+        for (Map.Entry<String, Integer> repetida : conteo.repetidas(repeticiones).entrySet()) {
+            String sql = repetida.getKey();
+            detalle.append("\n  ").append(repetida.getValue()).append("x ")
+                    .append(sql.length() > LARGO_SENTENCIA ? sql.substring(0, LARGO_SENTENCIA) + "..." : sql);
+        }
+        String mensaje = metodo + " " + endpoint + ": " + conteo.getTotal() + " sentencias SQL (presupuesto "
+                + presupuesto + ("n+1".equals(motivo) ? "; N+1 probable" : "") + ")" + detalle;
+        if (estricto) {
+            throw new IllegalStateException(mensaje);
+        }
+        log.warn(mensaje);
+    }
+}
@@ -0,0 +1,117 @@
+package co.edu.tienda.infrastructure.metricas;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.*;
+
+/**
+ * Cuenta, por hilo, las sentencias SQL que Hibernate prepara mientras hay un
+ * {@link Conteo} abierto: el que abre {@link PresupuestoSentenciasFilter} para cada
+ * request o el de {@link #contar}. Se registra como el StatementInspector de Hibernate,
+ * así que ve también las que salen de relaciones EAGER y de cargas perezosas; no ve las
+ * de JdbcTemplate.
+ *
+ * Las sentencias se agrupan por su texto (con los parámetros como "?"), de modo que un
+ * N+1 aparece como la misma sentencia repetida muchas veces.
+ */
+public class SentenciasPorRequest implements StatementInspector {
+
+    // Sentencias distintas que se guardan por conteo; las demás solo suman al total
+    private static final int MAX_DISTINTAS = 200;
+
+    private static final ThreadLocal<Conteo> ACTUAL = new ThreadLocal<>();
+
+    /**
+     * Sentencias contadas en un request o en un bloque de {@link #contar}.
+     */
+    public static final class Conteo {
+        private final Conteo anterior;
+        private final Map<String, Integer> porSentencia = new HashMap<>();
+        private int total;
+
+        private Conteo(Conteo anterior) {
+            this.anterior = anterior;
+        }
+
+        private void registrar(String sql) {
+            total++;
+            if (porSentencia.size() < MAX_DISTINTAS || porSentencia.containsKey(sql)) {
+                porSentencia.merge(sql, 1, Integer::sum);
+            }
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * Veces que se ejecutó cada sentencia que se repitió al menos {@code minimo}
+         * veces, de la más repetida a la menos.
+         */
+        public Map<String, Integer> repetidas(int minimo) {
+            List<Map.Entry<String, Integer>> entradas = new ArrayList<>();
+            for (Map.Entry<String, Integer> entrada : porSentencia.entrySet()) {
+                if (entrada.getValue() >= minimo) {
+                    entradas.add(entrada);
+                }
+            }
+            entradas.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+            Map<String, Integer> repetidas = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> entrada : entradas) {
+                repetidas.put(entrada.getKey(), entrada.getValue());
+            }
+            return repetidas;
+        }
+
+        /**
+         * Veces que se ejecutó la sentencia más repetida; 0 si no hubo sentencias.
+         */
+        public int maximoRepeticiones() {
+            int maximo = 0;
+            for (int veces : porSentencia.values()) {
+                maximo = Math.max(maximo, veces);
+            }
+            return maximo;
+        }
+    }
+
+    @Override
+    public String inspect(String sql) {
+        // Un bloque de contar() dentro de un request cuenta en los dos
+        for (Conteo conteo = ACTUAL.get(); conteo != null; conteo = conteo.anterior) {
+            conteo.registrar(sql);
+        }
+        return sql;
+    }
+
+    /**
+     * Abre un conteo en el hilo actual; hay que cerrarlo con {@link #terminar}.
+     */
+    public static Conteo iniciar() {
+        Conteo conteo = new Conteo(ACTUAL.get());
+        ACTUAL.set(conteo);
+        return conteo;
+    }
+
+    public static void terminar(Conteo conteo) {
+        if (conteo.anterior != null) {
+            ACTUAL.set(conteo.anterior);
+        } else {
+            ACTUAL.remove();
+        }
+    }
+
+    /**
+     * Ejecuta {@code accion} y devuelve las sentencias que preparó en este hilo. Pensado
+     * para pruebas: {@code contar(() -> ventaService.buscarPorId(1)).getTotal()}.
+     */
+    public static Conteo contar(Runnable accion) {
+        Conteo conteo = iniciar();
+        try {
+            accion.run();
+        } finally {
+            terminar(conteo);
+        }
+        return conteo;
+    }
+}
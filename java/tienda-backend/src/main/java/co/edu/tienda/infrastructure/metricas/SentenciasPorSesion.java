@@ -0,0 +1,37 @@
+package co.edu.tienda.infrastructure.metricas;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import org.hibernate.SessionEventListener;
+
+/**
+ * Cuenta las sentencias JDBC que prepara cada sesión de Hibernate y al cerrarla las
+ * registra en "tienda.hibernate.sentencias". Sin open-in-view una sesión dura una
+ * transacción (o una consulta fuera de ella); las sentencias por request se cuentan
+ * aparte, en "tienda.http.sentencias".
+ *
+ * Hibernate crea una instancia por sesión (hibernate.session.events.auto), así que el
+ * contador no se comparte entre hilos; el registro llega por {@link #usar}.
+ */
+public class SentenciasPorSesion implements SessionEventListener {
+
+    private static volatile DistributionSummary sentencias;
+
+    private int preparadas;
+
+    static void usar(DistributionSummary resumen) {
+        sentencias = resumen;
+    }
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        preparadas++;
+    }
+
+    @Override
+    public void end() {
+        DistributionSummary resumen = sentencias;
+        if (resumen != null) {
+            resumen.record(preparadas);
+        }
+    }
+}
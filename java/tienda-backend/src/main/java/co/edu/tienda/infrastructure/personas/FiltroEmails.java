@@ -0,0 +1,294 @@
+package co.edu.tienda.infrastructure.personas;
+
+import co.edu.tienda.infrastructure.hilos.FabricaHilos;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom con los emails (normalizados) de PERSONA, para registrar una persona
+ * sin consultar la BD cuando su email seguro no existe. Si el filtro dice "puede
+ * existir" (un email registrado o un falso positivo) se consulta la BD como antes.
+ *
+ * Se carga en segundo plano al arrancar y se vuelve a cargar cada {@code recarga-ms}
+ * (así olvida los emails de personas eliminadas o cambiadas y aprende los que
+ * registraron otras instancias) o cuando pasa de su capacidad. Los emails nuevos se
+ * agregan al confirmarse la transacción que los inserta. La unicidad la garantiza la
+ * BD: dos registros simultáneos del mismo email terminan en una violación de la
+ * restricción única.
+ */
+@Component
+public class FiltroEmails {
+
+    private static final Logger log = LoggerFactory.getLogger(FiltroEmails.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FabricaHilos fabricaHilos;
+
+    @Value("${tienda.personas.emails.capacidad:1000000}")
+    private long capacidadMinima;
+
+    @Value("${tienda.personas.emails.falsos-positivos:0.01}")
+    private double falsosPositivos;
+
+    @Value("${tienda.personas.emails.fetch-size:10000}")
+    private int fetchSize;
+
+    // null hasta la primera carga: mientras tanto todo email "puede existir"
+    private volatile Bloom filtro;
+    // Filtro que se está cargando; los emails nuevos se agregan a los dos
+    private Bloom enCarga;
+
+    private final AtomicBoolean cargaPendiente = new AtomicBoolean();
+    private final AtomicLong consultas = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+    private volatile String error;
+    private volatile long duracionCargaMs = -1;
+    private volatile long ultimaCarga;
+    private ExecutorService cargador;
+
+    /**
+     * Bits en un AtomicLongArray: se pueden agregar emails mientras se consulta.
+     * Las k posiciones salen de dos mitades de un hash de 64 bits (h1 + i·h2).
+     */
+    private static final class Bloom {
+        private final AtomicLongArray bits;
+        private final long cantidadBits;
+        private final int funciones;
+        private final long capacidad;
+        private final AtomicLong elementos = new AtomicLong();
+
+        Bloom(long capacidad, double falsosPositivos) {
+            long m = (long) Math.ceil(-capacidad * Math.log(falsosPositivos) / (Math.log(2) * Math.log(2)));
+            this.cantidadBits = Math.max(64, (m + 63) / 64 * 64);
+            this.funciones = Math.max(1, (int) Math.round((double) cantidadBits / capacidad * Math.log(2)));
+            this.capacidad = capacidad;
+            this.bits = new AtomicLongArray((int) (cantidadBits / 64));
+        }
+
+        void agregar(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < funciones; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % cantidadBits;
+                int palabra = (int) (bit >>> 6);
+                long mascara = 1L << bit;
+                long actual = bits.get(palabra);
+                while ((actual & mascara) == 0 && !bits.compareAndSet(palabra, actual, actual | mascara)) {
+                    actual = bits.get(palabra);
+                }
+            }
+            elementos.incrementAndGet();
+        }
+
+        boolean contiene(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < funciones; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % cantidadBits;
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        cargador = fabricaHilos.unHilo("filtro-emails");
+    }
+
+    /**
+     * Forma en que se comparan los emails: sin espacios alrededor y en minúsculas.
+     */
+    public static String normalizar(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Hash de 64 bits del email normalizado (FNV-1a con la mezcla final de SplitMix64).
+     */
+    public static long hash(String email) {
+        String normalizado = normalizar(email);
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalizado.length(); i++) {
+            h ^= normalizado.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 30;
+        h *= 0xbf58476d1ce4e5b9L;
+        h ^= h >>> 27;
+        h *= 0x94d049bb133111ebL;
+        h ^= h >>> 31;
+        return h;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        programarCarga();
+    }
+
+    @Scheduled(initialDelayString = "${tienda.personas.emails.recarga-ms:3600000}",
+            fixedDelayString = "${tienda.personas.emails.recarga-ms:3600000}")
+    public void recargarPeriodicamente() {
+        programarCarga();
+    }
+
+    public void programarCarga() {
+        if (cargaPendiente.compareAndSet(false, true)) {
+            cargador.execute(() -> {
+                cargaPendiente.set(false);
+                try {
+                    cargar();
+                } catch (Exception e) {
+                    synchronized (this) {
+                        enCarga = null;
+                    }
+                    error = e.getMessage();
+                    log.warn("No se pudo cargar el filtro de emails; se consulta la BD en cada registro: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void cargar() {
+        long inicio = System.nanoTime();
+        Long personas = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PERSONA", Long.class);
+        // Margen para crecer hasta la próxima carga sin pasar de la tasa de falsos positivos
+        Bloom nuevo = new Bloom(Math.max(capacidadMinima, 2 * (personas != null ? personas : 0)), falsosPositivos);
+        // Desde aquí los emails confirmados van también al filtro nuevo: lo que se confirmó
+        // antes lo ve la lectura
+        synchronized (this) {
+            enCarga = nuevo;
+        }
+        jdbcTemplate.execute((Connection conexion) -> {
+            // Cursor de PostgreSQL: requiere autocommit desactivado
+            boolean autoCommit = conexion.getAutoCommit();
+            conexion.setAutoCommit(false);
+            try (PreparedStatement ps = conexion.prepareStatement("SELECT P_EMAIL FROM PERSONA",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        nuevo.agregar(hash(rs.getString(1)));
+                    }
+                }
+            } finally {
+                conexion.commit();
+                conexion.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+        synchronized (this) {
+            filtro = nuevo;
+            enCarga = null;
+        }
+        error = null;
+        ultimaCarga = System.currentTimeMillis();
+        duracionCargaMs = (System.nanoTime() - inicio) / 1_000_000;
+        log.info("Filtro de emails: {} emails en {} ms ({} KB)", nuevo.elementos.get(), duracionCargaMs,
+                nuevo.cantidadBits / 8 / 1024);
+    }
+
+    /**
+     * false solo si el email seguro no está en PERSONA (según lo confirmado hasta ahora).
+     */
+    public boolean puedeExistir(String email) {
+        Bloom actual = filtro;
+        consultas.incrementAndGet();
+        if (actual == null || actual.contiene(hash(email))) {
+            return true;
+        }
+        descartadas.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Agrega el email al confirmarse la transacción actual (o ya, si no hay una).
+     */
+    public void agregarAlConfirmar(String email) {
+        agregarAlConfirmar(new long[]{hash(email)}, 1);
+    }
+
+    /**
+     * Como {@link #agregarAlConfirmar(String)}, con los primeros {@code cantidad} hashes.
+     */
+    public void agregarAlConfirmar(long[] hashes, int cantidad) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    agregar(hashes, cantidad);
+                }
+            });
+        } else {
+            agregar(hashes, cantidad);
+        }
+    }
+
+    private void agregar(long[] hashes, int cantidad) {
+        Bloom actual;
+        synchronized (this) {
+            actual = filtro;
+            for (int i = 0; i < cantidad; i++) {
+                if (actual != null) {
+                    actual.agregar(hashes[i]);
+                }
+                if (enCarga != null) {
+                    enCarga.agregar(hashes[i]);
+                }
+            }
+        }
+        if (actual != null && actual.elementos.get() > actual.capacidad) {
+            programarCarga();
+        }
+    }
+
+    public Map<String, Object> estado() {
+        Bloom actual = filtro;
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("cargado", actual != null);
+        estado.put("emails", actual != null ? actual.elementos.get() : 0);
+        estado.put("capacidad", actual != null ? actual.capacidad : 0);
+        estado.put("funcionesHash", actual != null ? actual.funciones : 0);
+        estado.put("kb", actual != null ? actual.cantidadBits / 8 / 1024 : 0);
+        estado.put("falsosPositivosObjetivo", falsosPositivos);
+        estado.put("consultas", consultas.get());
+        estado.put("sinConsultarBd", descartadas.get());
+        estado.put("duracionCargaMs", duracionCargaMs);
+        estado.put("ultimaCarga", ultimaCarga > 0 ? Instant.ofEpochMilli(ultimaCarga).toString() : null);
+        estado.put("error", error);
+        return estado;
+    }
+
+    @PreDestroy
+    public void detener() {
+        cargador.shutdownNow();
+    }
+}
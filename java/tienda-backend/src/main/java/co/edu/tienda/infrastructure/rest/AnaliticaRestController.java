@@ -0,0 +1,53 @@
+package co.edu.tienda.infrastructure.rest;
+
+import co.edu.tienda.infrastructure.analitica.AnaliticaVentas;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/analitica")
+public class AnaliticaRestController {
+
+    @Autowired
+    private ObjectProvider<AnaliticaVentas> analiticaVentas;
+
+    // GET /api/analitica/ventas?agrupar=producto,puntoVenta,dia&desde=&hasta=&productoId=&pvId=&personaId=&limit=
+    @GetMapping("/ventas")
+    public ResponseEntity<Map<String, Object>> ventas(@RequestParam(defaultValue = "producto") String agrupar,
+                                                      @RequestParam(required = false) String desde,
+                                                      @RequestParam(required = false) String hasta,
+                                                      @RequestParam(required = false) Integer productoId,
+                                                      @RequestParam(required = false) Integer pvId,
+                                                      @RequestParam(required = false) Integer personaId,
+                                                      @RequestParam(defaultValue = "1000") Integer limit) {
+        AnaliticaVentas analitica = analiticaVentas.getIfAvailable();
+        if (analitica == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "La copia analítica no está activa (tienda.analitica.enabled)"));
+        }
+        try {
+            List<String> dimensiones = Arrays.stream(agrupar.split(","))
+                    .map(String::trim).filter(d -> !d.isEmpty()).toList();
+            return ResponseEntity.ok(analitica.agregar(dimensiones, productoId, pvId, personaId,
+                    desde != null ? LocalDate.parse(desde) : null,
+                    hasta != null ? LocalDate.parse(hasta) : null,
+                    limit));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Fecha inválida: " + e.getParsedString()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
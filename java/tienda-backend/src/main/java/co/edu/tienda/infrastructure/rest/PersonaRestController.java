@@ -1,12 +1,18 @@
 package co.edu.tienda.infrastructure.rest;
 
 import co.edu.tienda.domain.entities.Persona;
+import co.edu.tienda.domain.services.PersonaImportService;
 import co.edu.tienda.domain.services.PersonaService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -19,6 +25,9 @@ public class PersonaRestController {
     @Autowired
     private PersonaService personaService;
 
+    @Autowired
+    private PersonaImportService personaImportService;
+
     // GET /api/personas - Listar todas las personas
     @GetMapping
     public ResponseEntity<List<Persona>> listarTodas() {
@@ -45,6 +54,18 @@ public class PersonaRestController {
         }
     }
 
+    // POST /api/personas/importar - Carga masiva desde CSV (nombre,apellido,email,telefono), con COPY
+    @PostMapping(value = "/importar", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<?> importar(HttpServletRequest request) throws IOException {
+        try {
+            // Lectura en streaming: nunca se tiene todo el archivo en memoria
+            return ResponseEntity.ok(personaImportService.importar(
+                    new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
     // PUT /api/personas/{id} - Actualizar persona
     @PutMapping("/{id}")
     public ResponseEntity<?> actualizar(@PathVariable Integer id, @RequestBody Persona persona) {
@@ -2,10 +2,13 @@ package co.edu.tienda.infrastructure.rest;
 
 import co.edu.tienda.domain.entities.Producto;
 import co.edu.tienda.domain.services.ProductoService;
+import co.edu.tienda.infrastructure.inventario.IndiceStockBajo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -19,6 +22,9 @@ public class ProductoRestController {
     @Autowired
     private ProductoService productoService;
 
+    @Autowired
+    private IndiceStockBajo indiceStockBajo;
+
     // GET /api/productos - Listar todos los productos
     @GetMapping
     public ResponseEntity<List<Producto>> listarTodos() {
@@ -26,6 +32,13 @@ public class ProductoRestController {
         return ResponseEntity.ok(productos);
     }
 
+    // GET /api/productos/buscar?q=&limit= - Búsqueda por prefijo en nombre y descripción
+    @GetMapping("/buscar")
+    public ResponseEntity<List<Map<String, Object>>> buscar(@RequestParam(defaultValue = "") String q,
+                                                            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(productoService.buscar(q, limit));
+    }
+
     // GET /api/productos/{id} - Buscar producto por ID
     @GetMapping("/{id}")
     public ResponseEntity<Producto> buscarPorId(@PathVariable Integer id) {
@@ -74,10 +87,27 @@ public class ProductoRestController {
         return ResponseEntity.ok(productos);
     }
 
+    // GET /api/productos/stock-bajo/stream - Avisos (SSE) cuando un producto cruza el punto de reorden
+    @GetMapping(value = "/stock-bajo/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suscribirStockBajo() {
+        return indiceStockBajo.suscribir();
+    }
+
     // GET /api/productos/cantidad-vendida - Cantidad vendida por producto
     @GetMapping("/cantidad-vendida")
     public ResponseEntity<List<Map<String, Object>>> obtenerCantidadVendida() {
         List<Map<String, Object>> resultado = productoService.obtenerCantidadVendidaPorProducto();
         return ResponseEntity.ok(resultado);
     }
+
+    // GET /api/productos/trending?ventana=5m|1h|1d&limit= - Productos más vendidos en la ventana
+    @GetMapping("/trending")
+    public ResponseEntity<?> obtenerTendencias(@RequestParam(defaultValue = "1h") String ventana,
+                                               @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(productoService.obtenerTendencias(ventana, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 }
\ No newline at end of file
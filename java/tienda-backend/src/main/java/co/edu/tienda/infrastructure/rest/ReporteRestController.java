@@ -0,0 +1,45 @@
+package co.edu.tienda.infrastructure.rest;
+
+import co.edu.tienda.domain.services.ReporteVentasService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/reportes")
+public class ReporteRestController {
+
+    @Autowired
+    private ReporteVentasService reporteVentasService;
+
+    // GET /api/reportes/ventas?granularidad=hora|dia|mes&pvId=&uId=&desde=&hasta= - Ventas por intervalo
+    @GetMapping("/ventas")
+    public ResponseEntity<Map<String, Object>> ventas(@RequestParam(defaultValue = "dia") String granularidad,
+                                                      @RequestParam(required = false) Integer pvId,
+                                                      @RequestParam(required = false) Integer uId,
+                                                      @RequestParam(required = false) String desde,
+                                                      @RequestParam(required = false) String hasta) {
+        try {
+            return ResponseEntity.ok(reporteVentasService.consultar(
+                    granularidad, pvId, uId, parsearFecha(desde), parsearFecha(hasta)));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Fecha inválida: " + e.getParsedString()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Acepta fecha (2025-01-31) o fecha y hora (2025-01-31T08:00:00)
+    private LocalDateTime parsearFecha(String valor) {
+        if (valor == null || valor.isBlank()) {
+            return null;
+        }
+        return valor.length() == 10 ? LocalDate.parse(valor).atStartOfDay() : LocalDateTime.parse(valor);
+    }
+}
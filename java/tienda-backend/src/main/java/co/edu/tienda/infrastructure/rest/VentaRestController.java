@@ -1,29 +1,125 @@
 package co.edu.tienda.infrastructure.rest;
 
 import co.edu.tienda.domain.entities.Venta;
+import co.edu.tienda.domain.exceptions.StockInsuficienteException;
+import co.edu.tienda.domain.services.Pagina;
+import co.edu.tienda.domain.services.VentaExportService;
 import co.edu.tienda.domain.services.VentaService;
+import co.edu.tienda.infrastructure.flujo.FlujoVentas;
+import co.edu.tienda.infrastructure.journal.VentaJournal;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
-@CrossOrigin(origins = "*", maxAge = 3600)
+@CrossOrigin(origins = "*", maxAge = 3600, exposedHeaders = VentaRestController.SIGUIENTE_CURSOR)
 @RestController
 @RequestMapping("/api/ventas")
 public class VentaRestController {
 
+    // Cursor de la página siguiente; ausente en la última página
+    static final String SIGUIENTE_CURSOR = "X-Next-Cursor";
+
     @Autowired
     private VentaService ventaService;
 
-    // GET /api/ventas - Listar todas las ventas
+    @Autowired
+    private VentaExportService ventaExportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ObjectProvider<VentaJournal> ventaJournal;
+
+    @Autowired
+    private FlujoVentas flujoVentas;
+
+    @Value("${tienda.ventas.batch.chunk-size:500}")
+    private int batchChunkSize;
+
+    // GET /api/ventas?limit=&cursor= - Listar ventas (más recientes primero), paginado
     @GetMapping
-    public ResponseEntity<List<Venta>> listarTodas() {
-        List<Venta> ventas = ventaService.listarTodas();
-        return ResponseEntity.ok(ventas);
+    public ResponseEntity<?> listarTodas(@RequestParam(required = false) Integer limit,
+                                         @RequestParam(required = false) String cursor) {
+        try {
+            return responderPagina(ventaService.listarPagina(cursor, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // GET /api/ventas/export?from=&to=&format=ndjson|csv - Exportación completa en streaming
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportar(@RequestParam(required = false) String from,
+                                      @RequestParam(required = false) String to,
+                                      @RequestParam(defaultValue = "ndjson") String format) {
+        if (!format.equals("ndjson") && !format.equals("csv")) {
+            return errorExportacion("Formato no soportado: " + format);
+        }
+        LocalDateTime desde;
+        LocalDateTime hasta;
+        try {
+            desde = parsearFecha(from);
+            hasta = parsearFecha(to);
+        } catch (DateTimeParseException e) {
+            return errorExportacion("Fecha inválida: " + e.getParsedString());
+        }
+
+        StreamingResponseBody cuerpo = salida -> ventaExportService.exportar(desde, hasta, format, salida);
+        MediaType tipo = format.equals("csv")
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.APPLICATION_NDJSON;
+        return ResponseEntity.ok()
+                .contentType(tipo)
+                .header("Content-Disposition", "attachment; filename=\"ventas." + format + "\"")
+                .body(cuerpo);
+    }
+
+    // El tipo de retorno tiene que ser StreamingResponseBody también para los errores
+    private ResponseEntity<StreamingResponseBody> errorExportacion(String mensaje) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(salida -> objectMapper.writeValue(salida, Map.of("error", mensaje)));
+    }
+
+    // Acepta fecha (2025-01-31) o fecha y hora (2025-01-31T08:00:00)
+    private LocalDateTime parsearFecha(String valor) {
+        if (valor == null || valor.isBlank()) {
+            return null;
+        }
+        return valor.length() == 10 ? LocalDate.parse(valor).atStartOfDay() : LocalDateTime.parse(valor);
+    }
+
+    // GET /api/ventas/stream - Ventas confirmadas en vivo (SSE); retoma desde Last-Event-ID o ?lastEventId=
+    @GetMapping("/stream")
+    public ResponseEntity<SseEmitter> stream(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+                                             @RequestParam(required = false) String lastEventId) {
+        SseEmitter emitter = flujoVentas.suscribir(lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
     }
 
     // GET /api/ventas/{id} - Buscar venta por ID
@@ -38,18 +134,97 @@ public class VentaRestController {
     @PostMapping
     public ResponseEntity<?> crear(@RequestBody Venta venta) {
         try {
+            // Modo journal: la venta queda en disco local y se aplica en la BD después
+            VentaJournal journal = ventaJournal.getIfAvailable();
+            if (journal != null) {
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(journal.registrar(venta));
+            }
             Venta ventaGuardada = ventaService.crearVenta(venta);
             return ResponseEntity.status(HttpStatus.CREATED).body(ventaGuardada);
+        } catch (StockInsuficienteException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage(), "productos", e.getProductos()));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
 
-    // GET /api/ventas/persona/{personaId} - Ventas por persona
+    // POST /api/ventas/batch - Carga masiva (arreglo JSON o NDJSON), procesada por chunks
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<Map<String, Object>> crearLote(HttpServletRequest request) throws IOException {
+        List<Map<String, Object>> resultados = new ArrayList<>();
+        List<Venta> chunk = new ArrayList<>(batchChunkSize);
+        int leidas = 0;
+        String errorLectura = null;
+
+        // Lectura en streaming: nunca se tiene todo el archivo en memoria
+        try (MappingIterator<Venta> it = objectMapper.readerFor(Venta.class).readValues(request.getInputStream())) {
+            while (it.hasNextValue()) {
+                chunk.add(it.nextValue());
+                if (chunk.size() == batchChunkSize) {
+                    procesarChunk(chunk, leidas, resultados);
+                    leidas += chunk.size();
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            errorLectura = "Venta " + (leidas + chunk.size()) + " mal formada: " + e.getOriginalMessage();
+        }
+        if (!chunk.isEmpty()) {
+            procesarChunk(chunk, leidas, resultados);
+            leidas += chunk.size();
+        }
+
+        long exitosas = resultados.stream().filter(r -> "OK".equals(r.get("estado"))).count();
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("total", leidas);
+        respuesta.put("exitosas", exitosas);
+        respuesta.put("fallidas", leidas - exitosas);
+        if (errorLectura != null) {
+            respuesta.put("errorLectura", errorLectura);
+        }
+        respuesta.put("resultados", resultados);
+        return ResponseEntity.ok(respuesta);
+    }
+
+    // Un chunk = una transacción; si falla completo, todas sus ventas quedan como ERROR.
+    // En modo journal el stock vive en memoria: el lote también pasa por el journal.
+    private void procesarChunk(List<Venta> chunk, int indiceInicial, List<Map<String, Object>> resultados) {
+        try {
+            VentaJournal journal = ventaJournal.getIfAvailable();
+            resultados.addAll(journal != null
+                    ? journal.registrarLote(new ArrayList<>(chunk), indiceInicial)
+                    : ventaService.crearVentasEnLote(new ArrayList<>(chunk), indiceInicial));
+        } catch (RuntimeException e) {
+            for (int i = 0; i < chunk.size(); i++) {
+                Map<String, Object> resultado = new LinkedHashMap<>();
+                resultado.put("indice", indiceInicial + i);
+                resultado.put("estado", "ERROR");
+                resultado.put("error", e.getMessage());
+                resultados.add(resultado);
+            }
+        }
+    }
+
+    // GET /api/ventas/persona/{personaId}?limit=&cursor= - Ventas por persona, paginado
     @GetMapping("/persona/{personaId}")
-    public ResponseEntity<List<Venta>> buscarPorPersona(@PathVariable Integer personaId) {
-        List<Venta> ventas = ventaService.buscarVentasPorPersona(personaId);
-        return ResponseEntity.ok(ventas);
+    public ResponseEntity<?> buscarPorPersona(@PathVariable Integer personaId,
+                                              @RequestParam(required = false) Integer limit,
+                                              @RequestParam(required = false) String cursor) {
+        try {
+            return responderPagina(ventaService.buscarVentasPorPersona(personaId, cursor, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // El cuerpo sigue siendo un arreglo; la continuación va en la cabecera
+    private ResponseEntity<List<Venta>> responderPagina(Pagina<Venta> pagina) {
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.haySiguiente()) {
+            respuesta.header(SIGUIENTE_CURSOR, pagina.getSiguienteCursor());
+        }
+        return respuesta.body(pagina.getContenido());
     }
 
     // GET /api/ventas/persona/{personaId}/detalles - Ventas con detalles completos
@@ -0,0 +1,85 @@
+package co.edu.tienda.infrastructure.tendencias;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Space-Saving: cuenta a lo sumo {@code capacidad} productos. Cuando llega uno nuevo y
+ * no hay lugar, reemplaza al de menor cuenta y hereda esa cuenta como error. Los
+ * productos más vendidos siempre quedan (su cuenta supera a la de los reemplazados) y
+ * la cuenta estimada nunca es menor que la real.
+ *
+ * No es seguro entre hilos; quien lo usa sincroniza.
+ */
+class ResumenTopK {
+
+    private final int capacidad;
+    // productoId -> {cuenta, error}
+    private final Map<Integer, long[]> cuentas;
+
+    ResumenTopK(int capacidad) {
+        this.capacidad = capacidad;
+        this.cuentas = new HashMap<>(capacidad * 2);
+    }
+
+    void sumar(Integer productoId, long cantidad) {
+        long[] actual = cuentas.get(productoId);
+        if (actual != null) {
+            actual[0] += cantidad;
+            return;
+        }
+        if (cuentas.size() < capacidad) {
+            cuentas.put(productoId, new long[]{cantidad, 0});
+            return;
+        }
+
+        // Lleno: sale el de menor cuenta
+        Integer menor = null;
+        long minimo = Long.MAX_VALUE;
+        for (Map.Entry<Integer, long[]> entry : cuentas.entrySet()) {
+            if (entry.getValue()[0] < minimo) {
+                minimo = entry.getValue()[0];
+                menor = entry.getKey();
+            }
+        }
+        cuentas.remove(menor);
+        cuentas.put(productoId, new long[]{minimo + cantidad, minimo});
+    }
+
+    /**
+     * Suma este resumen en {@code destino} (productoId -> {cuenta, error}).
+     */
+    void volcarEn(Map<Integer, long[]> destino) {
+        cuentas.forEach((id, c) -> {
+            long[] d = destino.computeIfAbsent(id, k -> new long[2]);
+            d[0] += c[0];
+            d[1] += c[1];
+        });
+    }
+
+    /**
+     * Para un resumen lleno, suma su menor cuenta (en cuenta y en error) a los productos de
+     * {@code destino} que no están en él: pudieron venderse aquí y salir, y hasta esa
+     * cuenta es lo que pudieron tener. Sin esto la suma de varios resúmenes subestimaría.
+     * Uno que no está lleno nunca reemplazó a nadie, así que no suma nada.
+     */
+    void cubrirAusentes(Map<Integer, long[]> destino) {
+        if (cuentas.size() < capacidad) {
+            return;
+        }
+        long minimo = Long.MAX_VALUE;
+        for (long[] c : cuentas.values()) {
+            minimo = Math.min(minimo, c[0]);
+        }
+        for (Map.Entry<Integer, long[]> entry : destino.entrySet()) {
+            if (!cuentas.containsKey(entry.getKey())) {
+                entry.getValue()[0] += minimo;
+                entry.getValue()[1] += minimo;
+            }
+        }
+    }
+
+    void limpiar() {
+        cuentas.clear();
+    }
+}
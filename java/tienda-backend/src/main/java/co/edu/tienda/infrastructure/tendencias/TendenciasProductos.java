@@ -0,0 +1,78 @@
+package co.edu.tienda.infrastructure.tendencias;
+
+import co.edu.tienda.domain.entities.VentaDetalle;
+import co.edu.tienda.domain.events.VentaCreadaEvent;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Productos más vendidos en los últimos 5 minutos, la última hora y el último día,
+ * contados en memoria a medida que se confirman las ventas. Cada ventana guarda a lo
+ * sumo {@code capacidad} productos por intervalo, sin importar el tamaño del catálogo.
+ *
+ * Las cuentas son de este nodo y empiezan en cero al arrancar.
+ */
+@Component
+public class TendenciasProductos {
+
+    @Value("${tienda.productos.trending.capacidad:100}")
+    private int capacidad;
+
+    private final Map<String, VentanaDeslizante> ventanas = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void iniciar() {
+        ventanas.put("5m", new VentanaDeslizante(Duration.ofMinutes(5), 10, capacidad));
+        ventanas.put("1h", new VentanaDeslizante(Duration.ofHours(1), 12, capacidad));
+        ventanas.put("1d", new VentanaDeslizante(Duration.ofDays(1), 24, capacidad));
+    }
+
+    @TransactionalEventListener
+    public void alCrearVenta(VentaCreadaEvent event) {
+        long ahora = System.currentTimeMillis();
+        for (VentaDetalle detalle : event.getVenta().getDetalles()) {
+            for (VentanaDeslizante ventana : ventanas.values()) {
+                ventana.sumar(ahora, detalle.getPId(), detalle.getVdCantidad());
+            }
+        }
+    }
+
+    public Set<String> getVentanas() {
+        return ventanas.keySet();
+    }
+
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    /**
+     * Los {@code n} productos con más unidades en la ventana, de mayor a menor. "unidades"
+     * puede exceder lo real en a lo sumo "error"; nunca lo subestima.
+     */
+    public List<Map<String, Object>> top(String ventana, int n) {
+        VentanaDeslizante v = ventanas.get(ventana);
+        if (v == null) {
+            throw new RuntimeException("Ventana no soportada: " + ventana + " (" + String.join(", ", ventanas.keySet()) + ")");
+        }
+
+        Map<Integer, long[]> cuentas = new HashMap<>();
+        v.volcarEn(System.currentTimeMillis(), cuentas);
+        List<Map.Entry<Integer, long[]>> ordenadas = new ArrayList<>(cuentas.entrySet());
+        ordenadas.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+
+        List<Map<String, Object>> top = new ArrayList<>();
+        for (Map.Entry<Integer, long[]> entry : ordenadas.subList(0, Math.min(n, ordenadas.size()))) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("productoId", entry.getKey());
+            item.put("unidades", entry.getValue()[0]);
+            item.put("error", entry.getValue()[1]);
+            top.add(item);
+        }
+        return top;
+    }
+}
@@ -0,0 +1,58 @@
+package co.edu.tienda.infrastructure.tendencias;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ventana de tiempo partida en intervalos iguales, cada uno con su {@link ResumenTopK}.
+ * El intervalo más viejo se reutiliza cuando empieza uno nuevo, así la memoria no
+ * depende del tiempo transcurrido ni de cuántas ventas haya.
+ */
+class VentanaDeslizante {
+
+    private final long duracionIntervalo;
+    private final ResumenTopK[] intervalos;
+    // Número de intervalo (tiempo / duración) que ocupa cada posición
+    private final long[] numeros;
+
+    VentanaDeslizante(Duration ventana, int cantidadIntervalos, int capacidad) {
+        this.duracionIntervalo = ventana.toMillis() / cantidadIntervalos;
+        this.intervalos = new ResumenTopK[cantidadIntervalos];
+        this.numeros = new long[cantidadIntervalos];
+        for (int i = 0; i < cantidadIntervalos; i++) {
+            intervalos[i] = new ResumenTopK(capacidad);
+            numeros[i] = -1;
+        }
+    }
+
+    synchronized void sumar(long ahora, Integer productoId, long cantidad) {
+        long numero = ahora / duracionIntervalo;
+        int posicion = (int) (numero % intervalos.length);
+        if (numeros[posicion] != numero) {
+            intervalos[posicion].limpiar();
+            numeros[posicion] = numero;
+        }
+        intervalos[posicion].sumar(productoId, cantidad);
+    }
+
+    /**
+     * Suma los intervalos que siguen dentro de la ventana. Un producto que falta en un
+     * intervalo lleno recibe la menor cuenta de ese intervalo, para no subestimarlo.
+     */
+    synchronized void volcarEn(long ahora, Map<Integer, long[]> destino) {
+        long actual = ahora / duracionIntervalo;
+        List<ResumenTopK> vigentes = new ArrayList<>();
+        for (int i = 0; i < intervalos.length; i++) {
+            if (numeros[i] > actual - intervalos.length && numeros[i] <= actual) {
+                intervalos[i].volcarEn(destino);
+                vigentes.add(intervalos[i]);
+            }
+        }
+        // Con todos los productos ya en destino
+        for (ResumenTopK intervalo : vigentes) {
+            intervalo.cubrirAusentes(destino);
+        }
+    }
+}
@@ -1,12 +1,35 @@
 package co.edu.tienda.web.rest;
 
+import co.edu.tienda.domain.services.CantidadVendidaService;
+import co.edu.tienda.domain.services.PersonaImportService;
+import co.edu.tienda.domain.services.ReporteVentasService;
+import co.edu.tienda.domain.services.VentaExportService;
+import co.edu.tienda.infrastructure.analitica.AnaliticaVentas;
+import co.edu.tienda.infrastructure.busqueda.IndiceBusquedaProductos;
+import co.edu.tienda.infrastructure.datasource.ReplicaLagMonitor;
+import co.edu.tienda.infrastructure.datasource.SecuenciasPooled;
+import co.edu.tienda.infrastructure.flujo.FlujoVentas;
+import co.edu.tienda.infrastructure.hilos.FabricaHilos;
+import co.edu.tienda.infrastructure.hilos.LimiteConcurrenciaFilter;
+import co.edu.tienda.infrastructure.historial.HistorialVentasPersona;
+import co.edu.tienda.infrastructure.inventario.IndiceStockBajo;
+import co.edu.tienda.infrastructure.inventario.InventarioCaliente;
+import co.edu.tienda.infrastructure.journal.VentaJournal;
+import co.edu.tienda.infrastructure.personas.FiltroEmails;
 import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
 import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -17,6 +40,54 @@ public class UtilRestController {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private ObjectProvider<ReplicaLagMonitor> replicaLagMonitor;
+
+    @Autowired
+    private SecuenciasPooled secuenciasPooled;
+
+    @Autowired
+    private ObjectProvider<VentaJournal> ventaJournal;
+
+    @Autowired
+    private VentaExportService ventaExportService;
+
+    @Autowired
+    private ObjectProvider<InventarioCaliente> inventarioCaliente;
+
+    @Autowired
+    private CantidadVendidaService cantidadVendidaService;
+
+    @Autowired
+    private ReporteVentasService reporteVentasService;
+
+    @Autowired
+    private ObjectProvider<AnaliticaVentas> analiticaVentas;
+
+    @Autowired
+    private HistorialVentasPersona historialVentasPersona;
+
+    @Autowired
+    private IndiceStockBajo indiceStockBajo;
+
+    @Autowired
+    private FlujoVentas flujoVentas;
+
+    @Autowired
+    private IndiceBusquedaProductos indiceBusquedaProductos;
+
+    @Autowired
+    private FiltroEmails filtroEmails;
+
+    @Autowired
+    private PersonaImportService personaImportService;
+
+    @Autowired
+    private FabricaHilos fabricaHilos;
+
+    @Autowired
+    private LimiteConcurrenciaFilter limiteConcurrencia;
+
     /**
      * Endpoint temporal para resetear las secuencias de PostgreSQL
      * Usar cuando aparezca error "duplicate key value violates unique constraint"
@@ -32,14 +103,15 @@ public class UtilRestController {
                 "SELECT setval(pg_get_serial_sequence('persona', 'p_id'), COALESCE(MAX(p_id), 1), true) FROM persona",
                 "SELECT setval(pg_get_serial_sequence('producto', 'p_id'), COALESCE(MAX(p_id), 1), true) FROM producto",
                 "SELECT setval(pg_get_serial_sequence('ubicacion', 'u_id'), COALESCE(MAX(u_id), 1), true) FROM ubicacion",
-                "SELECT setval(pg_get_serial_sequence('punto_de_venta', 'pv_id'), COALESCE(MAX(pv_id), 1), true) FROM punto_de_venta",
-                "SELECT setval(pg_get_serial_sequence('venta', 'v_id'), COALESCE(MAX(v_id), 1), true) FROM venta",
-                "SELECT setval(pg_get_serial_sequence('venta_detalle', 'vd_id'), COALESCE(MAX(vd_id), 1), true) FROM venta_detalle"
+                "SELECT setval(pg_get_serial_sequence('punto_de_venta', 'pv_id'), COALESCE(MAX(pv_id), 1), true) FROM punto_de_venta"
             };
             
             for (String query : queries) {
                 entityManager.createNativeQuery(query).getSingleResult();
             }
+
+            // VENTA y VENTA_DETALLE usan secuencias pooled: se alinean sin perder rangos reservados
+            secuenciasPooled.alinear();
             
             // Obtener valores actuales de las secuencias
             Map<String, Long> sequences = new HashMap<>();
@@ -92,6 +164,242 @@ public class UtilRestController {
         }
     }
     
+    /**
+     * Estado de las réplicas de lectura: lag medido y si están recibiendo consultas
+     */
+    @GetMapping("/replicas")
+    public ResponseEntity<Map<String, Object>> replicas() {
+        Map<String, Object> response = new HashMap<>();
+        ReplicaLagMonitor monitor = replicaLagMonitor.getIfAvailable();
+
+        response.put("enrutamientoActivo", monitor != null);
+        if (monitor != null) {
+            response.put("replicas", monitor.estado());
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Hilos de los requests (virtuales o de plataforma) y uso de los límites de concurrencia
+     */
+    @GetMapping("/hilos")
+    public ResponseEntity<Map<String, Object>> hilos() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("java", Runtime.version().feature());
+        response.put("virtualesPedidos", fabricaHilos.isVirtualesPedidos());
+        response.put("virtuales", fabricaHilos.isVirtuales());
+        response.put("limites", limiteConcurrencia.estado());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Estado del journal de ventas (modo write-behind): ventas sin aplicar y lag del drenador
+     */
+    @GetMapping("/journal")
+    public ResponseEntity<Map<String, Object>> journal() {
+        Map<String, Object> response = new HashMap<>();
+        VentaJournal journal = ventaJournal.getIfAvailable();
+
+        response.put("journalActivo", journal != null);
+        if (journal != null) {
+            response.put("journal", journal.estado());
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Inventario caliente: cupo en memoria, cupo en BD y consumo sin plegar por producto
+     */
+    @GetMapping("/inventario")
+    public ResponseEntity<Map<String, Object>> inventario() {
+        Map<String, Object> response = new HashMap<>();
+        InventarioCaliente caliente = inventarioCaliente.getIfAvailable();
+
+        response.put("inventarioCalienteActivo", caliente != null);
+        if (caliente != null) {
+            response.put("inventario", caliente.estado());
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Devuelve a P_STOCK el cupo sin vender. Sin "nodo", el de esta instancia (que
+     * después vuelve a pedir cupo según venda); con "nodo", el de una instancia caída.
+     */
+    @PostMapping("/inventario/reconciliar")
+    public ResponseEntity<Map<String, Object>> reconciliarInventario(@RequestParam(required = false) String nodo) {
+        Map<String, Object> response = new HashMap<>();
+        InventarioCaliente caliente = inventarioCaliente.getIfAvailable();
+        if (caliente == null) {
+            response.put("error", "El inventario caliente no está activo");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        try {
+            Map<Integer, Integer> devueltas = nodo == null || nodo.equals(caliente.getNodo())
+                    ? caliente.devolverTodo()
+                    : caliente.reconciliarNodo(nodo);
+            response.put("devueltas", devueltas);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * Flujo SSE de ventas: suscriptores, eventos publicados y enviados, clientes desalojados
+     */
+    @GetMapping("/ventas-stream")
+    public ResponseEntity<Map<String, Object>> ventasStream() {
+        return ResponseEntity.ok(flujoVentas.estado());
+    }
+
+    /**
+     * Índice de stock bajo: productos, punto de reorden, suscriptores SSE y última recarga
+     */
+    @GetMapping("/stock-bajo")
+    public ResponseEntity<Map<String, Object>> stockBajo() {
+        return ResponseEntity.ok(indiceStockBajo.estado());
+    }
+
+    /**
+     * Vuelve a leer el stock de la BD (después de cambios por fuera de la API)
+     */
+    @PostMapping("/stock-bajo/recargar")
+    public ResponseEntity<Map<String, Object>> recargarStockBajo() {
+        try {
+            return ResponseEntity.ok(indiceStockBajo.recargar());
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * Índice de búsqueda de productos: productos, términos, cambios sin cargar y última carga
+     */
+    @GetMapping("/busqueda")
+    public ResponseEntity<Map<String, Object>> busqueda() {
+        return ResponseEntity.ok(indiceBusquedaProductos.estado());
+    }
+
+    /**
+     * Vuelve a armar el índice de búsqueda desde la BD, en segundo plano
+     */
+    @PostMapping("/busqueda/recargar")
+    public ResponseEntity<Map<String, Object>> recargarBusqueda() {
+        indiceBusquedaProductos.programarCarga();
+        return ResponseEntity.accepted().body(indiceBusquedaProductos.estado());
+    }
+
+    /**
+     * Filtro de emails de personas (tamaño, registros que no consultaron la BD) y última importación CSV
+     */
+    @GetMapping("/personas")
+    public ResponseEntity<Map<String, Object>> personas() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("filtroEmails", filtroEmails.estado());
+        response.put("ultimaImportacion", personaImportService.ultimaImportacion());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Vuelve a cargar el filtro de emails desde la BD, en segundo plano
+     */
+    @PostMapping("/personas/filtro-emails/recargar")
+    public ResponseEntity<Map<String, Object>> recargarFiltroEmails() {
+        filtroEmails.programarCarga();
+        return ResponseEntity.accepted().body(filtroEmails.estado());
+    }
+
+    /**
+     * Recalcula CANTIDAD_VENDIDA desde VENTA_DETALLE (después de cargas por fuera de la API)
+     */
+    @PostMapping("/cantidad-vendida/reconstruir")
+    public ResponseEntity<Map<String, Object>> reconstruirCantidadVendida() {
+        try {
+            return ResponseEntity.ok(cantidadVendidaService.reconstruir());
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * Compara CANTIDAD_VENDIDA con VENTA_DETALLE y lista los productos que no cuadran
+     */
+    @GetMapping("/cantidad-vendida/verificar")
+    public ResponseEntity<Map<String, Object>> verificarCantidadVendida() {
+        return ResponseEntity.ok(cantidadVendidaService.verificar());
+    }
+
+    /**
+     * Recalcula VENTA_ACUMULADO (reportes por hora, día y mes) desde las ventas
+     */
+    @PostMapping("/reportes/reconstruir")
+    public ResponseEntity<Map<String, Object>> reconstruirReportes() {
+        try {
+            return ResponseEntity.ok(reporteVentasService.reconstruir());
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * Copia analítica de ventas: líneas en memoria, tamaño y duración de la carga
+     */
+    @GetMapping("/analitica")
+    public ResponseEntity<Map<String, Object>> analitica() {
+        Map<String, Object> response = new HashMap<>();
+        AnaliticaVentas analitica = analiticaVentas.getIfAvailable();
+
+        response.put("analiticaActiva", analitica != null);
+        if (analitica != null) {
+            response.put("analitica", analitica.estado());
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Resumen de la última exportación de ventas: filas, duración y filas por segundo
+     */
+    @GetMapping("/export")
+    public ResponseEntity<Map<String, Object>> export() {
+        return ResponseEntity.ok(ventaExportService.ultimaExportacion());
+    }
+
+    /**
+     * Aciertos, fallos y tamaño de cada región de la caché de segundo nivel y de la caché
+     * de ventas por persona
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> cache() {
+        Statistics estadisticas = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> response = new LinkedHashMap<>();
+        for (String region : List.of("productos", "puntosDeVenta", "ubicaciones")) {
+            CacheRegionStatistics r = estadisticas.getDomainDataRegionStatistics(region);
+            Map<String, Object> item = new LinkedHashMap<>();
+            long total = r.getHitCount() + r.getMissCount();
+            item.put("aciertos", r.getHitCount());
+            item.put("fallos", r.getMissCount());
+            item.put("tasaAciertos", total > 0 ? (double) r.getHitCount() / total : 0.0);
+            item.put("escrituras", r.getPutCount());
+            // JCache no informa el tamaño (devuelve un valor negativo)
+            if (r.getElementCountInMemory() >= 0) {
+                item.put("elementos", r.getElementCountInMemory());
+            }
+            response.put(region, item);
+        }
+        response.put("ventasPorPersona", historialVentasPersona.estado());
+        return ResponseEntity.ok(response);
+    }
+
     private Long getCurrentSequenceValue(String tableName, String columnName) {
         try {
             String query = String.format(
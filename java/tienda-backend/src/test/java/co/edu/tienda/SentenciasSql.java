@@ -0,0 +1,60 @@
+package co.edu.tienda;
+
+import co.edu.tienda.infrastructure.metricas.SentenciasPorRequest;
+
+/**
+ * Aserciones sobre las sentencias SQL que prepara un bloque de código, para que un N+1
+ * nuevo haga fallar la prueba:
+ *
+ * <pre>
+ * SentenciasSql.assertMaximo(2, () -> ventaService.buscarPorId(id));
+ * SentenciasSql.assertSinRepetir(5, () -> mockMvc.perform(get("/api/ventas")));
+ * </pre>
+ *
+ * Para los requests completos también sirve {@code tienda.sql.presupuesto.estricto=true}.
+ */
+public final class SentenciasSql {
+
+    @FunctionalInterface
+    public interface Bloque {
+        void ejecutar() throws Exception;
+    }
+
+    private SentenciasSql() {
+    }
+
+    public static SentenciasPorRequest.Conteo contar(Bloque bloque) {
+        return SentenciasPorRequest.contar(() -> {
+            try {
+                bloque.ejecutar();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * Falla si el bloque prepara más de {@code maximo} sentencias.
+     */
+    public static SentenciasPorRequest.Conteo assertMaximo(int maximo, Bloque bloque) {
+        SentenciasPorRequest.Conteo conteo = contar(bloque);
+        if (conteo.getTotal() > maximo) {
+            throw new AssertionError("Se esperaban a lo sumo " + maximo + " sentencias SQL y hubo "
+                    + conteo.getTotal() + "; repetidas: " + conteo.repetidas(2));
+        }
+        return conteo;
+    }
+
+    /**
+     * Falla si el bloque ejecuta la misma sentencia {@code repeticiones} veces o más (N+1).
+     */
+    public static SentenciasPorRequest.Conteo assertSinRepetir(int repeticiones, Bloque bloque) {
+        SentenciasPorRequest.Conteo conteo = contar(bloque);
+        if (conteo.maximoRepeticiones() >= repeticiones) {
+            throw new AssertionError("N+1 probable: " + conteo.repetidas(repeticiones));
+        }
+        return conteo;
+    }
+}
@@ -0,0 +1,92 @@
+package co.edu.tienda;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sentencias SQL de los endpoints de ventas contra un PostgreSQL embebido: una venta se
+ * lee con un número fijo de consultas y los listados no hacen una consulta por venta.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SentenciasVentasTests {
+
+	// Los mismos scripts que se corren sobre una BD real, en orden
+	private static final List<String> SCRIPTS = List.of("totales_venta.sql", "indices_ventas.sql",
+			"cantidad_vendida.sql", "acumulados_ventas.sql", "inventario_caliente.sql", "personas_email.sql");
+
+	private static final int VENTAS = 12;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private int ventaId;
+
+	// La BD embebida se detiene sola al terminar la JVM
+	@DynamicPropertySource
+	static void baseDeDatos(DynamicPropertyRegistry registry) throws IOException {
+		EmbeddedPostgres postgres = EmbeddedPostgres.start();
+		ResourceDatabasePopulator esquema = new ResourceDatabasePopulator(new ClassPathResource("esquema-prueba.sql"));
+		SCRIPTS.forEach(script -> esquema.addScript(new FileSystemResource(script)));
+		esquema.execute(postgres.getPostgresDatabase());
+
+		registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+		registry.add("spring.datasource.username", () -> "postgres");
+		registry.add("spring.datasource.password", () -> "");
+	}
+
+	@BeforeAll
+	void crearVentas() throws Exception {
+		for (int i = 0; i < VENTAS; i++) {
+			String venta = "{\"pId\":" + (i % 2 + 1) + ",\"pvId\":" + (i % 2 + 1) + ",\"detalles\":["
+					+ "{\"pId\":" + (i % 5 + 1) + ",\"cantidad\":1},"
+					+ "{\"pId\":" + ((i + 1) % 5 + 1) + ",\"cantidad\":2}]}";
+			String creada = mockMvc.perform(post("/api/ventas").contentType(MediaType.APPLICATION_JSON).content(venta))
+					.andExpect(status().isCreated())
+					.andReturn().getResponse().getContentAsString();
+			ventaId = objectMapper.readTree(creada).get("id").asInt();
+		}
+	}
+
+	@Test
+	void ventaPorIdConConsultasFijas() throws Exception {
+		SentenciasSql.assertMaximo(2, () -> mockMvc.perform(get("/api/ventas/{id}", ventaId)).andExpect(status().isOk()));
+	}
+
+	@Test
+	void listadoSinConsultaPorVenta() throws Exception {
+		SentenciasSql.assertSinRepetir(3, () -> mockMvc.perform(get("/api/ventas")).andExpect(status().isOk()));
+	}
+
+	@Test
+	void ventasDePersonaSinConsultaPorVenta() throws Exception {
+		SentenciasSql.assertSinRepetir(3, () -> mockMvc.perform(get("/api/ventas/persona/1?limit=20"))
+				.andExpect(status().isOk()));
+		SentenciasSql.assertSinRepetir(3, () -> mockMvc.perform(get("/api/ventas/persona/2/detalles"))
+				.andExpect(status().isOk()));
+	}
+}
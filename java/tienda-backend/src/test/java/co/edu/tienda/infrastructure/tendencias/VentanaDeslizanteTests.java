@@ -0,0 +1,45 @@
+package co.edu.tienda.infrastructure.tendencias;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Al sumar los intervalos de una ventana, un producto que salió del resumen de un
+ * intervalo no puede quedar con menos unidades que las reales.
+ */
+class VentanaDeslizanteTests {
+
+	// Dos intervalos de un minuto, dos productos por intervalo
+	private final VentanaDeslizante ventana = new VentanaDeslizante(Duration.ofMinutes(2), 2, 2);
+
+	@Test
+	void productoReemplazadoNoSeSubestima() {
+		long primero = 0;
+		long segundo = Duration.ofMinutes(1).toMillis();
+
+		// En el primer intervalo el 3 reemplaza al 2, que tenía 3 unidades
+		ventana.sumar(primero, 1, 10);
+		ventana.sumar(primero, 2, 3);
+		ventana.sumar(primero, 3, 4);
+		// En el segundo intervalo (sin llenarse) el 2 vende 1 más
+		ventana.sumar(segundo, 2, 1);
+
+		Map<Integer, long[]> cuentas = new HashMap<>();
+		ventana.volcarEn(segundo, cuentas);
+
+		Map<Integer, Long> reales = Map.of(1, 10L, 2, 4L, 3, 4L);
+		reales.forEach((id, real) -> {
+			long[] cuenta = cuentas.get(id);
+			assertTrue(cuenta[0] >= real, "producto " + id + ": " + cuenta[0] + " < " + real);
+			assertTrue(cuenta[0] - cuenta[1] <= real, "producto " + id + ": error " + cuenta[1] + " no cubre la diferencia");
+		});
+		// El 1 no falta en ningún intervalo lleno: su cuenta es exacta
+		assertEquals(0, cuentas.get(1)[1]);
+	}
+}
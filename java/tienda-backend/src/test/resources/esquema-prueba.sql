@@ -0,0 +1,50 @@
+-- Tablas base y datos mínimos para las pruebas con PostgreSQL embebido. Las columnas y
+-- tablas que agregan los scripts de tienda-backend (totales_venta.sql, ...) se crean
+-- ejecutando esos mismos scripts después de este.
+CREATE TABLE IF NOT EXISTS ubicacion (
+    u_id SERIAL PRIMARY KEY,
+    u_nombre VARCHAR(200) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS punto_de_venta (
+    pv_id SERIAL PRIMARY KEY,
+    pv_nombre VARCHAR(200) NOT NULL,
+    u_id INTEGER NOT NULL REFERENCES ubicacion (u_id)
+);
+
+CREATE TABLE IF NOT EXISTS persona (
+    p_id SERIAL PRIMARY KEY,
+    p_nombre VARCHAR(100) NOT NULL,
+    p_apellido VARCHAR(100) NOT NULL,
+    p_email VARCHAR(150) NOT NULL,
+    p_telefono VARCHAR(20)
+);
+
+CREATE TABLE IF NOT EXISTS producto (
+    p_id SERIAL PRIMARY KEY,
+    p_nombre VARCHAR(200) NOT NULL,
+    p_descripcion TEXT,
+    p_precio NUMERIC(10,2) NOT NULL,
+    p_stock INTEGER NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS venta (
+    v_id SERIAL PRIMARY KEY,
+    v_fecha TIMESTAMP NOT NULL,
+    p_id INTEGER NOT NULL REFERENCES persona (p_id),
+    pv_id INTEGER NOT NULL REFERENCES punto_de_venta (pv_id)
+);
+
+CREATE TABLE IF NOT EXISTS venta_detalle (
+    vd_id SERIAL PRIMARY KEY,
+    v_id INTEGER NOT NULL REFERENCES venta (v_id),
+    p_id INTEGER NOT NULL REFERENCES producto (p_id),
+    vd_cantidad INTEGER NOT NULL,
+    vd_precio_unitario NUMERIC(10,2) NOT NULL
+);
+
+INSERT INTO ubicacion (u_nombre) VALUES ('Centro'), ('Norte');
+INSERT INTO punto_de_venta (pv_nombre, u_id) VALUES ('Caja 1', 1), ('Caja 2', 2);
+INSERT INTO persona (p_nombre, p_apellido, p_email) VALUES ('Ana', 'Ruiz', 'ana@tienda.co'), ('Luis', 'Gómez', 'luis@tienda.co');
+INSERT INTO producto (p_nombre, p_precio, p_stock)
+SELECT 'Producto ' || g, 1 + g, 1000 FROM generate_series(1, 5) g;
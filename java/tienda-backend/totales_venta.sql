@@ -0,0 +1,20 @@
+-- Total y cantidad de líneas de cada venta guardados en VENTA.
+-- La aplicación los llena al crear la venta; este script agrega las columnas y
+-- completa las ventas existentes. Se puede ejecutar más de una vez.
+ALTER TABLE venta ADD COLUMN IF NOT EXISTS v_total NUMERIC(12,2);
+ALTER TABLE venta ADD COLUMN IF NOT EXISTS v_num_lineas INTEGER;
+
+UPDATE venta v
+SET v_total = COALESCE(t.total, 0),
+    v_num_lineas = COALESCE(t.lineas, 0)
+FROM venta v2
+LEFT JOIN (
+    SELECT v_id, SUM(vd_cantidad * vd_precio_unitario) AS total, COUNT(*) AS lineas
+    FROM venta_detalle
+    GROUP BY v_id
+) t ON t.v_id = v2.v_id
+WHERE v.v_id = v2.v_id
+  AND (v.v_total IS NULL OR v.v_num_lineas IS NULL);
+
+ALTER TABLE venta ALTER COLUMN v_total SET NOT NULL;
+ALTER TABLE venta ALTER COLUMN v_num_lineas SET NOT NULL;
@@ -0,0 +1,113 @@
+package co.edu.tienda.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Compara dos resultados de JMH en JSON (-rf json): una línea base guardada y una
+ * corrida nueva. Por cada benchmark (con sus parámetros) muestra el puntaje de los dos,
+ * el cambio y, si se corrió con -prof gc, los bytes por operación.
+ *
+ * Un cambio cuenta como regresión si empeora más que {@code umbral} por ciento (10 por
+ * defecto) y más que la suma de los márgenes de error. Si hay alguna, sale con código 1.
+ *
+ * Uso: CompararResultados base.json nuevo.json [umbral]
+ */
+public class CompararResultados {
+
+    private record Resultado(String modo, double puntaje, double error, String unidad, Double bytesPorOperacion) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: CompararResultados base.json nuevo.json [umbral %]");
+            System.exit(2);
+        }
+        double umbral = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, Resultado> base = leer(new File(args[0]));
+        Map<String, Resultado> nuevo = leer(new File(args[1]));
+
+        System.out.printf("%-70s %14s %14s %9s %12s %12s%n", "Benchmark", "Base", "Nuevo", "Cambio", "B/op base", "B/op nuevo");
+        int regresiones = 0;
+        for (Map.Entry<String, Resultado> entrada : nuevo.entrySet()) {
+            Resultado actual = entrada.getValue();
+            Resultado anterior = base.get(entrada.getKey());
+            if (anterior == null) {
+                System.out.printf("%-70s %14s %14s %9s%n", entrada.getKey(), "-", formato(actual), "nuevo");
+                continue;
+            }
+            // En throughput más es mejor; en los demás modos (tiempo por operación), menos
+            boolean masEsMejor = "thrpt".equals(actual.modo());
+            double cambio = (actual.puntaje() - anterior.puntaje()) / anterior.puntaje() * 100;
+            double empeora = masEsMejor ? -cambio : cambio;
+            boolean significativo = Math.abs(actual.puntaje() - anterior.puntaje()) > error(anterior) + error(actual);
+            String marca = "";
+            if (significativo && empeora > umbral) {
+                marca = "  REGRESIÓN";
+                regresiones++;
+            } else if (significativo && empeora < -umbral) {
+                marca = "  mejora";
+            }
+            System.out.printf("%-70s %14s %14s %+8.1f%% %12s %12s%s%n", entrada.getKey(), formato(anterior),
+                    formato(actual), cambio, bytes(anterior), bytes(actual), marca);
+        }
+        for (String nombre : base.keySet()) {
+            if (!nuevo.containsKey(nombre)) {
+                System.out.printf("%-70s %14s %14s %9s%n", nombre, formato(base.get(nombre)), "-", "no corrió");
+            }
+        }
+        if (regresiones > 0) {
+            System.out.println(regresiones + " regresiones de más de " + umbral + "%");
+            System.exit(1);
+        }
+    }
+
+    // Nombre corto del benchmark con sus parámetros: "MontosBenchmark.totalCentavos lineas=20"
+    private static Map<String, Resultado> leer(File archivo) throws IOException {
+        Map<String, Resultado> resultados = new TreeMap<>();
+        for (JsonNode corrida : new ObjectMapper().readTree(archivo)) {
+            String benchmark = corrida.get("benchmark").asText();
+            StringBuilder nombre = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.',
+                    benchmark.lastIndexOf('.') - 1) + 1));
+            JsonNode parametros = corrida.get("params");
+            if (parametros != null) {
+                parametros.fields().forEachRemaining(p -> nombre.append(' ').append(p.getKey()).append('=')
+                        .append(p.getValue().asText()));
+            }
+            JsonNode metrica = corrida.get("primaryMetric");
+            Double bytesPorOperacion = null;
+            JsonNode secundarias = corrida.get("secondaryMetrics");
+            if (secundarias != null) {
+                // Según la versión de JMH el nombre lleva "·" adelante
+                for (Iterator<Map.Entry<String, JsonNode>> it = secundarias.fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> secundaria = it.next();
+                    if (secundaria.getKey().endsWith("gc.alloc.rate.norm")) {
+                        bytesPorOperacion = secundaria.getValue().get("score").asDouble();
+                    }
+                }
+            }
+            resultados.put(nombre.toString(), new Resultado(corrida.get("mode").asText(),
+                    metrica.get("score").asDouble(), metrica.get("scoreError").asDouble(Double.NaN),
+                    metrica.get("scoreUnit").asText(), bytesPorOperacion));
+        }
+        return resultados;
+    }
+
+    // Con una sola iteración JMH no calcula el error ("NaN")
+    private static double error(Resultado resultado) {
+        return Double.isNaN(resultado.error()) ? 0 : resultado.error();
+    }
+
+    private static String formato(Resultado resultado) {
+        return String.format(Locale.ROOT, "%.3f %s", resultado.puntaje(), resultado.unidad());
+    }
+
+    private static String bytes(Resultado resultado) {
+        return resultado.bytesPorOperacion() == null ? "-"
+                : String.format(Locale.ROOT, "%.0f", resultado.bytesPorOperacion());
+    }
+}
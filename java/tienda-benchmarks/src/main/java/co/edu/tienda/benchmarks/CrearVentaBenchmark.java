@@ -0,0 +1,100 @@
+package co.edu.tienda.benchmarks;
+
+import co.edu.tienda.TiendaBackendApplication;
+import co.edu.tienda.domain.entities.Venta;
+import co.edu.tienda.domain.entities.VentaDetalle;
+import co.edu.tienda.domain.services.VentaService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * VentaServiceImpl.crearVenta completo (descuento de stock, carga de productos, inserts
+ * en batch y los listeners de VentaCreadaEvent) con la aplicación arrancada, sin servidor
+ * web, sobre un PostgreSQL embebido (binarios de zonky, en un directorio temporal). El
+ * esquema es esquema-base.sql más los scripts de tienda-backend, como en las pruebas del
+ * backend y en tienda-carga; se buscan en ../tienda-backend (correr desde este módulo).
+ *
+ * La BD corre en la misma máquina y sin red de por medio: el número sirve para comparar
+ * cambios en el código de la aplicación, no para estimar la latencia en producción.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CrearVentaBenchmark {
+
+    // En este orden, como se aplicarían sobre una BD existente
+    private static final List<String> SCRIPTS = List.of("totales_venta.sql", "indices_ventas.sql",
+            "cantidad_vendida.sql", "acumulados_ventas.sql", "inventario_caliente.sql", "personas_email.sql");
+
+    // Productos cargados por esquema-base.sql
+    private static final int PRODUCTOS = 20;
+
+    @Param({"3", "20"})
+    private int lineas;
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext contexto;
+    private VentaService ventaService;
+    private int siguienteProducto;
+
+    @Setup
+    public void arrancar() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        ResourceDatabasePopulator esquema = new ResourceDatabasePopulator(new ClassPathResource("esquema-base.sql"));
+        for (String script : SCRIPTS) {
+            File archivo = new File("../tienda-backend", script);
+            if (!archivo.isFile()) {
+                throw new IllegalStateException("No se encontró " + archivo.getAbsolutePath()
+                        + " (el benchmark se corre desde tienda-benchmarks)");
+            }
+            esquema.addScript(new FileSystemResource(archivo));
+        }
+        esquema.execute(postgres.getPostgresDatabase());
+
+        SpringApplication aplicacion = new SpringApplication(TiendaBackendApplication.class);
+        aplicacion.setWebApplicationType(WebApplicationType.NONE);
+        // Las secuencias SERIAL del esquema base las alinea SecuenciasPooled al arrancar
+        contexto = aplicacion.run(
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                "--logging.level.root=WARN");
+        ventaService = contexto.getBean(VentaService.class);
+    }
+
+    @TearDown
+    public void detener() throws IOException {
+        contexto.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public Venta crearVenta() {
+        // Como llega en el JSON de POST /api/ventas: solo IDs y cantidades
+        Venta venta = new Venta();
+        venta.setPId(1);
+        venta.setPvId(1);
+        for (int i = 0; i < lineas; i++) {
+            VentaDetalle detalle = new VentaDetalle();
+            detalle.setPId(siguienteProducto % PRODUCTOS + 1);
+            detalle.setVdCantidad(1);
+            venta.addDetalle(detalle);
+            siguienteProducto++;
+        }
+        return ventaService.crearVenta(venta);
+    }
+}
@@ -0,0 +1,93 @@
+package co.edu.tienda.benchmarks;
+
+import co.edu.tienda.domain.entities.Producto;
+import co.edu.tienda.domain.entities.Venta;
+import co.edu.tienda.domain.entities.VentaDetalle;
+import co.edu.tienda.domain.valores.Centavos;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Total de una venta y acumulado por producto (lo que hacen CANTIDAD_VENDIDA y los
+ * reportes con cada venta): BigDecimal por operación, como antes, contra centavos en long.
+ *
+ * Con {@code -prof gc}, "gc.alloc.rate.norm" muestra los bytes creados por operación.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MontosBenchmark {
+
+    @Param({"3", "20"})
+    private int lineas;
+
+    private Venta venta;
+
+    @Setup
+    public void preparar() {
+        Random random = new Random(42);
+        venta = new Venta();
+        for (int i = 0; i < lineas; i++) {
+            Producto producto = new Producto("Producto " + i, null, null, 100);
+            producto.setPId(i % 7 + 1);
+            // Escala 2, como llegan de NUMERIC(10,2)
+            BigDecimal precio = BigDecimal.valueOf(random.nextInt(100_000) + 1, 2);
+            venta.addDetalle(new VentaDetalle(venta, producto, random.nextInt(5) + 1, precio));
+        }
+    }
+
+    @Benchmark
+    public BigDecimal totalBigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (VentaDetalle detalle : venta.getDetalles()) {
+            total = total.add(detalle.getVdPrecioUnitario().multiply(new BigDecimal(detalle.getVdCantidad())));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long totalCentavos() {
+        return venta.getTotalCentavos();
+    }
+
+    // Lo que ve el JSON: la suma en centavos y un solo BigDecimal al final
+    @Benchmark
+    public BigDecimal totalCentavosADecimal() {
+        return venta.getTotal();
+    }
+
+    // Lo que llama el JSON por cada línea ("subtotal")
+    @Benchmark
+    public void calcularSubtotal(Blackhole blackhole) {
+        for (VentaDetalle detalle : venta.getDetalles()) {
+            blackhole.consume(detalle.calcularSubtotal());
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, BigDecimal> porProductoBigDecimal() {
+        Map<Integer, BigDecimal> ingresos = new TreeMap<>();
+        for (VentaDetalle detalle : venta.getDetalles()) {
+            BigDecimal subtotal = detalle.getVdPrecioUnitario().multiply(new BigDecimal(detalle.getVdCantidad()));
+            ingresos.merge(detalle.getPId(), subtotal, BigDecimal::add);
+        }
+        return ingresos;
+    }
+
+    @Benchmark
+    public Map<Integer, long[]> porProductoCentavos() {
+        Map<Integer, long[]> ingresos = new TreeMap<>();
+        for (VentaDetalle detalle : venta.getDetalles()) {
+            long[] suma = ingresos.computeIfAbsent(detalle.getPId(), k -> new long[1]);
+            suma[0] = Centavos.sumar(suma[0], detalle.getSubtotalCentavos());
+        }
+        return ingresos;
+    }
+}
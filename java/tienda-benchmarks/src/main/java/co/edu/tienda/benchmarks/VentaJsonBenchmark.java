@@ -0,0 +1,100 @@
+package co.edu.tienda.benchmarks;
+
+import co.edu.tienda.domain.entities.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON de una venta con Jackson, configurado como en application.properties: la
+ * respuesta de GET /api/ventas/{id} (persona, punto de venta con ubicación y líneas con
+ * su producto, más los getters virtuales como total, subtotal o clienteNombre) y el
+ * cuerpo de POST /api/ventas, que pasa por los setters virtuales (pId, pvId) y sus
+ * {@code @JsonAlias}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VentaJsonBenchmark {
+
+    @Param({"3", "20"})
+    private int lineas;
+
+    private ObjectMapper objectMapper;
+    private Venta venta;
+    private byte[] respuesta;
+    private byte[] pedido;
+    private byte[] pedidoConAlias;
+
+    @Setup
+    public void preparar() throws Exception {
+        // spring.jackson.serialization.fail-on-self-references/fail-on-empty-beans=false
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS,
+                        SerializationFeature.FAIL_ON_SELF_REFERENCES, SerializationFeature.FAIL_ON_EMPTY_BEANS)
+                .build();
+
+        Ubicacion ubicacion = new Ubicacion("Centro");
+        ubicacion.setUId(1);
+        PuntoDeVenta puntoDeVenta = new PuntoDeVenta("Caja 1", ubicacion);
+        puntoDeVenta.setPvId(1);
+        Persona persona = new Persona("Ana", "Ruiz", "ana.ruiz@correo.co", "3001234567");
+        persona.setPId(1);
+
+        Random random = new Random(42);
+        venta = new Venta(persona, puntoDeVenta);
+        venta.setVId(1000);
+        venta.setVFecha(LocalDateTime.of(2025, 3, 14, 10, 30));
+        StringBuilder detalles = new StringBuilder();
+        StringBuilder detallesConAlias = new StringBuilder();
+        for (int i = 0; i < lineas; i++) {
+            Producto producto = new Producto("Producto " + i, "Descripción del producto " + i,
+                    BigDecimal.valueOf(random.nextInt(100_000) + 1, 2), 100);
+            producto.setPId(i + 1);
+            VentaDetalle detalle = new VentaDetalle(venta, producto, random.nextInt(5) + 1, producto.getPPrecio());
+            detalle.setVdId(5000 + i);
+            venta.addDetalle(detalle);
+
+            String separador = i > 0 ? "," : "";
+            detalles.append(separador).append("{\"pId\":").append(i + 1)
+                    .append(",\"cantidad\":").append(detalle.getVdCantidad()).append('}');
+            detallesConAlias.append(separador).append("{\"productoId\":").append(i + 1)
+                    .append(",\"cantidad\":").append(detalle.getVdCantidad()).append('}');
+        }
+        venta.calcularTotales();
+
+        respuesta = objectMapper.writeValueAsBytes(venta);
+        pedido = ("{\"pId\":1,\"pvId\":1,\"detalles\":[" + detalles + "]}").getBytes();
+        pedidoConAlias = ("{\"personaId\":1,\"puntoDeVentaId\":1,\"detalles\":[" + detallesConAlias + "]}").getBytes();
+    }
+
+    @Benchmark
+    public byte[] serializar() throws Exception {
+        return objectMapper.writeValueAsBytes(venta);
+    }
+
+    @Benchmark
+    public Venta deserializarPedido() throws Exception {
+        return objectMapper.readValue(pedido, Venta.class);
+    }
+
+    @Benchmark
+    public Venta deserializarPedidoConAlias() throws Exception {
+        return objectMapper.readValue(pedidoConAlias, Venta.class);
+    }
+
+    // La respuesta completa de vuelta a una Venta (los campos de solo lectura se ignoran)
+    @Benchmark
+    public Venta deserializarRespuesta() throws Exception {
+        return objectMapper.readValue(respuesta, Venta.class);
+    }
+}
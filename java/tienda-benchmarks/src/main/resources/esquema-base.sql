@@ -0,0 +1,51 @@
+-- Tablas base y datos de CrearVentaBenchmark. Las columnas y tablas que agregaron
+-- después los scripts de tienda-backend (totales_venta.sql, cantidad_vendida.sql, ...)
+-- se crean ejecutando esos mismos scripts después de este.
+CREATE TABLE ubicacion (
+    u_id SERIAL PRIMARY KEY,
+    u_nombre VARCHAR(200) NOT NULL
+);
+
+CREATE TABLE punto_de_venta (
+    pv_id SERIAL PRIMARY KEY,
+    pv_nombre VARCHAR(200) NOT NULL,
+    u_id INTEGER NOT NULL REFERENCES ubicacion (u_id)
+);
+
+CREATE TABLE persona (
+    p_id SERIAL PRIMARY KEY,
+    p_nombre VARCHAR(100) NOT NULL,
+    p_apellido VARCHAR(100) NOT NULL,
+    p_email VARCHAR(150) NOT NULL,
+    p_telefono VARCHAR(20)
+);
+
+CREATE TABLE producto (
+    p_id SERIAL PRIMARY KEY,
+    p_nombre VARCHAR(200) NOT NULL,
+    p_descripcion TEXT,
+    p_precio NUMERIC(10,2) NOT NULL,
+    p_stock INTEGER NOT NULL
+);
+
+CREATE TABLE venta (
+    v_id SERIAL PRIMARY KEY,
+    v_fecha TIMESTAMP NOT NULL,
+    p_id INTEGER NOT NULL REFERENCES persona (p_id),
+    pv_id INTEGER NOT NULL REFERENCES punto_de_venta (pv_id)
+);
+
+CREATE TABLE venta_detalle (
+    vd_id SERIAL PRIMARY KEY,
+    v_id INTEGER NOT NULL REFERENCES venta (v_id),
+    p_id INTEGER NOT NULL REFERENCES producto (p_id),
+    vd_cantidad INTEGER NOT NULL,
+    vd_precio_unitario NUMERIC(10,2) NOT NULL
+);
+
+INSERT INTO ubicacion (u_nombre) VALUES ('Centro');
+INSERT INTO punto_de_venta (pv_nombre, u_id) VALUES ('Caja 1', 1);
+INSERT INTO persona (p_nombre, p_apellido, p_email) VALUES ('Ana', 'Ruiz', 'ana.ruiz@correo.co');
+-- Stock de sobra para todas las iteraciones
+INSERT INTO producto (p_nombre, p_precio, p_stock)
+SELECT 'Producto ' || g, g * 1.25, 2000000000 FROM generate_series(1, 20) g;
@@ -0,0 +1,105 @@
+package co.edu.tienda.carga;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * BD de la corrida: un PostgreSQL embebido (binarios de zonky, en un directorio
+ * temporal) o la BD de {@code carga.url}. Crea el esquema si falta y, si no hay
+ * productos, los datos de prueba.
+ */
+final class BaseDeDatosCarga implements AutoCloseable {
+
+    // En este orden, como se aplicarían sobre una BD existente
+    private static final List<String> SCRIPTS = List.of("totales_venta.sql", "indices_ventas.sql",
+            "cantidad_vendida.sql", "acumulados_ventas.sql", "inventario_caliente.sql", "personas_email.sql");
+
+    // Stock de sobra: la corrida mide ventas, no rechazos por stock
+    private static final int STOCK = 1_000_000_000;
+
+    private final EmbeddedPostgres embebida;
+    final String url;
+    final String usuario;
+    final String clave;
+    final JdbcTemplate jdbc;
+
+    int[] puntosDeVenta;
+    int[] personas;
+    int[] productos;
+
+    BaseDeDatosCarga(Configuracion configuracion) throws IOException {
+        if (configuracion.url.isEmpty()) {
+            embebida = EmbeddedPostgres.builder()
+                    .setServerConfig("max_connections", "200")
+                    .start();
+            url = embebida.getJdbcUrl("postgres", "postgres");
+            usuario = "postgres";
+            clave = "";
+        } else {
+            embebida = null;
+            url = configuracion.url;
+            usuario = configuracion.usuario;
+            clave = configuracion.clave;
+        }
+        jdbc = new JdbcTemplate(new DriverManagerDataSource(url, usuario, clave));
+    }
+
+    void preparar(Configuracion configuracion) {
+        ResourceDatabasePopulator esquema = new ResourceDatabasePopulator(new ClassPathResource("esquema-base.sql"));
+        for (String script : SCRIPTS) {
+            File archivo = new File(configuracion.scripts, script);
+            if (!archivo.isFile()) {
+                throw new IllegalStateException("No se encontró " + archivo.getAbsolutePath()
+                        + " (carga.scripts debe apuntar a tienda-backend)");
+            }
+            esquema.addScript(new FileSystemResource(archivo));
+        }
+        esquema.execute(jdbc.getDataSource());
+
+        Integer existentes = jdbc.queryForObject("SELECT COUNT(*) FROM producto", Integer.class);
+        if (existentes == null || existentes == 0) {
+            poblar(configuracion);
+        }
+        puntosDeVenta = ids("SELECT pv_id FROM punto_de_venta ORDER BY pv_id");
+        personas = ids("SELECT p_id FROM persona ORDER BY p_id");
+        productos = ids("SELECT p_id FROM producto ORDER BY p_id");
+        if (puntosDeVenta.length == 0 || personas.length == 0 || productos.length == 0) {
+            throw new IllegalStateException("La BD necesita al menos un punto de venta, una persona y un producto");
+        }
+    }
+
+    private void poblar(Configuracion configuracion) {
+        jdbc.update("INSERT INTO ubicacion (u_nombre) SELECT 'Ubicación ' || g FROM generate_series(1, ?) g",
+                configuracion.ubicaciones);
+        jdbc.update("INSERT INTO punto_de_venta (pv_nombre, u_id) " +
+                        "SELECT 'Caja ' || g, (SELECT MIN(u_id) FROM ubicacion) + (g - 1) % ? FROM generate_series(1, ?) g",
+                configuracion.ubicaciones, configuracion.puntosDeVenta);
+        jdbc.update("INSERT INTO persona (p_nombre, p_apellido, p_email, p_telefono) " +
+                        "SELECT 'Cliente', 'Número ' || g, 'cliente' || g || '@carga.co', '300' || LPAD(g::text, 7, '0') " +
+                        "FROM generate_series(1, ?) g",
+                configuracion.personas);
+        jdbc.update("INSERT INTO producto (p_nombre, p_descripcion, p_precio, p_stock) " +
+                        "SELECT 'Producto ' || g, 'Descripción del producto ' || g, ROUND(1 + (g * 7919 % 20000) / 100.0, 2), ? " +
+                        "FROM generate_series(1, ?) g",
+                STOCK, configuracion.productos);
+    }
+
+    private int[] ids(String sql) {
+        return jdbc.queryForList(sql, Integer.class).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (embebida != null) {
+            embebida.close();
+        }
+    }
+}
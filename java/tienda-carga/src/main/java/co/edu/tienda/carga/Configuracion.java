@@ -0,0 +1,75 @@
+package co.edu.tienda.carga;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parámetros de una corrida, como propiedades del sistema {@code -Dcarga.*}.
+ */
+final class Configuracion {
+
+    // Terminales de venta: cada una tiene a lo sumo una venta en curso
+    final int terminales = entero("carga.terminales", 20);
+    // Ventas por segundo entre todas las terminales; 0 = cada terminal vende sin pausa
+    final double tasaVentas = decimal("carga.tasa-ventas", 100);
+    final int lineasPorVenta = entero("carga.lineas", 3);
+
+    // Clientes que navegan (productos y ventas de una persona) mientras se vende
+    final int navegadores = entero("carga.navegadores", 10);
+    final double tasaNavegacion = decimal("carga.tasa-navegacion", 50);
+
+    // Clientes que piden reportes lentos (exportación completa de ventas): para comparar cómo
+    // afectan a las ventas con hilos de plataforma, hilos virtuales y los límites del backend
+    final int reporteros = entero("carga.reporteros", 0);
+    final double tasaReportes = decimal("carga.tasa-reportes", 2);
+
+    final int calentamientoS = entero("carga.calentamiento-s", 10);
+    final int duracionS = entero("carga.duracion-s", 60);
+    final int reporteS = entero("carga.reporte-s", 5);
+
+    // Datos que se crean si la BD está vacía
+    final int ubicaciones = entero("carga.ubicaciones", 3);
+    final int puntosDeVenta = entero("carga.puntos-venta", 10);
+    final int personas = entero("carga.personas", 10_000);
+    final int productos = entero("carga.productos", 2_000);
+
+    // BD externa; vacío = PostgreSQL embebido en un directorio temporal
+    final String url = texto("carga.url", "");
+    final String usuario = texto("carga.usuario", "postgres");
+    final String clave = texto("carga.clave", "postgres");
+    // Scripts SQL de tienda-backend que completan el esquema
+    final String scripts = texto("carga.scripts", "../tienda-backend");
+
+    final String resultados = texto("carga.resultados", "target/carga");
+    final long semilla = entero("carga.semilla", 42);
+
+    Map<String, Object> comoMapa() {
+        Map<String, Object> mapa = new LinkedHashMap<>();
+        mapa.put("terminales", terminales);
+        mapa.put("tasaVentas", tasaVentas);
+        mapa.put("lineasPorVenta", lineasPorVenta);
+        mapa.put("navegadores", navegadores);
+        mapa.put("tasaNavegacion", tasaNavegacion);
+        mapa.put("reporteros", reporteros);
+        mapa.put("tasaReportes", tasaReportes);
+        mapa.put("calentamientoS", calentamientoS);
+        mapa.put("duracionS", duracionS);
+        mapa.put("puntosDeVenta", puntosDeVenta);
+        mapa.put("personas", personas);
+        mapa.put("productos", productos);
+        mapa.put("bd", url.isEmpty() ? "embebida" : url);
+        return mapa;
+    }
+
+    private static String texto(String nombre, String porDefecto) {
+        return System.getProperty(nombre, porDefecto).trim();
+    }
+
+    private static int entero(String nombre, int porDefecto) {
+        return Integer.parseInt(texto(nombre, String.valueOf(porDefecto)));
+    }
+
+    private static double decimal(String nombre, double porDefecto) {
+        return Double.parseDouble(texto(nombre, String.valueOf(porDefecto)));
+    }
+}
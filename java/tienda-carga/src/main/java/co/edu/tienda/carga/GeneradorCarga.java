@@ -0,0 +1,273 @@
+package co.edu.tienda.carga;
+
+import co.edu.tienda.TiendaBackendApplication;
+import co.edu.tienda.infrastructure.hilos.FabricaHilos;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga: arranca el backend en este mismo proceso sobre PostgreSQL y simula
+ * terminales de venta (POST /api/ventas, cada una en su punto de venta) mientras otros
+ * clientes navegan (GET /api/productos y GET /api/ventas/persona/{id}) y, si se piden,
+ * otros sacan reportes lentos (GET /api/ventas/export).
+ *
+ * Con una tasa fijada (carga.tasa-ventas, carga.tasa-navegacion) la carga es abierta:
+ * cada terminal tiene una agenda de ventas que no se corre si el servidor se atrasa, y la
+ * latencia se mide desde el momento agendado. Así la cola que se forma cuando el servidor
+ * no da abasto aparece en los percentiles altos en vez de esconderse (omisión coordinada).
+ * Una terminal no tiene más de una venta en curso, como una caja real.
+ *
+ * Uso: mvn package exec:java -Dcarga.terminales=50 -Dcarga.tasa-ventas=200. Los argumentos
+ * de -Dexec.args (p. ej. --spring.datasource.hikari.maximum-pool-size=20) van al backend.
+ */
+public class GeneradorCarga {
+
+    // 201 al confirmarse en la BD; 202 con tienda.ventas.journal.enabled=true
+    private static final Set<Integer> VENTA_ACEPTADA = Set.of(201, 202);
+    private static final Set<Integer> OK = Set.of(200);
+
+    private final Configuracion configuracion;
+    private final BaseDeDatosCarga bd;
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final Medidor ventas = new Medidor("ventas");
+    private final Medidor productos = new Medidor("productos");
+    private final Medidor ventasPersona = new Medidor("ventasPersona");
+    private final Medidor reportes = new Medidor("reportes");
+    private final List<Medidor> medidores = new ArrayList<>(List.of(ventas, productos, ventasPersona));
+    private final Map<String, Object> backend = new LinkedHashMap<>();
+
+    private String base;
+    private volatile boolean detener;
+
+    private GeneradorCarga(Configuracion configuracion, BaseDeDatosCarga bd) {
+        this.configuracion = configuracion;
+        this.bd = bd;
+        if (configuracion.reporteros > 0) {
+            medidores.add(reportes);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Configuracion configuracion = new Configuracion();
+        System.out.println("Configuración: " + configuracion.comoMapa());
+        try (BaseDeDatosCarga bd = new BaseDeDatosCarga(configuracion)) {
+            bd.preparar(configuracion);
+            System.out.printf("BD lista: %d puntos de venta, %d personas, %d productos%n",
+                    bd.puntosDeVenta.length, bd.personas.length, bd.productos.length);
+
+            List<String> argumentos = new ArrayList<>(List.of(
+                    "--server.port=0",
+                    "--spring.datasource.url=" + bd.url,
+                    "--spring.datasource.username=" + bd.usuario,
+                    "--spring.datasource.password=" + bd.clave,
+                    "--logging.level.root=WARN"));
+            argumentos.addAll(Arrays.asList(args));
+            try (ConfigurableApplicationContext contexto = SpringApplication.run(TiendaBackendApplication.class,
+                    argumentos.toArray(new String[0]))) {
+                GeneradorCarga generador = new GeneradorCarga(configuracion, bd);
+                // Con qué corrió el backend, para comparar resultados de distintas corridas
+                generador.backend.put("java", Runtime.version().toString());
+                generador.backend.put("hilosVirtuales", contexto.getBean(FabricaHilos.class).isVirtuales());
+                generador.backend.put("argumentos", Arrays.asList(args));
+                generador.base = "http://localhost:" + ((WebServerApplicationContext) contexto).getWebServer().getPort();
+                generador.correr();
+            }
+        }
+    }
+
+    private void correr() throws Exception {
+        List<Thread> hilos = new ArrayList<>();
+        long inicio = System.nanoTime();
+        for (int i = 0; i < configuracion.terminales; i++) {
+            int puntoDeVenta = bd.puntosDeVenta[i % bd.puntosDeVenta.length];
+            hilos.add(iniciar("terminal-" + i, i, configuracion.terminales, configuracion.tasaVentas, inicio,
+                    (aleatorio, programada) -> vender(puntoDeVenta, aleatorio, programada)));
+        }
+        for (int i = 0; i < configuracion.navegadores; i++) {
+            hilos.add(iniciar("navegador-" + i, i, configuracion.navegadores, configuracion.tasaNavegacion, inicio,
+                    this::navegar));
+        }
+        for (int i = 0; i < configuracion.reporteros; i++) {
+            hilos.add(iniciar("reportero-" + i, i, configuracion.reporteros, configuracion.tasaReportes, inicio,
+                    (aleatorio, programada) -> enviar(reportes, HttpRequest.newBuilder(
+                            URI.create(base + "/api/ventas/export?format=csv")).GET().build(), OK, programada)));
+        }
+
+        System.out.printf("Calentamiento: %d s%n", configuracion.calentamientoS);
+        Thread.sleep(configuracion.calentamientoS * 1000L);
+        medidores.forEach(Medidor::reiniciar);
+        long inicioMedicion = System.nanoTime();
+        long fin = inicioMedicion + configuracion.duracionS * 1_000_000_000L;
+        System.out.printf("Midiendo: %d s%n", configuracion.duracionS);
+
+        long siguienteReporte = inicioMedicion;
+        while (System.nanoTime() < fin) {
+            siguienteReporte += configuracion.reporteS * 1_000_000_000L;
+            long espera = Math.min(siguienteReporte, fin) - System.nanoTime();
+            if (espera > 0) {
+                Thread.sleep(espera / 1_000_000, (int) (espera % 1_000_000));
+            }
+            reportarIntervalo((System.nanoTime() - inicioMedicion) / 1_000_000_000L);
+        }
+        detener = true;
+        double segundos = (System.nanoTime() - inicioMedicion) / 1e9;
+        for (Thread hilo : hilos) {
+            hilo.join(30_000);
+        }
+        resumir(segundos);
+    }
+
+    private interface Accion {
+        void ejecutar(SplittableRandom aleatorio, long programadaNs);
+    }
+
+    /**
+     * Hilo que ejecuta {@code accion} a tasa/cantidad por segundo (0 = sin pausa),
+     * desfasado de los demás hilos del mismo grupo para no llegar todos juntos.
+     */
+    private Thread iniciar(String nombre, int indice, int cantidad, double tasa, long inicio, Accion accion) {
+        long intervaloNs = tasa > 0 ? (long) (1e9 * cantidad / tasa) : 0;
+        SplittableRandom aleatorio = new SplittableRandom(configuracion.semilla * 1_000_003 + nombre.hashCode());
+        Thread hilo = new Thread(() -> {
+            long programada = inicio + intervaloNs * indice / Math.max(1, cantidad);
+            while (!detener) {
+                if (intervaloNs > 0) {
+                    long espera = programada - System.nanoTime();
+                    if (espera > 0) {
+                        LockSupport.parkNanos(espera);
+                    }
+                } else {
+                    programada = System.nanoTime();
+                }
+                if (detener) {
+                    break;
+                }
+                accion.ejecutar(aleatorio, programada);
+                // La siguiente se agenda sin importar cuánto tardó esta
+                programada += intervaloNs;
+            }
+        }, nombre);
+        hilo.setDaemon(true);
+        hilo.start();
+        return hilo;
+    }
+
+    private void vender(int puntoDeVenta, SplittableRandom aleatorio, long programadaNs) {
+        int persona = bd.personas[aleatorio.nextInt(bd.personas.length)];
+        int lineas = 1 + aleatorio.nextInt(Math.max(1, configuracion.lineasPorVenta));
+        Set<Integer> elegidos = new LinkedHashSet<>();
+        while (elegidos.size() < Math.min(lineas, bd.productos.length)) {
+            elegidos.add(bd.productos[aleatorio.nextInt(bd.productos.length)]);
+        }
+        StringBuilder cuerpo = new StringBuilder("{\"pId\":").append(persona)
+                .append(",\"pvId\":").append(puntoDeVenta).append(",\"detalles\":[");
+        String separador = "";
+        for (Integer producto : elegidos) {
+            cuerpo.append(separador).append("{\"pId\":").append(producto)
+                    .append(",\"cantidad\":").append(1 + aleatorio.nextInt(3)).append('}');
+            separador = ",";
+        }
+        cuerpo.append("]}");
+        enviar(ventas, HttpRequest.newBuilder(URI.create(base + "/api/ventas"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo.toString()))
+                .build(), VENTA_ACEPTADA, programadaNs);
+    }
+
+    private void navegar(SplittableRandom aleatorio, long programadaNs) {
+        if (aleatorio.nextBoolean()) {
+            enviar(productos, HttpRequest.newBuilder(URI.create(base + "/api/productos")).GET().build(), OK,
+                    programadaNs);
+        } else {
+            int persona = bd.personas[aleatorio.nextInt(bd.personas.length)];
+            enviar(ventasPersona, HttpRequest.newBuilder(URI.create(base + "/api/ventas/persona/" + persona + "?limit=20"))
+                    .GET().build(), OK, programadaNs);
+        }
+    }
+
+    private void enviar(Medidor medidor, HttpRequest peticion, Set<Integer> esperados, long programadaNs) {
+        long inicio = System.nanoTime();
+        try {
+            HttpResponse<Void> respuesta = http.send(peticion, HttpResponse.BodyHandlers.discarding());
+            long fin = System.nanoTime();
+            if (esperados.contains(respuesta.statusCode())) {
+                medidor.registrar(programadaNs, inicio, fin);
+            } else {
+                medidor.error("HTTP " + respuesta.statusCode());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            medidor.error(e.getClass().getSimpleName());
+        }
+    }
+
+    private void reportarIntervalo(long segundo) {
+        StringBuilder linea = new StringBuilder(String.format("%5ds", segundo));
+        for (Medidor medidor : medidores) {
+            Histogram intervalo = medidor.cerrarIntervalo();
+            double duracion = Math.max(1e-9, (intervalo.getEndTimeStamp() - intervalo.getStartTimeStamp()) / 1000.0);
+            linea.append(String.format(Locale.ROOT, " | %s %.1f/s p50 %.1f p99 %.1f ms", medidor.nombre,
+                    intervalo.getTotalCount() / duracion, Medidor.ms(intervalo.getValueAtPercentile(50)),
+                    Medidor.ms(intervalo.getValueAtPercentile(99))));
+            if (medidor.errores() > 0) {
+                linea.append(" (").append(medidor.errores()).append(" errores)");
+            }
+        }
+        System.out.println(linea);
+    }
+
+    private void resumir(double segundos) throws Exception {
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("fecha", Instant.now().toString());
+        resumen.put("configuracion", configuracion.comoMapa());
+        resumen.put("backend", backend);
+        resumen.put("segundos", Math.round(segundos * 10) / 10.0);
+        Map<String, Object> operaciones = new LinkedHashMap<>();
+        for (Medidor medidor : medidores) {
+            operaciones.put(medidor.nombre, medidor.resumen(segundos));
+        }
+        resumen.put("operaciones", operaciones);
+
+        System.out.println();
+        System.out.printf("%-14s %10s %9s %8s %10s %10s %10s %10s %10s %12s%n", "Operación", "Total", "Por s",
+                "Errores", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "p99 serv. ms");
+        for (Medidor medidor : medidores) {
+            Map<String, Object> datos = medidor.resumen(segundos);
+            @SuppressWarnings("unchecked")
+            Map<String, Double> respuesta = (Map<String, Double>) datos.get("respuestaMs");
+            @SuppressWarnings("unchecked")
+            Map<String, Double> servicio = (Map<String, Double>) datos.get("servicioMs");
+            System.out.printf(Locale.ROOT, "%-14s %10d %9.1f %8d %10.2f %10.2f %10.2f %10.2f %10.2f %12.2f%n",
+                    medidor.nombre, datos.get("operaciones"), datos.get("porSegundo"), datos.get("errores"),
+                    respuesta.get("p50"), respuesta.get("p90"), respuesta.get("p99"), respuesta.get("p99.9"),
+                    respuesta.get("max"), servicio.get("p99"));
+        }
+
+        File directorio = new File(configuracion.resultados);
+        directorio.mkdirs();
+        for (Medidor medidor : medidores) {
+            medidor.guardar(directorio.getPath());
+        }
+        File archivo = new File(directorio, "resumen.json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(archivo, resumen);
+        System.out.println("Resultados en " + directorio.getAbsolutePath());
+    }
+}
@@ -0,0 +1,118 @@
+package co.edu.tienda.carga;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencias de una operación (en microsegundos) en dos histogramas HDR:
+ *
+ * - respuesta: desde el momento en que la operación debía empezar según la tasa fijada.
+ *   Si el servidor se atrasa, las operaciones que esperaban turno suman esa espera, como
+ *   la vería un cliente real (corrige la omisión coordinada).
+ * - servicio: desde que la petición salió de verdad. Es lo que mide un cliente que
+ *   espera cada respuesta antes de mandar la siguiente; oculta la cola.
+ *
+ * Con carga cerrada (tasa 0) los dos coinciden.
+ */
+final class Medidor {
+
+    // Hasta 1 hora, con 3 dígitos significativos
+    private static final long MAXIMO_US = 3_600_000_000L;
+
+    final String nombre;
+    private final Recorder respuesta = new Recorder(MAXIMO_US, 3);
+    private final Recorder servicio = new Recorder(MAXIMO_US, 3);
+    private final Histogram totalRespuesta = new Histogram(MAXIMO_US, 3);
+    private final Histogram totalServicio = new Histogram(MAXIMO_US, 3);
+    private final AtomicLong errores = new AtomicLong();
+    private final Map<String, AtomicLong> erroresPorTipo = new ConcurrentHashMap<>();
+    private Histogram intervalo;
+    private Histogram intervaloServicio;
+
+    Medidor(String nombre) {
+        this.nombre = nombre;
+    }
+
+    void registrar(long programadaNs, long inicioNs, long finNs) {
+        respuesta.recordValue(Math.min(MAXIMO_US, Math.max(0, (finNs - programadaNs) / 1000)));
+        servicio.recordValue(Math.min(MAXIMO_US, Math.max(0, (finNs - inicioNs) / 1000)));
+    }
+
+    void error(String tipo) {
+        errores.incrementAndGet();
+        erroresPorTipo.computeIfAbsent(tipo, t -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Descarta lo medido hasta ahora (calentamiento).
+     */
+    synchronized void reiniciar() {
+        intervalo = respuesta.getIntervalHistogram(intervalo);
+        intervaloServicio = servicio.getIntervalHistogram(intervaloServicio);
+        totalRespuesta.reset();
+        totalServicio.reset();
+        errores.set(0);
+        erroresPorTipo.clear();
+    }
+
+    /**
+     * Pasa lo medido desde la última llamada al total y lo devuelve (latencia de respuesta).
+     */
+    synchronized Histogram cerrarIntervalo() {
+        intervalo = respuesta.getIntervalHistogram(intervalo);
+        intervaloServicio = servicio.getIntervalHistogram(intervaloServicio);
+        totalRespuesta.add(intervalo);
+        totalServicio.add(intervaloServicio);
+        return intervalo;
+    }
+
+    long errores() {
+        return errores.get();
+    }
+
+    synchronized Map<String, Object> resumen(double segundos) {
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("operaciones", totalRespuesta.getTotalCount());
+        resumen.put("porSegundo", Math.round(totalRespuesta.getTotalCount() / segundos * 10) / 10.0);
+        resumen.put("errores", errores.get());
+        Map<String, Long> tipos = new LinkedHashMap<>();
+        erroresPorTipo.forEach((tipo, cantidad) -> tipos.put(tipo, cantidad.get()));
+        resumen.put("erroresPorTipo", tipos);
+        resumen.put("respuestaMs", percentiles(totalRespuesta));
+        resumen.put("servicioMs", percentiles(totalServicio));
+        return resumen;
+    }
+
+    private static Map<String, Double> percentiles(Histogram histograma) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        percentiles.put("p50", ms(histograma.getValueAtPercentile(50)));
+        percentiles.put("p90", ms(histograma.getValueAtPercentile(90)));
+        percentiles.put("p99", ms(histograma.getValueAtPercentile(99)));
+        percentiles.put("p99.9", ms(histograma.getValueAtPercentile(99.9)));
+        percentiles.put("max", ms(histograma.getMaxValue()));
+        return percentiles;
+    }
+
+    static double ms(long microsegundos) {
+        return Math.round(microsegundos / 10.0) / 100.0;
+    }
+
+    /**
+     * Distribución completa en el formato .hgrm (se puede graficar con HdrHistogram Plotter).
+     */
+    synchronized void guardar(String directorio) throws FileNotFoundException {
+        try (PrintStream salida = new PrintStream(directorio + "/" + nombre + ".hgrm")) {
+            totalRespuesta.outputPercentileDistribution(salida, 1000.0);
+        }
+        try (PrintStream salida = new PrintStream(directorio + "/" + nombre + "-servicio.hgrm")) {
+            totalServicio.outputPercentileDistribution(salida, 1000.0);
+        }
+    }
+}
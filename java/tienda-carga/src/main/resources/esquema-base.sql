@@ -0,0 +1,44 @@
+-- Tablas base de la tienda para el generador de carga. Las columnas y tablas que
+-- agregaron después los scripts de tienda-backend (totales_venta.sql, cantidad_vendida.sql,
+-- ...) se crean ejecutando esos mismos scripts.
+CREATE TABLE IF NOT EXISTS ubicacion (
+    u_id SERIAL PRIMARY KEY,
+    u_nombre VARCHAR(200) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS punto_de_venta (
+    pv_id SERIAL PRIMARY KEY,
+    pv_nombre VARCHAR(200) NOT NULL,
+    u_id INTEGER NOT NULL REFERENCES ubicacion (u_id)
+);
+
+CREATE TABLE IF NOT EXISTS persona (
+    p_id SERIAL PRIMARY KEY,
+    p_nombre VARCHAR(100) NOT NULL,
+    p_apellido VARCHAR(100) NOT NULL,
+    p_email VARCHAR(150) NOT NULL,
+    p_telefono VARCHAR(20)
+);
+
+CREATE TABLE IF NOT EXISTS producto (
+    p_id SERIAL PRIMARY KEY,
+    p_nombre VARCHAR(200) NOT NULL,
+    p_descripcion TEXT,
+    p_precio NUMERIC(10,2) NOT NULL,
+    p_stock INTEGER NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS venta (
+    v_id SERIAL PRIMARY KEY,
+    v_fecha TIMESTAMP NOT NULL,
+    p_id INTEGER NOT NULL REFERENCES persona (p_id),
+    pv_id INTEGER NOT NULL REFERENCES punto_de_venta (pv_id)
+);
+
+CREATE TABLE IF NOT EXISTS venta_detalle (
+    vd_id SERIAL PRIMARY KEY,
+    v_id INTEGER NOT NULL REFERENCES venta (v_id),
+    p_id INTEGER NOT NULL REFERENCES producto (p_id),
+    vd_cantidad INTEGER NOT NULL,
+    vd_precio_unitario NUMERIC(10,2) NOT NULL
+);